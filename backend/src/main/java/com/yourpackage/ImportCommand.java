@@ -0,0 +1,65 @@
+package com.yourpackage;
+
+import com.yourpackage.service.BulkImportService;
+import com.yourpackage.service.ImportJob;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Command-line bulk import of INSERT dumps, using the application's datasource settings:
+//
+//   java -cp app.jar -Dloader.main=com.yourpackage.ImportCommand org.springframework.boot.loader.launch.PropertiesLauncher \
+//        --batch-size=2000 --writers=8 property.txt transaction.txt
+//
+// A running server keeps its in-memory indexes until POST /api/admin/import/refresh is called.
+// The command itself skips the server's startup work (index rebuilds, migrations, the message indexer),
+// which would only cost time here and write shared state behind a running server.
+public class ImportCommand {
+
+	public static void main(String[] args) {
+		Integer batchSize = null;
+		Integer writers = null;
+		List<String> files = new ArrayList<>();
+		List<String> springArgs = new ArrayList<>();
+
+		for (String arg : args) {
+			if (arg.startsWith("--batch-size=")) {
+				batchSize = Integer.parseInt(arg.substring("--batch-size=".length()));
+			} else if (arg.startsWith("--writers=")) {
+				writers = Integer.parseInt(arg.substring("--writers=".length()));
+			} else if (arg.startsWith("--")) {
+				springArgs.add(arg);
+			} else {
+				files.add(arg);
+			}
+		}
+
+		if (files.isEmpty()) {
+			System.err.println("Usage: ImportCommand [--batch-size=N] [--writers=N] file...");
+			System.exit(2);
+		}
+
+		boolean failed = false;
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+				.web(WebApplicationType.NONE)
+				.properties("startup-tasks.enabled=false")
+				.run(springArgs.toArray(new String[0]))) {
+			BulkImportService importer = context.getBean(BulkImportService.class);
+			for (String file : files) {
+				ImportJob job = importer.importFile(Paths.get(file), batchSize, writers);
+				System.out.printf("%s: %s, %d rows written, %d failed, %d skipped, %d ms, %.0f rows/s%n",
+						file, job.getStatus(), job.getRowsWritten(), job.getRowsFailed(), job.getStatementsSkipped(),
+						job.getElapsedMillis(), job.getRowsPerSecond());
+				for (String error : job.getErrors()) {
+					System.out.println("  " + error);
+				}
+				failed |= job.getStatus() != ImportJob.Status.COMPLETED || job.getRowsFailed() > 0;
+			}
+		}
+		System.exit(failed ? 1 : 0);
+	}
+}
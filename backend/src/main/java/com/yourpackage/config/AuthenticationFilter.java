@@ -0,0 +1,53 @@
+package com.yourpackage.config;
+
+import com.yourpackage.dto.AuthenticatedUser;
+import com.yourpackage.service.TokenClaims;
+import com.yourpackage.service.TokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Verifies the bearer token once per request and publishes the caller as a request attribute.
+// Requests without a valid token pass through unauthenticated; endpoints that need a caller
+// reject them when the AuthenticatedUser parameter is resolved.
+// The message stream also accepts the token as ?access_token=, because EventSource cannot send
+// headers; other endpoints do not, to keep tokens out of URLs and access logs.
+@Component
+public class AuthenticationFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthenticationFilter.class);
+
+    private static final String STREAM_PATH = "/api/messages/stream";
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader("Authorization");
+        if ((header == null || header.isBlank()) && STREAM_PATH.equals(request.getRequestURI())) {
+            header = request.getParameter("access_token");
+        }
+
+        if (header != null && !header.isBlank()) {
+            try {
+                TokenClaims claims = tokenService.verify(header);
+                request.setAttribute(AuthenticatedUser.REQUEST_ATTRIBUTE,
+                        new AuthenticatedUser(claims.getUserId(), claims.getEmail(), claims.getRole()));
+            } catch (Exception e) {
+                logger.warn("Rejected bearer token on {}: {}", request.getRequestURI(), e.getMessage());
+            }
+        }
+
+        chain.doFilter(request, response);
+    }
+}
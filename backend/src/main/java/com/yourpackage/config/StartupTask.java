@@ -0,0 +1,19 @@
+package com.yourpackage.config;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Work a server does once it is ready: rebuilding the in-memory indexes, backfills and migrations, and
+// starting the message indexer. Tools that boot the same context for one job, such as ImportCommand,
+// set startup-tasks.enabled=false so none of it runs there.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@EventListener(value = ApplicationReadyEvent.class,
+        condition = "@environment.getProperty('startup-tasks.enabled', 'true') == 'true'")
+public @interface StartupTask {
+}
@@ -1,5 +1,8 @@
 package com.yourpackage.controller;
 
+import com.yourpackage.dto.AuthenticatedUser;
+import com.yourpackage.dto.PagedResult;
+import com.yourpackage.dto.UserSummary;
 import com.yourpackage.model.User;
 import com.yourpackage.service.UserService;
 import org.slf4j.Logger;
@@ -8,8 +11,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -21,24 +24,30 @@ public class AdminController {
     @Autowired
     private UserService userService;
 
+    // Paged user listing; see UserService.listUsers for the filters and sort options
     @GetMapping
-    public ResponseEntity<?> getAllUsers(@RequestHeader("Authorization") String token) {
-        logger.info("Fetching all users");
-
-        if (token.startsWith("Bearer ")) {
-            token = token.substring(7);
-        }
-
-        if (!userService.isAdmin(token)) {
+    public ResponseEntity<?> getAllUsers(@RequestParam(required = false) String role,
+                                         @RequestParam(required = false) String query,
+                                         @RequestParam(required = false) String sort,
+                                         @RequestParam(required = false) String direction,
+                                         @RequestParam(required = false) Integer page,
+                                         @RequestParam(required = false) Integer size,
+                                         AuthenticatedUser caller) {
+        logger.info("Fetching users");
+
+        if (!caller.isAdmin()) {
             logger.warn("Unauthorized access attempt detected.");
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("error", "Access denied"));
         }
 
         try {
-            List<User> users = userService.getAllUsers();
-            logger.info("Fetched {} users", users.size());
+            PagedResult<UserSummary> users = userService.listUsers(role, query, sort, direction, page, size);
+            logger.info("Fetched {} of {} users", users.getItems().size(), users.getTotalItems());
             return ResponseEntity.ok(users);
+        } catch (ResponseStatusException e) {
+            logger.error("Error fetching users: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
         } catch (Exception e) {
             logger.error("Error fetching users: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -47,14 +56,10 @@ public class AdminController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getUserById(@PathVariable Long id, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getUserById(@PathVariable Long id, AuthenticatedUser caller) {
         logger.info("Fetching user with ID {}", id);
 
-        if (token.startsWith("Bearer ")) {
-            token = token.substring(7);
-        }
-
-        if (!userService.isAdmin(token)) {
+        if (!caller.isAdmin()) {
             logger.warn("Unauthorized access attempt detected for user ID {}", id);
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("error", "Access denied"));
@@ -71,10 +76,10 @@ public class AdminController {
     }
 
     @PostMapping
-    public ResponseEntity<?> addUser(@RequestBody Map<String, String> userDTO, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> addUser(@RequestBody Map<String, String> userDTO, AuthenticatedUser caller) {
         logger.info("Attempting to add a new user");
 
-        if (!userService.isAdmin(token)) {
+        if (!caller.isAdmin()) {
             logger.warn("Unauthorized attempt to add a user.");
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("error", "Access denied"));
@@ -89,6 +94,9 @@ public class AdminController {
             User newUser = userService.registerUser(user);
             logger.info("New user added with ID {}", newUser.getId());
             return ResponseEntity.status(HttpStatus.CREATED).body(newUser);
+        } catch (ResponseStatusException e) {
+            logger.error("Error adding user: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
         } catch (RuntimeException e) {
             logger.error("Error adding user: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -98,10 +106,10 @@ public class AdminController {
 
     @PutMapping("/{id}")
     public ResponseEntity<?> updateUser(@PathVariable Long id, @RequestBody Map<String, String> userDTO,
-                                        @RequestHeader("Authorization") String token) {
+                                        AuthenticatedUser caller) {
         logger.info("Updating user with ID {}", id);
 
-        if (!userService.isAdmin(token)) {
+        if (!caller.isAdmin()) {
             logger.warn("Unauthorized attempt to update user with ID {}", id);
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("error", "Access denied"));
@@ -118,6 +126,9 @@ public class AdminController {
             User user = userService.updateUser(id, updatedUser);
             logger.info("User with ID {} successfully updated", id);
             return ResponseEntity.ok(user);
+        } catch (ResponseStatusException e) {
+            logger.error("Error updating user: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
         } catch (RuntimeException e) {
             logger.error("Error updating user: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -126,10 +137,10 @@ public class AdminController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteUser(@PathVariable Long id, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> deleteUser(@PathVariable Long id, AuthenticatedUser caller) {
         logger.info("Deleting user with ID {}", id);
 
-        if (!userService.isAdmin(token)) {
+        if (!caller.isAdmin()) {
             logger.warn("Unauthorized attempt to delete user with ID {}", id);
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("error", "Access denied"));
@@ -0,0 +1,83 @@
+package com.yourpackage.controller;
+
+import com.yourpackage.dto.AuthenticatedUser;
+import com.yourpackage.service.EntityCache;
+import com.yourpackage.service.JsonDocumentCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/cache")
+public class CacheController {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheController.class);
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private JsonDocumentCache jsonDocumentCache;
+
+    // Hit, miss and eviction counts and memory use of each cached entity
+    @GetMapping
+    public ResponseEntity<?> getStats(AuthenticatedUser caller) {
+        if (!caller.isAdmin()) {
+            logger.warn("Unauthorized attempt to read cache statistics.");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied"));
+        }
+        return ResponseEntity.ok(entityCache.getStats());
+    }
+
+    // Turn the entity cache on or off (to compare with and without it) and optionally zero the counters
+    @PutMapping
+    public ResponseEntity<?> configure(@RequestParam(required = false) Boolean enabled,
+                                       @RequestParam(required = false, defaultValue = "false") boolean resetStats,
+                                       AuthenticatedUser caller) {
+        if (!caller.isAdmin()) {
+            logger.warn("Unauthorized attempt to configure the cache.");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied"));
+        }
+
+        if (enabled != null) {
+            entityCache.setEnabled(enabled);
+        }
+        if (resetStats) {
+            entityCache.resetStats();
+        }
+        return ResponseEntity.ok(entityCache.getStats());
+    }
+
+    // Hits, evictions and off-heap memory use of the cached property and transaction JSON
+    @GetMapping("/json")
+    public ResponseEntity<?> getJsonStats(AuthenticatedUser caller) {
+        if (!caller.isAdmin()) {
+            logger.warn("Unauthorized attempt to read JSON cache statistics.");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied"));
+        }
+        return ResponseEntity.ok(jsonDocumentCache.getStats());
+    }
+
+    @PutMapping("/json")
+    public ResponseEntity<?> configureJson(@RequestParam(required = false) Boolean enabled,
+                                           @RequestParam(required = false, defaultValue = "false") boolean resetStats,
+                                           AuthenticatedUser caller) {
+        if (!caller.isAdmin()) {
+            logger.warn("Unauthorized attempt to configure the JSON cache.");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied"));
+        }
+
+        if (enabled != null) {
+            jsonDocumentCache.setEnabled(enabled);
+        }
+        if (resetStats) {
+            jsonDocumentCache.resetStats();
+        }
+        return ResponseEntity.ok(jsonDocumentCache.getStats());
+    }
+}
@@ -1,16 +1,19 @@
 package com.yourpackage.controller;
 
+import com.yourpackage.dto.AuthenticatedUser;
+import com.yourpackage.dto.PagedResult;
 import com.yourpackage.model.Property;
 import com.yourpackage.service.FavoriteService;
-import com.yourpackage.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/favorites")
@@ -19,34 +22,51 @@ public class FavoriteController {
     @Autowired
     private FavoriteService favoriteService;
 
-    @Autowired
-    private UserService userService;
-
     private static final Logger logger = LoggerFactory.getLogger(FavoriteController.class);
 
     @GetMapping
-    public ResponseEntity<?> getFavoriteProperties(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getFavoriteProperties(AuthenticatedUser caller,
+                                                   @RequestParam(required = false) Integer page,
+                                                   @RequestParam(required = false) Integer size) {
         logger.info("Fetching favorite properties for the user");
 
         try {
-            token = token.startsWith("Bearer ") ? token.substring(7) : token;
-            Long userId = userService.getUserIdFromToken(token);
-            List<Property> favoriteProperties = favoriteService.getFavoritesForUser(userId);
-            logger.info("Fetched {} favorite properties for user ID {}", favoriteProperties.size(), userId);
+            Long userId = caller.getId();
+            PagedResult<Property> favoriteProperties = favoriteService.getFavoritesForUser(userId, page, size);
+            logger.info("Fetched {} favorite properties for user ID {}", favoriteProperties.getItems().size(), userId);
             return ResponseEntity.ok(favoriteProperties);
+        } catch (ResponseStatusException e) {
+            logger.error("Error fetching favorite properties: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
             logger.error("Error fetching favorite properties: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Failed to fetch favorite properties.");
         }
     }
 
+    // Favourite status of a page of properties, e.g. /status?ids=4,8,15 -> {"4": true, "8": false, "15": false}
+    @GetMapping("/status")
+    public ResponseEntity<?> getFavoriteStatus(AuthenticatedUser caller, @RequestParam List<Long> ids) {
+        logger.info("Fetching favorite status of {} properties", ids.size());
+
+        try {
+            Map<Long, Boolean> status = favoriteService.getFavoriteStatus(caller.getId(), ids);
+            return ResponseEntity.ok(status);
+        } catch (ResponseStatusException e) {
+            logger.error("Error fetching favorite status: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        } catch (Exception e) {
+            logger.error("Error fetching favorite status: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to fetch favorite status.");
+        }
+    }
+
     @PostMapping("/add/{id}")
-    public ResponseEntity<?> addFavorite(@RequestHeader("Authorization") String token, @PathVariable Long id) {
+    public ResponseEntity<?> addFavorite(AuthenticatedUser caller, @PathVariable Long id) {
         logger.info("Adding property with ID {} to favorites", id);
 
         try {
-            token = token.startsWith("Bearer ") ? token.substring(7) : token;
-            Long userId = userService.getUserIdFromToken(token);
+            Long userId = caller.getId();
             favoriteService.addFavorite(userId, id);
             logger.info("Property with ID {} added to favorites for user ID {}", id, userId);
             return ResponseEntity.ok("Property added to favorites.");
@@ -57,12 +77,11 @@ public class FavoriteController {
     }
 
     @DeleteMapping("/remove/{id}")
-    public ResponseEntity<?> removeFavorite(@RequestHeader("Authorization") String token, @PathVariable Long id) {
+    public ResponseEntity<?> removeFavorite(AuthenticatedUser caller, @PathVariable Long id) {
         logger.info("Removing property with ID {} from favorites", id);
 
         try {
-            token = token.startsWith("Bearer ") ? token.substring(7) : token;
-            Long userId = userService.getUserIdFromToken(token);
+            Long userId = caller.getId();
             favoriteService.removeFavorite(userId, id);
             logger.info("Property with ID {} removed from favorites for user ID {}", id, userId);
             return ResponseEntity.ok("Property removed from favorites.");
@@ -0,0 +1,108 @@
+package com.yourpackage.controller;
+
+import com.yourpackage.dto.AuthenticatedUser;
+import com.yourpackage.service.BulkImportService;
+import com.yourpackage.service.ImportJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/import")
+public class ImportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportController.class);
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    // Server-side dumps can only be read from this directory
+    @Value("${import.directory:.}")
+    private String importDirectory;
+
+    // Start an import of an uploaded dump, or of a file in the import directory given by `path`
+    @PostMapping
+    public ResponseEntity<?> startImport(@RequestParam(value = "file", required = false) MultipartFile file,
+                                         @RequestParam(value = "path", required = false) String path,
+                                         @RequestParam(value = "batchSize", required = false) Integer batchSize,
+                                         @RequestParam(value = "writers", required = false) Integer writers,
+                                         AuthenticatedUser caller) {
+        logger.info("Starting bulk import");
+
+        if (!caller.isAdmin()) {
+            logger.warn("Unauthorized attempt to start an import.");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied"));
+        }
+
+        try {
+            ImportJob job;
+            if (file != null && !file.isEmpty()) {
+                Path upload = Files.createTempFile("import-", ".sql");
+                file.transferTo(upload);
+                job = bulkImportService.submit(upload, file.getOriginalFilename(), batchSize, writers, true);
+            } else if (path != null && !path.isBlank()) {
+                Path base = Paths.get(importDirectory).toAbsolutePath().normalize();
+                Path source = base.resolve(path).normalize();
+                if (!source.startsWith(base) || !Files.isRegularFile(source)) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Import file not found"));
+                }
+                job = bulkImportService.submit(source, path, batchSize, writers, false);
+            } else {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "A file or path is required"));
+            }
+            logger.info("Import {} queued", job.getId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (Exception e) {
+            logger.error("Error starting import: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Could not start import"));
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getImports(AuthenticatedUser caller) {
+        if (!caller.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied"));
+        }
+        return ResponseEntity.ok(bulkImportService.getJobs());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getImport(@PathVariable String id, AuthenticatedUser caller) {
+        if (!caller.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied"));
+        }
+        ImportJob job = bulkImportService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Import not found"));
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    // For imports run from the command line against the same database
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(AuthenticatedUser caller) {
+        logger.info("Refreshing in-memory views");
+
+        if (!caller.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied"));
+        }
+
+        try {
+            bulkImportService.refreshInMemoryViews();
+            return ResponseEntity.ok(Map.of("message", "In-memory views refreshed"));
+        } catch (Exception e) {
+            logger.error("Error refreshing in-memory views: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Refresh failed"));
+        }
+    }
+}
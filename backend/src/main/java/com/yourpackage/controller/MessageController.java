@@ -1,14 +1,23 @@
 package com.yourpackage.controller;
 
+import com.yourpackage.dto.AuthenticatedUser;
+import com.yourpackage.dto.ConversationThread;
+import com.yourpackage.dto.CursorPage;
 import com.yourpackage.model.Message;
+import com.yourpackage.service.ConversationService;
+import com.yourpackage.service.MessageEventBroker;
 import com.yourpackage.service.MessageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/messages")
@@ -17,28 +26,104 @@ public class MessageController {
     @Autowired
     private MessageService messageService;
 
+    @Autowired
+    private MessageEventBroker messageEventBroker;
+
+    @Autowired
+    private ConversationService conversationService;
+
     private static final Logger logger = LoggerFactory.getLogger(MessageController.class);
 
+    // Newest first, ?size= per page (default 50); pass nextCursor back as ?cursor= for the next page
     @GetMapping
-    public ResponseEntity<?> getReceivedMessagesForUser(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getReceivedMessagesForUser(@RequestParam(required = false) String cursor,
+                                                        @RequestParam(required = false) Integer size,
+                                                        AuthenticatedUser caller) {
         logger.info("Fetching received messages for the user");
 
         try {
-            List<Message> messages = messageService.getReceivedMessagesForUser(token);
-            logger.info("Fetched {} received messages", messages.size());
+            CursorPage<Message> messages = messageService.getReceivedMessagesForUser(caller.getEmail(), cursor, size);
+            logger.info("Fetched {} received messages", messages.getItems().size());
             return ResponseEntity.ok(messages);
+        } catch (ResponseStatusException e) {
+            logger.error("Error fetching received messages: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
         } catch (Exception e) {
             logger.error("Error fetching received messages: {}", e.getMessage());
             return ResponseEntity.status(401).body("Unauthorized access or token is invalid.");
         }
     }
 
+    // Server-Sent Events: a "message" event for every message received while the stream is open.
+    // EventSource cannot set headers, so the token may be passed as ?access_token= here.
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMessages(AuthenticatedUser caller) {
+        try {
+            return ResponseEntity.ok(messageEventBroker.subscribe(caller.getEmail()));
+        } catch (ResponseStatusException e) {
+            logger.warn("Refused message stream: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).build();
+        }
+    }
+
+    // Full-text search of the caller's sent and received messages, ranked by relevance
+    @GetMapping("/search")
+    public ResponseEntity<?> searchMessages(@RequestParam("q") String query,
+                                            @RequestParam(required = false) Integer size,
+                                            AuthenticatedUser caller) {
+        logger.info("Searching messages");
+
+        try {
+            List<Message> messages = messageService.searchMessages(caller.getEmail(), query, size);
+            logger.info("Found {} matching messages", messages.size());
+            return ResponseEntity.ok(messages);
+        } catch (ResponseStatusException e) {
+            logger.error("Error searching messages: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        }
+    }
+
+    // The caller's conversations, most recently active first, paged like the inbox
+    @GetMapping("/threads")
+    public ResponseEntity<?> getThreads(@RequestParam(required = false) String cursor,
+                                        @RequestParam(required = false) Integer size,
+                                        AuthenticatedUser caller) {
+        logger.info("Fetching conversation threads for the user");
+
+        try {
+            CursorPage<ConversationThread> threads = conversationService.getThreads(caller.getEmail(), cursor, size);
+            logger.info("Fetched {} conversation threads", threads.getItems().size());
+            return ResponseEntity.ok(threads);
+        } catch (ResponseStatusException e) {
+            logger.error("Error fetching conversation threads: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        }
+    }
+
+    @GetMapping("/unread-count")
+    public ResponseEntity<?> getUnreadCount(AuthenticatedUser caller) {
+        return ResponseEntity.ok(Map.of("unread", messageService.getUnreadCount(caller.getEmail())));
+    }
+
+    @PutMapping("/{id}/read")
+    public ResponseEntity<?> markRead(@PathVariable Long id, AuthenticatedUser caller) {
+        logger.info("Marking message with ID {} as read", id);
+
+        try {
+            int unread = messageService.markRead(id, caller.getEmail());
+            return ResponseEntity.ok(Map.of("unread", unread));
+        } catch (ResponseStatusException e) {
+            logger.error("Error marking message with ID {} as read: {}", id, e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        }
+    }
+
     @PostMapping
-    public ResponseEntity<?> sendMessage(@RequestBody Message message, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> sendMessage(@RequestBody Message message, AuthenticatedUser caller) {
         logger.info("Sending a message");
 
         try {
-            Message sentMessage = messageService.saveMessage(message, token);
+            Message sentMessage = messageService.saveMessage(message, caller.getEmail());
             logger.info("Message sent successfully with ID {}", sentMessage.getId());
             return ResponseEntity.ok(sentMessage);
         } catch (Exception e) {
@@ -48,11 +133,11 @@ public class MessageController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getMessageById(@PathVariable Long id, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getMessageById(@PathVariable Long id, AuthenticatedUser caller) {
         logger.info("Fetching message with ID {}", id);
 
         try {
-            Message message = messageService.getMessageById(id, token);
+            Message message = messageService.getMessageById(id, caller.getEmail());
             logger.info("Message with ID {} fetched successfully", id);
             return ResponseEntity.ok(message);
         } catch (Exception e) {
@@ -62,11 +147,11 @@ public class MessageController {
     }
 
     @GetMapping("/conversation/{otherUserEmail}")
-    public ResponseEntity<?> getConversation(@RequestHeader("Authorization") String token, @PathVariable String otherUserEmail) {
+    public ResponseEntity<?> getConversation(AuthenticatedUser caller, @PathVariable String otherUserEmail) {
         logger.info("Fetching conversation with user {}");
 
         try {
-            List<Message> messages = messageService.getConversation(token, otherUserEmail);
+            List<Message> messages = messageService.getConversation(caller.getEmail(), otherUserEmail);
             logger.info("Fetched {} messages in the conversation", messages.size());
             return ResponseEntity.ok(messages);
         } catch (Exception e) {
@@ -1,14 +1,29 @@
 package com.yourpackage.controller;
 
+import com.yourpackage.dto.AuthenticatedUser;
+import com.yourpackage.dto.CursorPage;
+import com.yourpackage.dto.ImportReport;
 import com.yourpackage.exception.UnauthorizedException;
 import com.yourpackage.model.Property;
+import com.yourpackage.service.JsonDocumentCache;
 import com.yourpackage.service.PropertyService;
+import com.yourpackage.service.SearchExportService;
+import com.yourpackage.service.SearchFilters;
+import com.yourpackage.service.SpreadsheetImportService;
+import com.yourpackage.util.EntityTag;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -18,8 +33,20 @@ public class PropertyController {
     @Autowired
     private PropertyService propertyService;
 
+    @Autowired
+    private SpreadsheetImportService spreadsheetImportService;
+
+    @Autowired
+    private SearchExportService searchExportService;
+
+    @Autowired
+    private JsonDocumentCache jsonDocumentCache;
+
     private static final Logger logger = LoggerFactory.getLogger(PropertyController.class);
 
+    // Let the browser keep a copy but check it with If-None-Match every time
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     @GetMapping("/search")
     public ResponseEntity<?> searchProperties(
             @RequestParam(required = false) String sizeSqFt,
@@ -33,31 +60,123 @@ public class PropertyController {
             @RequestParam(required = false) Double minPricePerSqft,
             @RequestParam(required = false) Double maxPricePerSqft,
             @RequestParam(required = false) String facilities,
-            @RequestParam(required = false) String dateOfValuation) {
+            @RequestParam(required = false) String dateOfValuation,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.info("Searching properties with filters");
 
         try {
-            List<Property> properties = propertyService.searchProperties(
+            SearchFilters filters = new SearchFilters(
                     sizeSqFt, propertyType, noOfFloors, address, projectName,
                     minPrice != null ? minPrice : 0,
                     maxPrice != null ? maxPrice : Double.MAX_VALUE,
                     year, minPricePerSqft != null ? minPricePerSqft : 0,
                     maxPricePerSqft != null ? maxPricePerSqft : Double.MAX_VALUE,
                     facilities, dateOfValuation);
-            logger.info("Found {} properties matching the filters", properties.size());
-            return ResponseEntity.ok(properties);
+
+            // A revalidation is answered from the search index and the version columns
+            if (ifNoneMatch != null) {
+                String etag = propertyService.getSearchTag(filters, cursor, size);
+                if (EntityTag.matches(ifNoneMatch, etag)) {
+                    return notModified(etag);
+                }
+            }
+
+            CursorPage<Property> properties = propertyService.searchProperties(filters, cursor, size);
+            logger.info("Returning {} properties matching the filters", properties.getItems().size());
+            return ResponseEntity.ok()
+                    .eTag(PropertyService.tagOf(properties))
+                    .cacheControl(REVALIDATE)
+                    .body(properties);
+        } catch (ResponseStatusException e) {
+            logger.error("Error during property search: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
             logger.error("Error during property search: {}", e.getMessage());
             return ResponseEntity.status(500).body("Error searching properties.");
         }
     }
 
+    // Every matching property as a CSV (default) or XLSX download, streamed as it is read
+    @GetMapping("/export")
+    public ResponseEntity<?> exportProperties(
+            @RequestParam(required = false) String sizeSqFt,
+            @RequestParam(required = false) String propertyType,
+            @RequestParam(required = false) Integer noOfFloors,
+            @RequestParam(required = false) String address,
+            @RequestParam(required = false) String projectName,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Double minPricePerSqft,
+            @RequestParam(required = false) Double maxPricePerSqft,
+            @RequestParam(required = false) String facilities,
+            @RequestParam(required = false) String dateOfValuation,
+            @RequestParam(required = false) String format,
+            HttpServletResponse response) {
+        logger.info("Exporting properties with filters");
+
+        try {
+            SearchExportService.Format exportFormat = SearchExportService.Format.parse(format);
+            response.setContentType(exportFormat.getContentType());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"properties." + exportFormat.getExtension() + "\"");
+            searchExportService.exportProperties(new SearchFilters(
+                    sizeSqFt, propertyType, noOfFloors, address, projectName,
+                    minPrice != null ? minPrice : 0,
+                    maxPrice != null ? maxPrice : Double.MAX_VALUE,
+                    year, minPricePerSqft != null ? minPricePerSqft : 0,
+                    maxPricePerSqft != null ? maxPricePerSqft : Double.MAX_VALUE,
+                    facilities, dateOfValuation), exportFormat, response.getOutputStream());
+            return null;
+        } catch (ResponseStatusException e) {
+            logger.error("Error during property export: {}", e.getReason());
+            return exportFailed(response, e.getStatusCode().value(), e.getReason());
+        } catch (Exception e) {
+            logger.error("Error during property export: {}", e.getMessage());
+            return exportFailed(response, 500, "Error exporting properties.");
+        }
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggestProjectNames(@RequestParam String query,
+                                                 @RequestParam(required = false) Integer limit) {
+        logger.info("Fetching project name suggestions");
+
+        try {
+            return ResponseEntity.ok(propertyService.getProjectNameSuggestions(query, limit));
+        } catch (Exception e) {
+            logger.error("Error fetching project name suggestions: {}", e.getMessage());
+            return ResponseEntity.status(500).body("Error fetching suggestions.");
+        }
+    }
+
+    @GetMapping("/suggestPropertyType")
+    public ResponseEntity<?> suggestPropertyTypes(@RequestParam String query,
+                                                  @RequestParam(required = false) Integer limit) {
+        logger.info("Fetching property type suggestions");
+
+        try {
+            return ResponseEntity.ok(propertyService.getPropertyTypeSuggestions(query, limit));
+        } catch (Exception e) {
+            logger.error("Error fetching property type suggestions: {}", e.getMessage());
+            return ResponseEntity.status(500).body("Error fetching suggestions.");
+        }
+    }
+
+    @GetMapping("/facilities")
+    public ResponseEntity<?> getFacilityVocabulary() {
+        logger.info("Fetching facility vocabulary");
+        return ResponseEntity.ok(propertyService.getFacilityVocabulary());
+    }
+
     @GetMapping("/agent-properties")
-    public ResponseEntity<?> getAgentProperties(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getAgentProperties(AuthenticatedUser caller) {
         logger.info("Fetching properties for the agent");
 
         try {
-            List<Property> properties = propertyService.getPropertiesByAgent(token);
+            List<Property> properties = propertyService.getPropertiesByAgent(caller.getId());
             logger.info("Fetched {} properties for the agent", properties.size());
             return ResponseEntity.ok(properties);
         } catch (Exception e) {
@@ -67,26 +186,74 @@ public class PropertyController {
     }
 
     @GetMapping("/{propertyId}")
-    public ResponseEntity<?> getPropertyById(@PathVariable Long propertyId) {
+    public ResponseEntity<?> getPropertyById(@PathVariable Long propertyId,
+                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                             HttpServletResponse response) {
         logger.info("Fetching property with ID {}", propertyId);
 
         try {
+            // The finished JSON is usually cached, ETag included
+            try (JsonDocumentCache.Hit hit = jsonDocumentCache.findProperty(propertyId)) {
+                if (hit != null) {
+                    return EntityTag.matches(ifNoneMatch, hit.getEtag())
+                            ? notModified(hit.getEtag())
+                            : writeDocument(hit, response);
+                }
+            }
+
+            // A revalidation is answered from the version columns, without loading the property
+            if (ifNoneMatch != null) {
+                String etag = propertyService.getPropertyTag(propertyId);
+                if (EntityTag.matches(ifNoneMatch, etag)) {
+                    return notModified(etag);
+                }
+            }
+
+            long generation = jsonDocumentCache.generation();
             Property property = propertyService.getPropertyById(propertyId);
+            String etag = PropertyService.tagOf(property);
+            byte[] json = jsonDocumentCache.storeProperty(property, etag, generation);
             logger.info("Property with ID {} fetched successfully", propertyId);
-            return ResponseEntity.ok(property);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(etag)
+                    .cacheControl(REVALIDATE)
+                    .body(json);
         } catch (Exception e) {
             logger.error("Error fetching property with ID {}: {}", propertyId, e.getMessage());
             return ResponseEntity.status(404).body("Property not found.");
         }
     }
 
+    // Bulk add from an .xlsx or .csv file whose first row holds the column names
+    @PostMapping(value = "/upload", consumes = "multipart/form-data")
+    public ResponseEntity<?> uploadProperties(@RequestParam("file") MultipartFile file, AuthenticatedUser caller) {
+        logger.info("Uploading properties from {}", file.getOriginalFilename());
+
+        try {
+            validateUserRole(caller, "AGENT", "ADMIN");
+            ImportReport report = spreadsheetImportService.importProperties(file, caller.getId());
+            logger.info("Imported {} properties, rejected {}", report.getRowsImported(), report.getRowsRejected());
+            return ResponseEntity.ok(report);
+        } catch (UnauthorizedException e) {
+            logger.error("Unauthorized property upload");
+            return ResponseEntity.status(401).body("Unauthorized access.");
+        } catch (ResponseStatusException e) {
+            logger.error("Error uploading properties: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        } catch (Exception e) {
+            logger.error("Error uploading properties: {}", e.getMessage());
+            return ResponseEntity.status(500).body("Error importing properties.");
+        }
+    }
+
     @PostMapping("/add")
-    public ResponseEntity<?> addProperty(@RequestBody Property property, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> addProperty(@RequestBody Property property, AuthenticatedUser caller) {
         logger.info("Adding a new property");
 
         try {
-            validateUserRole(token, "AGENT", "ADMIN");
-            Property addedProperty = propertyService.addProperty(property, token);
+            validateUserRole(caller, "AGENT", "ADMIN");
+            Property addedProperty = propertyService.addProperty(property, caller.getId());
             logger.info("Property added successfully with ID {}", addedProperty.getId());
             return ResponseEntity.status(201).body(addedProperty);
         } catch (Exception e) {
@@ -97,12 +264,12 @@ public class PropertyController {
 
     @PutMapping("/update/{propertyId}")
     public ResponseEntity<?> updateProperty(@PathVariable Long propertyId, @RequestBody Property updatedProperty,
-                                             @RequestHeader("Authorization") String token) {
+                                             AuthenticatedUser caller) {
         logger.info("Updating property with ID {}", propertyId);
 
         try {
-            validateUserRole(token, "ADMIN", "AGENT");
-            Property property = propertyService.updateProperty(propertyId, updatedProperty, token);
+            validateUserRole(caller, "ADMIN", "AGENT");
+            Property property = propertyService.updateProperty(propertyId, updatedProperty);
             logger.info("Property with ID {} updated successfully", propertyId);
             return ResponseEntity.ok(property);
         } catch (Exception e) {
@@ -112,12 +279,12 @@ public class PropertyController {
     }
 
     @DeleteMapping("/delete/{propertyId}")
-    public ResponseEntity<?> deleteProperty(@PathVariable Long propertyId, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> deleteProperty(@PathVariable Long propertyId, AuthenticatedUser caller) {
         logger.info("Deleting property with ID {}", propertyId);
 
         try {
-            validateUserRole(token, "ADMIN", "AGENT");
-            propertyService.deleteProperty(propertyId, token);
+            validateUserRole(caller, "ADMIN", "AGENT");
+            propertyService.deleteProperty(propertyId, caller);
             logger.info("Property with ID {} deleted successfully", propertyId);
             return ResponseEntity.ok("Property deleted successfully.");
         } catch (Exception e) {
@@ -126,13 +293,33 @@ public class PropertyController {
         }
     }
 
-    private void validateUserRole(String token, String... allowedRoles) {
-        String role = propertyService.getRoleFromToken(token);
-        for (String allowedRole : allowedRoles) {
-            if (allowedRole.equals(role)) {
-                return;
-            }
+    private void validateUserRole(AuthenticatedUser caller, String... allowedRoles) {
+        if (!caller.hasRole(allowedRoles)) {
+            throw new UnauthorizedException("Unauthorized access");
+        }
+    }
+
+    // Once the download has started the status can no longer change; the client sees a truncated file
+    private ResponseEntity<?> exportFailed(HttpServletResponse response, int status, String message) {
+        if (response.isCommitted()) {
+            return null;
         }
-        throw new UnauthorizedException("Unauthorized access");
+        response.reset();
+        return ResponseEntity.status(status).body(message);
+    }
+
+    // The browser's copy is still current: no body, just the tag again
+    private ResponseEntity<?> notModified(String etag) {
+        return ResponseEntity.status(304).eTag(etag).cacheControl(REVALIDATE).build();
+    }
+
+    // Copy a cached document to the response as it is, past the message converters
+    private ResponseEntity<?> writeDocument(JsonDocumentCache.Hit hit, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(hit.getLength());
+        response.setHeader(HttpHeaders.ETAG, hit.getEtag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, REVALIDATE.getHeaderValue());
+        hit.writeTo(response.getOutputStream());
+        return null;
     }
 }
@@ -1,16 +1,33 @@
 package com.yourpackage.controller;
 
+import com.yourpackage.dto.AuthenticatedUser;
+import com.yourpackage.dto.CursorPage;
+import com.yourpackage.dto.ImportReport;
+import com.yourpackage.dto.ProjectRollup;
 import com.yourpackage.exception.UnauthorizedException;
 import com.yourpackage.model.Transaction;
+import com.yourpackage.service.JsonDocumentCache;
+import com.yourpackage.service.SearchExportService;
+import com.yourpackage.service.SearchFilters;
 import com.yourpackage.service.TransactionService;
+import com.yourpackage.service.SpreadsheetImportService;
+import com.yourpackage.util.EntityTag;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.util.List;
+import java.io.IOException;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/transactions")
@@ -19,8 +36,20 @@ public class TransactionController {
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private SpreadsheetImportService spreadsheetImportService;
+
+    @Autowired
+    private SearchExportService searchExportService;
+
+    @Autowired
+    private JsonDocumentCache jsonDocumentCache;
+
     private static final Logger logger = LoggerFactory.getLogger(TransactionController.class);
 
+    // Let the browser keep a copy but check it with If-None-Match every time
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     @GetMapping("/search")
     public ResponseEntity<?> searchTransactions(
             @RequestParam(required = false) String sizeSqFt,
@@ -34,45 +63,250 @@ public class TransactionController {
             @RequestParam(required = false) Double minPricePerSqft,
             @RequestParam(required = false) Double maxPricePerSqft,
             @RequestParam(required = false) String facilities,
-            @RequestParam(required = false) String dateOfValuation) {
+            @RequestParam(required = false) String dateOfValuation,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.info("Searching transactions with filters");
 
         try {
-            List<Transaction> transactions = transactionService.searchTransactions(
+            SearchFilters filters = new SearchFilters(
                     sizeSqFt, propertyType, noOfFloors, address, projectName,
                     minPrice != null ? minPrice : 0,
                     maxPrice != null ? maxPrice : Double.MAX_VALUE,
                     year, minPricePerSqft != null ? minPricePerSqft : 0,
                     maxPricePerSqft != null ? maxPricePerSqft : Double.MAX_VALUE,
                     facilities, dateOfValuation);
-            logger.info("Found {} transactions matching the filters", transactions.size());
-            return ResponseEntity.ok(transactions);
+
+            // A revalidation only reads the id, version and date columns of the page
+            if (ifNoneMatch != null) {
+                String etag = transactionService.getSearchTag(filters, cursor, size);
+                if (EntityTag.matches(ifNoneMatch, etag)) {
+                    return notModified(etag);
+                }
+            }
+
+            CursorPage<Transaction> transactions = transactionService.searchTransactions(filters, cursor, size);
+            logger.info("Returning {} transactions matching the filters", transactions.getItems().size());
+            return ResponseEntity.ok()
+                    .eTag(TransactionService.tagOf(transactions))
+                    .cacheControl(REVALIDATE)
+                    .body(transactions);
+        } catch (ResponseStatusException e) {
+            logger.error("Error during transaction search: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
             logger.error("Error during transaction search: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error searching transactions.");
         }
     }
 
+    @GetMapping("/search/count")
+    public ResponseEntity<?> countTransactions(
+            @RequestParam(required = false) String sizeSqFt,
+            @RequestParam(required = false) String propertyType,
+            @RequestParam(required = false) Integer noOfFloors,
+            @RequestParam(required = false) String address,
+            @RequestParam(required = false) String projectName,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Double minPricePerSqft,
+            @RequestParam(required = false) Double maxPricePerSqft,
+            @RequestParam(required = false) String facilities,
+            @RequestParam(required = false) String dateOfValuation) {
+        logger.info("Counting transactions with filters");
+
+        try {
+            long count = transactionService.countTransactions(
+                    sizeSqFt, propertyType, noOfFloors, address, projectName,
+                    minPrice != null ? minPrice : 0,
+                    maxPrice != null ? maxPrice : Double.MAX_VALUE,
+                    year, minPricePerSqft != null ? minPricePerSqft : 0,
+                    maxPricePerSqft != null ? maxPricePerSqft : Double.MAX_VALUE,
+                    facilities, dateOfValuation);
+            return ResponseEntity.ok(Map.of("count", count));
+        } catch (ResponseStatusException e) {
+            logger.error("Error during transaction count: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        } catch (Exception e) {
+            logger.error("Error during transaction count: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error counting transactions.");
+        }
+    }
+
+    // Every matching transaction as a CSV (default) or XLSX download, streamed as it is read
+    @GetMapping("/export")
+    public ResponseEntity<?> exportTransactions(
+            @RequestParam(required = false) String sizeSqFt,
+            @RequestParam(required = false) String propertyType,
+            @RequestParam(required = false) Integer noOfFloors,
+            @RequestParam(required = false) String address,
+            @RequestParam(required = false) String projectName,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Double minPricePerSqft,
+            @RequestParam(required = false) Double maxPricePerSqft,
+            @RequestParam(required = false) String facilities,
+            @RequestParam(required = false) String dateOfValuation,
+            @RequestParam(required = false) String format,
+            HttpServletResponse response) {
+        logger.info("Exporting transactions with filters");
+
+        try {
+            SearchExportService.Format exportFormat = SearchExportService.Format.parse(format);
+            response.setContentType(exportFormat.getContentType());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"transactions." + exportFormat.getExtension() + "\"");
+            searchExportService.exportTransactions(new SearchFilters(
+                    sizeSqFt, propertyType, noOfFloors, address, projectName,
+                    minPrice != null ? minPrice : 0,
+                    maxPrice != null ? maxPrice : Double.MAX_VALUE,
+                    year, minPricePerSqft != null ? minPricePerSqft : 0,
+                    maxPricePerSqft != null ? maxPricePerSqft : Double.MAX_VALUE,
+                    facilities, dateOfValuation), exportFormat, response.getOutputStream());
+            return null;
+        } catch (ResponseStatusException e) {
+            logger.error("Error during transaction export: {}", e.getReason());
+            return exportFailed(response, e.getStatusCode(), e.getReason());
+        } catch (Exception e) {
+            logger.error("Error during transaction export: {}", e.getMessage());
+            return exportFailed(response, HttpStatus.INTERNAL_SERVER_ERROR, "Error exporting transactions.");
+        }
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggestProjectNames(@RequestParam String query,
+                                                 @RequestParam(required = false) Integer limit) {
+        logger.info("Fetching project name suggestions");
+
+        try {
+            return ResponseEntity.ok(transactionService.getProjectNameSuggestions(query, limit));
+        } catch (Exception e) {
+            logger.error("Error fetching project name suggestions: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error fetching suggestions.");
+        }
+    }
+
+    @GetMapping("/facilities")
+    public ResponseEntity<?> getFacilityVocabulary() {
+        logger.info("Fetching facility vocabulary");
+        return ResponseEntity.ok(transactionService.getFacilityVocabulary());
+    }
+
+    @GetMapping("/rollups")
+    public ResponseEntity<?> getProjectRollup(@RequestParam String projectName,
+                                              @RequestParam(required = false) String propertyType,
+                                              @RequestParam(required = false) Integer year) {
+        logger.info("Fetching market rollup for project {}", projectName);
+
+        try {
+            ProjectRollup rollup = transactionService.getProjectRollup(projectName, propertyType, year);
+            return ResponseEntity.ok(rollup);
+        } catch (ResponseStatusException e) {
+            logger.error("Error fetching market rollup: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        } catch (Exception e) {
+            logger.error("Error fetching market rollup: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error fetching market rollup.");
+        }
+    }
+
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<?> rebuildProjectRollups(AuthenticatedUser caller) {
+        logger.info("Rebuilding market rollups");
+
+        try {
+            validateUserRole(caller, "ADMIN");
+            transactionService.rebuildProjectRollups();
+            return ResponseEntity.ok("Market rollups rebuilt.");
+        } catch (Exception e) {
+            logger.error("Error rebuilding market rollups: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized access or operation failed.");
+        }
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<?> getTransactionById(@PathVariable Long id) {
+    public ResponseEntity<?> getTransactionById(@PathVariable Long id,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                HttpServletResponse response) {
         logger.info("Fetching transaction with ID {}", id);
 
         try {
+            // The finished JSON is usually cached, ETag included
+            try (JsonDocumentCache.Hit hit = jsonDocumentCache.findTransaction(id)) {
+                if (hit != null) {
+                    return EntityTag.matches(ifNoneMatch, hit.getEtag())
+                            ? notModified(hit.getEtag())
+                            : writeDocument(hit, response);
+                }
+            }
+
+            // A revalidation is answered from the version column, without loading the transaction
+            if (ifNoneMatch != null) {
+                String etag = transactionService.getTransactionTag(id);
+                if (EntityTag.matches(ifNoneMatch, etag)) {
+                    return notModified(etag);
+                }
+            }
+
+            long generation = jsonDocumentCache.generation();
             Transaction transaction = transactionService.getTransactionById(id);
+            String etag = TransactionService.tagOf(transaction);
+            byte[] json = jsonDocumentCache.storeTransaction(transaction, etag, generation);
             logger.info("Transaction with ID {} fetched successfully", id);
-            return ResponseEntity.ok(transaction);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(etag)
+                    .cacheControl(REVALIDATE)
+                    .body(json);
         } catch (Exception e) {
             logger.error("Error fetching transaction with ID {}: {}", id, e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Transaction not found.");
         }
     }
 
+    @GetMapping("/{projectName}/last5")
+    public ResponseEntity<?> getLast5TransactionsByProjectName(@PathVariable String projectName) {
+        logger.info("Fetching last 5 transactions for project {}", projectName);
+
+        try {
+            return ResponseEntity.ok(transactionService.getLast5TransactionsByProjectName(projectName));
+        } catch (Exception e) {
+            logger.error("Error fetching last 5 transactions: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error fetching last 5 transactions.");
+        }
+    }
+
+    // Bulk add from an .xlsx or .csv file whose first row holds the column names
+    @PostMapping(value = "/upload", consumes = "multipart/form-data")
+    public ResponseEntity<?> uploadTransactions(@RequestParam("file") MultipartFile file, AuthenticatedUser caller) {
+        logger.info("Uploading transactions from {}", file.getOriginalFilename());
+
+        try {
+            validateUserRole(caller, "ADMIN", "AGENT");
+            ImportReport report = spreadsheetImportService.importTransactions(file);
+            logger.info("Imported {} transactions, rejected {}", report.getRowsImported(), report.getRowsRejected());
+            return ResponseEntity.ok(report);
+        } catch (UnauthorizedException e) {
+            logger.error("Unauthorized transaction upload");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized access.");
+        } catch (ResponseStatusException e) {
+            logger.error("Error uploading transactions: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        } catch (Exception e) {
+            logger.error("Error uploading transactions: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error importing transactions.");
+        }
+    }
+
     @PostMapping("/add")
-    public ResponseEntity<?> addTransaction(@RequestBody Transaction transaction, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> addTransaction(@RequestBody Transaction transaction, AuthenticatedUser caller) {
         logger.info("Adding a new transaction");
 
         try {
-            validateUserRole(token, "ADMIN", "AGENT");
+            validateUserRole(caller, "ADMIN", "AGENT");
             Transaction addedTransaction = transactionService.addTransaction(transaction);
             logger.info("Transaction added successfully with ID {}", addedTransaction.getId());
             return ResponseEntity.status(HttpStatus.CREATED).body(addedTransaction);
@@ -84,11 +318,11 @@ public class TransactionController {
 
     @PutMapping("/update/{id}")
     public ResponseEntity<?> updateTransaction(@PathVariable Long id, @RequestBody Transaction updatedTransaction,
-                                                @RequestHeader("Authorization") String token) {
+                                                AuthenticatedUser caller) {
         logger.info("Updating transaction with ID {}", id);
 
         try {
-            validateUserRole(token, "ADMIN", "AGENT");
+            validateUserRole(caller, "ADMIN", "AGENT");
             Transaction transaction = transactionService.updateTransaction(id, updatedTransaction);
             logger.info("Transaction with ID {} updated successfully", id);
             return ResponseEntity.ok(transaction);
@@ -99,11 +333,11 @@ public class TransactionController {
     }
 
     @DeleteMapping("/delete/{id}")
-    public ResponseEntity<?> deleteTransaction(@PathVariable Long id, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> deleteTransaction(@PathVariable Long id, AuthenticatedUser caller) {
         logger.info("Deleting transaction with ID {}", id);
 
         try {
-            validateUserRole(token, "ADMIN", "AGENT");
+            validateUserRole(caller, "ADMIN", "AGENT");
             transactionService.deleteTransaction(id);
             logger.info("Transaction with ID {} deleted successfully", id);
             return ResponseEntity.ok("Transaction deleted successfully.");
@@ -113,13 +347,33 @@ public class TransactionController {
         }
     }
 
-    private void validateUserRole(String token, String... allowedRoles) {
-        String role = transactionService.getRoleFromToken(token);
-        for (String allowedRole : allowedRoles) {
-            if (allowedRole.equals(role)) {
-                return;
-            }
+    // Once the download has started the status can no longer change; the client sees a truncated file
+    private ResponseEntity<?> exportFailed(HttpServletResponse response, HttpStatusCode status, String message) {
+        if (response.isCommitted()) {
+            return null;
+        }
+        response.reset();
+        return ResponseEntity.status(status).body(message);
+    }
+
+    // The browser's copy is still current: no body, just the tag again
+    private ResponseEntity<?> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+    }
+
+    // Copy a cached document to the response as it is, past the message converters
+    private ResponseEntity<?> writeDocument(JsonDocumentCache.Hit hit, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(hit.getLength());
+        response.setHeader(HttpHeaders.ETAG, hit.getEtag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, REVALIDATE.getHeaderValue());
+        hit.writeTo(response.getOutputStream());
+        return null;
+    }
+
+    private void validateUserRole(AuthenticatedUser caller, String... allowedRoles) {
+        if (!caller.hasRole(allowedRoles)) {
+            throw new UnauthorizedException("Unauthorized access");
         }
-        throw new UnauthorizedException("Unauthorized access");
     }
 }
@@ -1,20 +1,30 @@
 package com.yourpackage.controller;
 
+import com.yourpackage.dto.AuthenticatedUser;
+import com.yourpackage.dto.PagedResult;
+import com.yourpackage.dto.UserSummary;
 import com.yourpackage.model.User;
 import com.yourpackage.exception.UnauthorizedException;
+import com.yourpackage.service.ProfilePictureService;
 import com.yourpackage.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/users")
@@ -23,8 +33,17 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ProfilePictureService profilePictureService;
+
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
+    // Request attributes of Tomcat's sendfile support
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@RequestBody User user) {
         logger.info("Attempting to register a new user");
@@ -36,6 +55,9 @@ public class UserController {
                     "message", "User registered successfully",
                     "id", registeredUser.getId().toString()
             ));
+        } catch (ResponseStatusException e) {
+            logger.error("Error registering user: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
         } catch (RuntimeException e) {
             logger.error("Error registering user: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
@@ -58,6 +80,9 @@ public class UserController {
                     "id", user.getId().toString(),
                     "message", "Login successful"
             ));
+        } catch (ResponseStatusException e) {
+            logger.error("Error logging in user: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
         } catch (RuntimeException e) {
             logger.error("Error logging in user: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", e.getMessage()));
@@ -65,11 +90,11 @@ public class UserController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getUserProfile(@PathVariable Long id, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getUserProfile(@PathVariable Long id, AuthenticatedUser caller) {
         logger.info("Fetching user profile with ID {}", id);
 
         try {
-            validateUserRole(token, id, "ADMIN", "BUYER", "AGENT");
+            validateUserRole(caller, id, "ADMIN", "BUYER", "AGENT");
             User user = userService.getUserById(id);
             logger.info("User profile with ID {} fetched successfully", id);
             return ResponseEntity.ok(user);
@@ -91,11 +116,11 @@ public class UserController {
             @RequestParam("address") String address,
             @RequestParam(value = "profilePicture", required = false) MultipartFile profilePicture,
             @RequestParam(value = "password", required = false) String password,
-            @RequestHeader("Authorization") String token) {
+            AuthenticatedUser caller) {
         logger.info("Updating user profile with ID {}", id);
 
         try {
-            validateUserRole(token, id, "ADMIN", "BUYER", "AGENT");
+            validateUserRole(caller, id, "ADMIN", "BUYER", "AGENT");
 
             User user = userService.getUserById(id);
             user.setName(name);
@@ -108,7 +133,7 @@ public class UserController {
             }
 
             if (profilePicture != null && !profilePicture.isEmpty()) {
-                user.setProfilePicture(profilePicture.getBytes());
+                user.setProfilePictureHash(profilePictureService.store(profilePicture));
             }
 
             User updatedUser = userService.updateUser(id, user);
@@ -117,41 +142,92 @@ public class UserController {
         } catch (UnauthorizedException e) {
             logger.error("Unauthorized access to update user profile with ID {}", id);
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Unauthorized access"));
-        } catch (RuntimeException | IOException e) {
+        } catch (ResponseStatusException e) {
+            logger.error("Error updating user profile: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        } catch (RuntimeException e) {
             logger.error("Error updating user profile with ID {}: {}", id, e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Error updating profile"));
         }
     }
 
+    // Pictures are addressed by content hash and never change, so they can be cached for good.
+    // ?size=48|128|512 returns a square thumbnail; until it has been generated the original is sent
+    // with no-cache, so the browser picks up the thumbnail later.
+    // Public because <img> tags cannot send the bearer token; the hash is only known from a user profile.
+    @GetMapping("/pictures/{hash}")
+    public ResponseEntity<?> getProfilePicture(@PathVariable String hash,
+                                               @RequestParam(required = false) Integer size,
+                                               WebRequest webRequest,
+                                               HttpServletRequest request, HttpServletResponse response) {
+        try {
+            ProfilePictureService.Picture picture = profilePictureService.getPicture(hash, size);
+            String etag = "\"" + picture.getEtag() + "\"";
+            CacheControl cacheControl = picture.isFallback()
+                    ? CacheControl.noCache()
+                    : CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+            if (webRequest.checkNotModified(etag)) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+                return null;
+            }
+
+            // Let Tomcat hand the file to the socket with sendfile instead of copying it through the heap
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                response.setContentType(picture.getContentType());
+                response.setContentLengthLong(picture.getSize());
+                response.setHeader(HttpHeaders.ETAG, etag);
+                response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+                request.setAttribute(SENDFILE_FILENAME, picture.getPath().toString());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, picture.getSize());
+                return null;
+            }
+
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .contentType(MediaType.parseMediaType(picture.getContentType()))
+                    .contentLength(picture.getSize())
+                    .body(new FileSystemResource(picture.getPath()));
+        } catch (ResponseStatusException e) {
+            logger.error("Error fetching profile picture {}: {}", hash, e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        }
+    }
+
+    // Same paged listing as GET /api/admin/users
     @GetMapping("/all")
-    public ResponseEntity<?> getAllUsers(@RequestHeader("Authorization") String token) {
-        logger.info("Fetching all users");
+    public ResponseEntity<?> getAllUsers(@RequestParam(required = false) String role,
+                                         @RequestParam(required = false) String query,
+                                         @RequestParam(required = false) String sort,
+                                         @RequestParam(required = false) String direction,
+                                         @RequestParam(required = false) Integer page,
+                                         @RequestParam(required = false) Integer size,
+                                         AuthenticatedUser caller) {
+        logger.info("Fetching users");
 
         try {
-            validateUserRole(token, null, "ADMIN");
-            List<User> users = userService.getAllUsers();
-            logger.info("Fetched {} users", users.size());
+            validateUserRole(caller, null, "ADMIN");
+            PagedResult<UserSummary> users = userService.listUsers(role, query, sort, direction, page, size);
+            logger.info("Fetched {} of {} users", users.getItems().size(), users.getTotalItems());
             return ResponseEntity.ok(users);
         } catch (UnauthorizedException e) {
             logger.error("Unauthorized access to fetch all users");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Unauthorized access"));
+        } catch (ResponseStatusException e) {
+            logger.error("Error fetching users: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
         }
     }
 
-    private void validateUserRole(String token, Long id, String... allowedRoles) {
-        String role = userService.getRoleFromToken(token);
-        Long tokenUserId = userService.getUserIdFromToken(token);
-
-        if (id != null && !role.equals("ADMIN") && !id.equals(tokenUserId)) {
+    private void validateUserRole(AuthenticatedUser caller, Long id, String... allowedRoles) {
+        if (id != null && !caller.isAdmin() && !id.equals(caller.getId())) {
             throw new UnauthorizedException("Unauthorized access to another user's profile");
         }
 
-        for (String allowedRole : allowedRoles) {
-            if (allowedRole.equals(role)) {
-                return;
-            }
+        if (!caller.hasRole(allowedRoles)) {
+            throw new UnauthorizedException("Unauthorized access");
         }
-
-        throw new UnauthorizedException("Unauthorized access");
     }
 }
@@ -0,0 +1,45 @@
+package com.yourpackage.dto;
+
+// The caller of the current request, resolved once from the bearer token by AuthenticationFilter.
+// Controllers take it as a method parameter instead of reading the Authorization header.
+public class AuthenticatedUser {
+
+    public static final String REQUEST_ATTRIBUTE = AuthenticatedUser.class.getName();
+
+    private final Long id;
+    private final String email;
+    private final String role;
+
+    public AuthenticatedUser(Long id, String email, String role) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+    }
+
+    public boolean hasRole(String... roles) {
+        for (String allowed : roles) {
+            if (allowed.equals(role)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isAdmin() {
+        return "ADMIN".equals(role);
+    }
+
+    // Getters
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getRole() {
+        return role;
+    }
+}
@@ -0,0 +1,64 @@
+package com.yourpackage.dto;
+
+import com.yourpackage.model.Conversation;
+
+import java.util.Date;
+
+// A conversation as seen by one of its participants
+public class ConversationThread {
+
+    private final Long id;
+    private final String otherParticipant;
+    private final String lastSender;
+    private final String lastSubject;
+    private final String lastPreview;
+    private final Date lastTimestamp;
+    private final long messageCount;
+    private final int unread;
+
+    public ConversationThread(Conversation conversation, String participant) {
+        boolean isA = conversation.getParticipantA().equals(participant);
+        this.id = conversation.getId();
+        this.otherParticipant = isA ? conversation.getParticipantB() : conversation.getParticipantA();
+        this.lastSender = conversation.getLastSender();
+        this.lastSubject = conversation.getLastSubject();
+        this.lastPreview = conversation.getLastPreview();
+        this.lastTimestamp = conversation.getLastTimestamp();
+        this.messageCount = conversation.getMessageCount();
+        this.unread = isA ? conversation.getUnreadA() : conversation.getUnreadB();
+    }
+
+    // Getters
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getOtherParticipant() {
+        return otherParticipant;
+    }
+
+    public String getLastSender() {
+        return lastSender;
+    }
+
+    public String getLastSubject() {
+        return lastSubject;
+    }
+
+    public String getLastPreview() {
+        return lastPreview;
+    }
+
+    public Date getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    public int getUnread() {
+        return unread;
+    }
+}
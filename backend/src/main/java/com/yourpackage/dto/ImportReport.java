@@ -0,0 +1,67 @@
+package com.yourpackage.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of a spreadsheet upload: how many rows were imported and why the others were not
+public class ImportReport {
+
+    public static final int MAX_ERRORS = 1000;
+
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsRejected;
+    private final List<RowError> errors = new ArrayList<>();
+
+    public static class RowError {
+        private final int row;
+        private final String message;
+
+        public RowError(int row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    public void rowRead() {
+        rowsRead++;
+    }
+
+    public void rowsImported(int count) {
+        rowsImported += count;
+    }
+
+    // Only the first MAX_ERRORS are listed; rowsRejected counts them all
+    public void reject(int row, String message) {
+        rowsRejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new RowError(row, message));
+        }
+    }
+
+    // Getters
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getRowsImported() {
+        return rowsImported;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,56 @@
+package com.yourpackage.dto;
+
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+// One page of an offset-paginated result with the total from a separate count query. Page numbers start at 0.
+public class PagedResult<T> {
+
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 500;
+
+    private final List<T> items;
+    private final int page;
+    private final int size;
+    private final long totalItems;
+    private final int totalPages;
+
+    public PagedResult(Page<T> page) {
+        this.items = page.getContent();
+        this.page = page.getNumber();
+        this.size = page.getSize();
+        this.totalItems = page.getTotalElements();
+        this.totalPages = page.getTotalPages();
+    }
+
+    // Apply the default page size and cap what a client may ask for
+    public static int clampSize(Integer size) {
+        if (size == null || size <= 0) {
+            return DEFAULT_SIZE;
+        }
+        return Math.min(size, MAX_SIZE);
+    }
+
+    // Getters
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getTotalItems() {
+        return totalItems;
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+}
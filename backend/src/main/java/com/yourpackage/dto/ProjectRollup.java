@@ -0,0 +1,68 @@
+package com.yourpackage.dto;
+
+import java.util.Date;
+
+// Market statistics for the transactions of one project (optionally narrowed to a property type and/or year)
+public class ProjectRollup {
+
+    private final String projectName;
+    private final String propertyType;
+    private final Integer year;
+    private final long count;
+    private final Double minPrice;
+    private final Double maxPrice;
+    private final Double averagePrice;
+    private final Double averagePricePerSqft;
+    private final Date latestValuationDate;
+
+    public ProjectRollup(String projectName, String propertyType, Integer year, long count, Double minPrice,
+                         Double maxPrice, Double averagePrice, Double averagePricePerSqft, Date latestValuationDate) {
+        this.projectName = projectName;
+        this.propertyType = propertyType;
+        this.year = year;
+        this.count = count;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.averagePrice = averagePrice;
+        this.averagePricePerSqft = averagePricePerSqft;
+        this.latestValuationDate = latestValuationDate;
+    }
+
+    // Getters
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public String getPropertyType() {
+        return propertyType;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public Double getAveragePrice() {
+        return averagePrice;
+    }
+
+    public Double getAveragePricePerSqft() {
+        return averagePricePerSqft;
+    }
+
+    public Date getLatestValuationDate() {
+        return latestValuationDate;
+    }
+}
@@ -0,0 +1,51 @@
+package com.yourpackage.dto;
+
+import java.time.LocalDateTime;
+
+// The user columns shown in admin listings, selected directly by UserRepository.findSummaries
+// so no entity, collection or picture is loaded
+public class UserSummary {
+
+    private final Long id;
+    private final String name;
+    private final String email;
+    private final String role;
+    private final LocalDateTime dateOfRegistration;
+    private final LocalDateTime lastLogin;
+
+    public UserSummary(Long id, String name, String email, String role, LocalDateTime dateOfRegistration,
+                       LocalDateTime lastLogin) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.role = role;
+        this.dateOfRegistration = dateOfRegistration;
+        this.lastLogin = lastLogin;
+    }
+
+    // Getters
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public LocalDateTime getDateOfRegistration() {
+        return dateOfRegistration;
+    }
+
+    public LocalDateTime getLastLogin() {
+        return lastLogin;
+    }
+}
@@ -0,0 +1,42 @@
+package com.yourpackage.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// One row per one-off data migration that has run to the end, so a startup task knows not to run again
+@Entity
+@Table(name = "completed_tasks")
+public class CompletedTask {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    private LocalDateTime completedAt;
+
+    public CompletedTask() {
+    }
+
+    public CompletedTask(String name, LocalDateTime completedAt) {
+        this.name = name;
+        this.completedAt = completedAt;
+    }
+
+    // Getters and setters
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,135 @@
+package com.yourpackage.model;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+// One row per pair of users who have exchanged messages, kept up to date as messages are sent,
+// so the thread list never has to read the messages table. participantA is the lower-cased email
+// that sorts first, participantB the other one.
+@Entity
+@Table(name = "conversations", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_conversations_pair", columnNames = {"participant_a", "participant_b"})
+}, indexes = {
+    @Index(name = "idx_conversations_a", columnList = "participant_a, last_timestamp, id"),
+    @Index(name = "idx_conversations_b", columnList = "participant_b, last_timestamp, id")
+})
+public class Conversation {
+
+    public static final int PREVIEW_LENGTH = 100;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String participantA;
+
+    @Column(nullable = false)
+    private String participantB;
+
+    // Latest message of the thread
+    private Long lastMessageId;
+    private String lastSender;
+    private String lastSubject;
+
+    @Column(length = PREVIEW_LENGTH)
+    private String lastPreview;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastTimestamp;
+
+    private long messageCount;
+
+    // Unread messages addressed to participantA and participantB respectively
+    private int unreadA;
+    private int unreadB;
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getParticipantA() {
+        return participantA;
+    }
+
+    public void setParticipantA(String participantA) {
+        this.participantA = participantA;
+    }
+
+    public String getParticipantB() {
+        return participantB;
+    }
+
+    public void setParticipantB(String participantB) {
+        this.participantB = participantB;
+    }
+
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(Long lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    public String getLastSender() {
+        return lastSender;
+    }
+
+    public void setLastSender(String lastSender) {
+        this.lastSender = lastSender;
+    }
+
+    public String getLastSubject() {
+        return lastSubject;
+    }
+
+    public void setLastSubject(String lastSubject) {
+        this.lastSubject = lastSubject;
+    }
+
+    public String getLastPreview() {
+        return lastPreview;
+    }
+
+    public void setLastPreview(String lastPreview) {
+        this.lastPreview = lastPreview;
+    }
+
+    public Date getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public void setLastTimestamp(Date lastTimestamp) {
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(long messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    public int getUnreadA() {
+        return unreadA;
+    }
+
+    public void setUnreadA(int unreadA) {
+        this.unreadA = unreadA;
+    }
+
+    public int getUnreadB() {
+        return unreadB;
+    }
+
+    public void setUnreadB(int unreadB) {
+        this.unreadB = unreadB;
+    }
+}
@@ -1,10 +1,14 @@
 package com.yourpackage.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import java.util.Date;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+    @Index(name = "idx_messages_inbox", columnList = "recipient, timestamp, id"),
+    @Index(name = "idx_messages_pair", columnList = "sender, recipient, timestamp")
+})
 public class Message {
 
     @Id
@@ -19,6 +23,12 @@ public class Message {
     @Temporal(TemporalType.TIMESTAMP)
     private Date timestamp;
 
+    // Set once the recipient opens the message. Rows that existed before the column was added
+    // default to read, which keeps them consistent with the unread counters starting at zero.
+    @Column(name = "is_read", nullable = false, columnDefinition = "bit default 1")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private boolean read;
+
     // Automatically set the timestamp before saving the message
     @PrePersist
     protected void onCreate() {
@@ -73,4 +83,12 @@ public class Message {
     public void setTimestamp(Date timestamp) {
         this.timestamp = timestamp;
     }
+
+    public boolean isRead() {
+        return read;
+    }
+
+    public void setRead(boolean read) {
+        this.read = read;
+    }
 }
@@ -2,6 +2,7 @@ package com.yourpackage.model;
 
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Date;
 import java.util.List;
 
@@ -43,13 +44,21 @@ public class Property {
     @Column(name = "date_of_valuation")
     private Date dateOfValuation;
 
+    // Bumped by Hibernate on every update; with the id and the agent's version it makes up the ETag
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
     // Cascade delete on favorites related to this property
     @OneToMany(mappedBy = "property", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Favorite> favorites;
 
     // Adjusted cascade settings to prevent user deletion
+    // Leaves out what a login writes without bumping the agent's version, so the ETag stays accurate
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "agent_id", referencedColumnName = "id")
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "lastLogin", "password"})
     private User agent;
 
     // Getters and setters
@@ -142,6 +151,14 @@ public class Property {
         this.dateOfValuation = dateOfValuation;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public User getAgent() {
         return agent;
     }
@@ -7,9 +7,14 @@ import jakarta.persistence.Id;
 import jakarta.persistence.Column;
 import java.util.Date;
 import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+    @Index(name = "idx_transactions_valuation", columnList = "date_of_valuation, id"),
+    @Index(name = "idx_transactions_project", columnList = "project_name, date_of_valuation"),
+    @Index(name = "idx_transactions_price", columnList = "price")
+})
 public class Transaction {
 
     @Id
@@ -48,6 +53,12 @@ public class Transaction {
     @Column(name = "date_of_valuation")
     private Date dateOfValuation; // Use LocalDate for valuation date
 
+    // Bumped by Hibernate on every update; together with the id it is the transaction's ETag
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
     // Getters and setters for all fields
 
     public Long getId() {
@@ -145,4 +156,12 @@ public class Transaction {
     public void setDateOfValuation(Date dateOfValuation) {
         this.dateOfValuation = dateOfValuation;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -1,13 +1,20 @@
 package com.yourpackage.model;
 
 import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.time.LocalDateTime;
 import java.util.List;
 
 
 @Entity
-@Table(name = "users") // Avoids conflict with MSSQL reserved keyword
+@Table(name = "users", indexes = { // "users" avoids conflict with MSSQL reserved keyword
+    @Index(name = "idx_users_email", columnList = "email"),
+    @Index(name = "idx_users_name", columnList = "name"),
+    @Index(name = "idx_users_registration", columnList = "date_of_registration, id"),
+    @Index(name = "idx_users_last_login", columnList = "last_login, id")
+})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class User {
 
@@ -22,10 +29,28 @@ public class User {
     private String phoneNumber;
     private String address;
     private LocalDateTime dateOfRegistration;
+
+    // Written only by UserRepository.recordLogin, so a login never conflicts with a profile update
+    @Column(name = "last_login", updatable = false)
     private LocalDateTime lastLogin;
 
-    @Lob
-    private byte[] profilePicture;
+    // SHA-256 of the picture in the blob store; the image itself is served by GET /api/users/pictures/{hash}
+    @Column(name = "profile_picture_hash", length = 64)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String profilePictureHash;
+
+    // Number of unread messages addressed to this user's email. Only changed by the counter updates
+    // in UserRepository, never by saving the entity, so a profile update cannot overwrite it.
+    @Column(name = "unread_messages", nullable = false, updatable = false, columnDefinition = "int default 0")
+    @JsonIgnore
+    private int unreadMessages;
+
+    // Bumped on every update of the row. A property's JSON embeds its agent, so the property ETag includes it.
+    // Logins write last_login and a rehashed password without bumping it.
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
 
     // Cascade delete on properties related to this user
     @OneToMany(mappedBy = "agent", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -109,11 +134,28 @@ public class User {
         this.lastLogin = lastLogin;
     }
 
-    public byte[] getProfilePicture() {
-        return profilePicture;
+    public String getProfilePictureHash() {
+        return profilePictureHash;
+    }
+
+    public void setProfilePictureHash(String profilePictureHash) {
+        this.profilePictureHash = profilePictureHash;
+    }
+
+    public int getUnreadMessages() {
+        return unreadMessages;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
     }
 
-    public void setProfilePicture(byte[] profilePicture) {
-        this.profilePicture = profilePicture;
+    // Picture URL relative to the API base, for the frontend
+    public String getProfilePicturePath() {
+        return profilePictureHash == null ? null : "api/users/pictures/" + profilePictureHash;
     }
 }
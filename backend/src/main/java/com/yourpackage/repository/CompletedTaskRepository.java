@@ -0,0 +1,7 @@
+package com.yourpackage.repository;
+
+import com.yourpackage.model.CompletedTask;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CompletedTaskRepository extends JpaRepository<CompletedTask, String> {
+}
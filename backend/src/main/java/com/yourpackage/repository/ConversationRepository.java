@@ -0,0 +1,38 @@
+package com.yourpackage.repository;
+
+import com.yourpackage.model.Conversation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+
+    // A user's threads, most recent first; each side of the OR is a seek on its own index
+    @Query("SELECT c FROM Conversation c WHERE c.participantA = :email OR c.participantB = :email " +
+            "ORDER BY c.lastTimestamp DESC, c.id DESC")
+    List<Conversation> findThreads(@Param("email") String email, Pageable pageable);
+
+    @Query("SELECT c FROM Conversation c WHERE (c.participantA = :email OR c.participantB = :email) " +
+            "AND (c.lastTimestamp < :timestamp OR (c.lastTimestamp = :timestamp AND c.id < :id)) " +
+            "ORDER BY c.lastTimestamp DESC, c.id DESC")
+    List<Conversation> findThreadsAfter(@Param("email") String email, @Param("timestamp") Date timestamp,
+                                        @Param("id") Long id, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Conversation c SET c.unreadA = c.unreadA - 1 " +
+            "WHERE c.participantA = :a AND c.participantB = :b AND c.unreadA > 0")
+    int decrementUnreadA(@Param("a") String a, @Param("b") String b);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Conversation c SET c.unreadB = c.unreadB - 1 " +
+            "WHERE c.participantA = :a AND c.participantB = :b AND c.unreadB > 0")
+    int decrementUnreadB(@Param("a") String a, @Param("b") String b);
+}
@@ -1,7 +1,13 @@
 package com.yourpackage.repository;
 
 import com.yourpackage.model.Favorite;
+import com.yourpackage.model.Property;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.List;
 
 public interface FavoriteRepository extends JpaRepository<Favorite, Long> {
@@ -12,4 +18,14 @@ public interface FavoriteRepository extends JpaRepository<Favorite, Long> {
 
     void deleteByUserIdAndPropertyId(Long userId, Long propertyId);
     Favorite findByUserIdAndPropertyId(Long userId, Long propertyId);
+
+    // A user's favourite properties with their agents in one joined query, most recently added first
+    @Query(value = "SELECT p FROM Favorite f JOIN f.property p LEFT JOIN FETCH p.agent " +
+            "WHERE f.user.id = :userId ORDER BY f.id DESC",
+            countQuery = "SELECT COUNT(f) FROM Favorite f WHERE f.user.id = :userId")
+    Page<Property> findPropertiesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // Just the property ids, read from the favorites table alone
+    @Query("SELECT f.property.id FROM Favorite f WHERE f.user.id = :userId")
+    List<Long> findPropertyIdsByUserId(@Param("userId") Long userId);
 }
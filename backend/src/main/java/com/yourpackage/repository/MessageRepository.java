@@ -1,19 +1,41 @@
 package com.yourpackage.repository;
 
 import com.yourpackage.model.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
 import java.util.List;
 
 public interface MessageRepository extends JpaRepository<Message, Long> {
 
-    // Custom query to find messages by recipient only
-    @Query("SELECT m FROM Message m WHERE m.recipient = :email")
-    List<Message> findMessagesByRecipient(@Param("email") String email);
+    // Keyset batches over all messages, for building the search index
+    List<Message> findFirst1000ByIdGreaterThanOrderByIdAsc(Long id);
 
-     // Query to find all messages between two users (sender and recipient)
+    // First page of the inbox, newest first; served by idx_messages_inbox (recipient, timestamp, id)
+    @Query("SELECT m FROM Message m WHERE m.recipient = :email ORDER BY m.timestamp DESC, m.id DESC")
+    List<Message> findInbox(@Param("email") String email, Pageable pageable);
+
+    // Following pages start strictly after the (timestamp, id) of the last message returned
+    @Query("SELECT m FROM Message m WHERE m.recipient = :email " +
+            "AND (m.timestamp < :timestamp OR (m.timestamp = :timestamp AND m.id < :id)) " +
+            "ORDER BY m.timestamp DESC, m.id DESC")
+    List<Message> findInboxAfter(@Param("email") String email, @Param("timestamp") Date timestamp,
+                                 @Param("id") Long id, Pageable pageable);
+
+    // Returns 1 only for the call that actually flips the message to read, so the unread counter
+    // is decremented once even when the same message is opened twice at the same time
+    @Modifying
+    @Transactional
+    @Query("UPDATE Message m SET m.read = true WHERE m.id = :id AND m.recipient = :email AND m.read = false")
+    int markRead(@Param("id") Long id, @Param("email") String email);
+
+     // Query to find all messages between two users (sender and recipient); each side of the OR
+     // is a seek on idx_messages_pair (sender, recipient, timestamp)
      @Query("SELECT m FROM Message m WHERE (m.sender = :user1 AND m.recipient = :user2) OR (m.sender = :user2 AND m.recipient = :user1) ORDER BY m.timestamp ASC")
      List<Message> findConversationBetweenUsers(@Param("user1") String user1, @Param("user2") String user2);
 }
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface PropertyRepository extends JpaRepository<Property, Long> {
@@ -36,4 +37,25 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
 
     @Query("SELECT p FROM Property p WHERE p.agent = :agent")
     List<Property> findByAgent(@Param("agent") User agent);
+
+    // Id, version and agent version of each property, enough to compute ETags without loading the rows
+    @Query("SELECT p.id, p.version, a.version FROM Property p LEFT JOIN p.agent a WHERE p.id IN :ids")
+    List<Object[]> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Ids of an agent's properties, by foreign key; the rows themselves come from the EntityCache
+    @Query("SELECT p.id FROM Property p WHERE p.agent.id = :agentId ORDER BY p.id")
+    List<Long> findIdsByAgentId(@Param("agentId") Long agentId);
+
+    // Distinct values with their row counts, used to seed the autocomplete indexes
+    @Query("SELECT p.projectName, COUNT(p) FROM Property p WHERE p.projectName IS NOT NULL GROUP BY p.projectName")
+    List<Object[]> countByProjectName();
+
+    @Query("SELECT p.propertyType, COUNT(p) FROM Property p WHERE p.propertyType IS NOT NULL GROUP BY p.propertyType")
+    List<Object[]> countByPropertyType();
+
+    @Query("SELECT p.facilities, COUNT(p) FROM Property p WHERE p.facilities IS NOT NULL GROUP BY p.facilities")
+    List<Object[]> countByFacilities();
+
+    // Walk the table in id order, used to (re)build the in-memory search index
+    List<Property> findFirst1000ByIdGreaterThanOrderByIdAsc(Long id);
 }
@@ -3,20 +3,47 @@ package com.yourpackage.repository;
 import com.yourpackage.model.Transaction;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, JpaSpecificationExecutor<Transaction> {
 
     // Find transactions by propertyId
     List<Transaction> findByPropertyId(Long propertyId);
 
+    // The version column alone, enough to compute the transaction's ETag without loading the row
+    @Query("SELECT t.version FROM Transaction t WHERE t.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
     @Query("SELECT DISTINCT t.projectName FROM Transaction t WHERE LOWER(t.projectName) LIKE LOWER(CONCAT('%', :query, '%'))")
     List<String> findProjectNamesContaining(@Param("query") String query);    
 
+    // Distinct project names with their row counts, used to seed the autocomplete index
+    @Query("SELECT t.projectName, COUNT(t) FROM Transaction t WHERE t.projectName IS NOT NULL GROUP BY t.projectName")
+    List<Object[]> countByProjectName();
+
+    @Query("SELECT t.facilities, COUNT(t) FROM Transaction t WHERE t.facilities IS NOT NULL GROUP BY t.facilities")
+    List<Object[]> countByFacilities();
+
+    // Aggregates per (project, type, year), used to rebuild the market rollups
+    @Query("SELECT t.projectName, t.propertyType, t.year, COUNT(t), MIN(t.price), MAX(t.price), SUM(t.price), " +
+            "SUM(t.pricePerSqft), MAX(t.dateOfValuation) FROM Transaction t WHERE t.projectName IS NOT NULL " +
+            "GROUP BY t.projectName, t.propertyType, t.year")
+    List<Object[]> aggregateByProjectTypeAndYear();
+
+    // Aggregates for a single rollup, used when a delete made its min/max/latest stale
+    @Query("SELECT COUNT(t), MIN(t.price), MAX(t.price), SUM(t.price), SUM(t.pricePerSqft), MAX(t.dateOfValuation) " +
+            "FROM Transaction t WHERE t.projectName = :projectName " +
+            "AND (:propertyType IS NULL OR t.propertyType = :propertyType) AND (:year IS NULL OR t.year = :year)")
+    List<Object[]> aggregateForProject(@Param("projectName") String projectName,
+                                       @Param("propertyType") String propertyType,
+                                       @Param("year") Integer year);
+
     // Find top 5 transactions by projectName, sorted by dateOfValuation, with pagination
-    @Query("SELECT t FROM Transaction t WHERE t.projectName = :projectName ORDER BY t.dateOfValuation DESC")
+    @Query("SELECT t FROM Transaction t WHERE t.projectName = :projectName ORDER BY t.dateOfValuation DESC, t.id DESC")
     List<Transaction> findTop5ByProjectNameOrderByDateOfValuationDesc(@Param("projectName") String projectName, Pageable pageable);
 }
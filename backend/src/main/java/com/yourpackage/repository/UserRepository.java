@@ -1,10 +1,51 @@
 package com.yourpackage.repository;
 
+import com.yourpackage.dto.UserSummary;
 import com.yourpackage.model.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    // Admin listing: optional exact role and optional LIKE prefix ("abc%") on email or name.
+    // The count runs as its own query, and only when the page does not already tell the total.
+    @Query(value = "SELECT new com.yourpackage.dto.UserSummary(u.id, u.name, u.email, u.role, u.dateOfRegistration, u.lastLogin) " +
+            "FROM User u WHERE (:role IS NULL OR u.role = :role) " +
+            "AND (:prefix IS NULL OR u.email LIKE :prefix ESCAPE '\\' OR u.name LIKE :prefix ESCAPE '\\')",
+            countQuery = "SELECT COUNT(u) FROM User u WHERE (:role IS NULL OR u.role = :role) " +
+            "AND (:prefix IS NULL OR u.email LIKE :prefix ESCAPE '\\' OR u.name LIKE :prefix ESCAPE '\\')")
+    Page<UserSummary> findSummaries(@Param("role") String role, @Param("prefix") String prefix, Pageable pageable);
+
+    // Unread message counter, read without loading the entity
+    @Query("SELECT u.unreadMessages FROM User u WHERE u.email = :email")
+    Optional<Integer> findUnreadMessages(@Param("email") String email);
+
+    // The counter column is not updatable through the entity, so it is changed in SQL only
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE users SET unread_messages = unread_messages + 1 WHERE email = :email", nativeQuery = true)
+    int incrementUnreadMessages(@Param("email") String email);
+
+    // Login bookkeeping. A bulk update skips the optimistic version check, so concurrent logins to one
+    // account, or a login racing a profile update, do not fail each other.
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.lastLogin = :lastLogin, u.password = :password WHERE u.id = :id")
+    int recordLogin(@Param("id") Long id, @Param("lastLogin") LocalDateTime lastLogin,
+                    @Param("password") String password);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE users SET unread_messages = unread_messages - 1 WHERE email = :email AND unread_messages > 0",
+            nativeQuery = true)
+    int decrementUnreadMessages(@Param("email") String email);
 }
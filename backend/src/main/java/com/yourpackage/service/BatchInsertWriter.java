@@ -0,0 +1,217 @@
+package com.yourpackage.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Plain JDBC batch inserts into the property and transactions tables, shared by the dump and spreadsheet imports.
+// Row values are String, BigDecimal, Integer, Long, Timestamp or null.
+@Component
+public class BatchInsertWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchInsertWriter.class);
+
+    // Tables and columns an import may write to; anything else is rejected
+    private static final Map<String, Set<String>> TABLE_COLUMNS = Map.of(
+            "property", Set.of("address", "facilities", "no_of_floors", "price", "price_per_sqft", "project_name",
+                    "property_type", "size_sq_ft", "year", "date_of_valuation", "agent_id"),
+            "transactions", Set.of("address", "facilities", "no_of_floors", "price", "price_per_sqft", "project_name",
+                    "property_type", "size_sq_ft", "year", "date_of_valuation"));
+
+    private static final Set<String> DATE_COLUMNS = Set.of("date_of_valuation");
+
+    // SQL Server accepts at most 2100 parameters per statement and 1000 rows per VALUES list
+    private static final int MAX_PARAMETERS = 2000;
+    private static final int MAX_VALUES_ROWS = 1000;
+
+    @Autowired
+    private DataSource dataSource;
+
+    // Empty string when the table or one of the columns is not importable
+    public static String insertSql(String table, List<String> columns) {
+        Set<String> allowed = TABLE_COLUMNS.get(table);
+        if (allowed == null || columns.isEmpty() || !allowed.containsAll(columns)) {
+            return "";
+        }
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        sql.append(String.join(", ", columns)).append(") VALUES (");
+        for (int i = 0; i < columns.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(")").toString();
+    }
+
+    // Multi-row insert returning the generated ids (SQL Server OUTPUT clause); empty string as for insertSql
+    public static String insertReturningIdsSql(String table, List<String> columns, int rowCount) {
+        String single = insertSql(table, columns);
+        if (single.isEmpty()) {
+            return "";
+        }
+        int values = single.indexOf(" VALUES ");
+        String tuple = single.substring(values + " VALUES ".length());
+        StringBuilder sql = new StringBuilder(single.substring(0, values)).append(" OUTPUT INSERTED.id VALUES ");
+        for (int i = 0; i < rowCount; i++) {
+            sql.append(i == 0 ? tuple : ", " + tuple);
+        }
+        return sql.toString();
+    }
+
+    // "2018-04-06" or "2018-04-06 00:00:00[.fff]"; IllegalArgumentException otherwise
+    public static Timestamp timestamp(String value) {
+        String text = value.trim().replace('T', ' ');
+        return Timestamp.valueOf(text.length() == 10 ? text + " 00:00:00" : text);
+    }
+
+    // Turn date literals into Timestamps up front, so one bad value rejects its row and not the whole batch
+    public static void convertDates(List<String> columns, Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null && !(values[i] instanceof Timestamp) && DATE_COLUMNS.contains(columns.get(i))) {
+                values[i] = timestamp(values[i].toString());
+            }
+        }
+    }
+
+    // Insert all rows in one transaction
+    public void write(String sql, List<String> columns, List<Object[]> rows) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (Object[] values : rows) {
+                    bind(statement, columns, values, 1);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // Insert the rows as one batch; if the batch fails, insert them one at a time so only the bad rows are lost.
+    // Returns the index of each failed row with its error.
+    public Map<Integer, String> writeIsolatingFailures(String sql, List<String> columns, List<Object[]> rows) {
+        Map<Integer, String> failures = new LinkedHashMap<>();
+        try {
+            write(sql, columns, rows);
+            return failures;
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Batch of {} rows failed, retrying row by row: {}", rows.size(), e.getMessage());
+        }
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(true);
+            for (int i = 0; i < rows.size(); i++) {
+                try {
+                    bind(statement, columns, rows.get(i), 1);
+                    statement.executeUpdate();
+                } catch (SQLException | RuntimeException e) {
+                    failures.put(i, e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            for (int i = 0; i < rows.size(); i++) {
+                failures.putIfAbsent(i, e.getMessage());
+            }
+        }
+        return failures;
+    }
+
+    // Like writeIsolatingFailures, but also adds the generated id of every inserted row to `insertedIds`
+    // (in no particular order), so the caller can apply exactly those rows to its in-memory views.
+    // Rows go in as multi-row INSERT ... OUTPUT statements instead of a JDBC batch, which cannot return ids.
+    public Map<Integer, String> writeIsolatingFailures(String table, List<String> columns, List<Object[]> rows,
+                                                       List<Long> insertedIds) {
+        Map<Integer, String> failures = new LinkedHashMap<>();
+        int perStatement = Math.max(1, Math.min(MAX_VALUES_ROWS, MAX_PARAMETERS / columns.size()));
+        List<Long> ids = new ArrayList<>(rows.size());
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                for (int start = 0; start < rows.size(); start += perStatement) {
+                    List<Object[]> chunk = rows.subList(start, Math.min(rows.size(), start + perStatement));
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            insertReturningIdsSql(table, columns, chunk.size()))) {
+                        int parameter = 1;
+                        for (Object[] values : chunk) {
+                            parameter = bind(statement, columns, values, parameter);
+                        }
+                        readIds(statement, ids);
+                    }
+                }
+                connection.commit();
+                insertedIds.addAll(ids);
+                return failures;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                logger.warn("Batch of {} rows failed, retrying row by row: {}", rows.size(), e.getMessage());
+            }
+        } catch (SQLException e) {
+            logger.warn("Batch of {} rows failed, retrying row by row: {}", rows.size(), e.getMessage());
+        }
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(insertReturningIdsSql(table, columns, 1))) {
+            connection.setAutoCommit(true);
+            for (int i = 0; i < rows.size(); i++) {
+                try {
+                    bind(statement, columns, rows.get(i), 1);
+                    readIds(statement, insertedIds);
+                } catch (SQLException | RuntimeException e) {
+                    failures.put(i, e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            for (int i = 0; i < rows.size(); i++) {
+                failures.putIfAbsent(i, e.getMessage());
+            }
+        }
+        return failures;
+    }
+
+    private static void readIds(PreparedStatement statement, List<Long> ids) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                ids.add(resultSet.getLong(1));
+            }
+        }
+    }
+
+    // Binds the values from parameter `first` on; returns the next free parameter
+    private static int bind(PreparedStatement statement, List<String> columns, Object[] values, int first)
+            throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            int parameter = first + i;
+            if (value == null) {
+                statement.setNull(parameter, DATE_COLUMNS.contains(columns.get(i)) ? Types.TIMESTAMP : Types.VARCHAR);
+            } else if (value instanceof Timestamp) {
+                statement.setTimestamp(parameter, (Timestamp) value);
+            } else if (value instanceof BigDecimal) {
+                statement.setBigDecimal(parameter, (BigDecimal) value);
+            } else if (value instanceof Integer || value instanceof Long) {
+                statement.setLong(parameter, ((Number) value).longValue());
+            } else {
+                statement.setString(parameter, value.toString());
+            }
+        }
+        return first + values.length;
+    }
+}
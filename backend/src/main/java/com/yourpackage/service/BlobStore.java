@@ -0,0 +1,142 @@
+package com.yourpackage.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Content-addressed file store: a blob is saved under the hex SHA-256 of its bytes, in a directory named
+// after the first two hex digits (blobs/3f/3fa9...). Identical uploads share one file, and a stored blob
+// never changes, so its hash doubles as a strong ETag.
+@Component
+public class BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobStore.class);
+
+    @Value("${blobs.directory:data/blobs}")
+    private String directory;
+
+    private Path root;
+    private Path incoming;
+
+    @PostConstruct
+    void init() throws IOException {
+        root = Paths.get(directory).toAbsolutePath().normalize();
+        incoming = root.resolve("incoming");
+        Files.createDirectories(incoming);
+        logger.info("Blob store at {}", root);
+    }
+
+    // Stream the content to disk while hashing it and return the hash. The bytes are never held in memory.
+    public String put(InputStream content) throws IOException {
+        Path temp = Files.createTempFile(incoming, "blob-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(content, digest)) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+
+            Path target = path(hash);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Someone stored the same content in the meantime
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Writes the bytes of a derived file, e.g. a thumbnail
+    public interface VariantWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    // Save a file derived from a stored blob next to it (blobs/3f/3fa9...-128). A variant of an immutable
+    // blob is immutable too, so it is written once to a temp file and moved into place.
+    public void putVariant(String hash, String variant, VariantWriter writer) throws IOException {
+        Path target = variantPath(hash, variant);
+        Path temp = Files.createTempFile(incoming, "variant-", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                writer.write(out);
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public boolean variantExists(String hash, String variant) {
+        return isHash(hash) && Files.isRegularFile(variantPath(hash, variant));
+    }
+
+    public Path variantPath(String hash, String variant) {
+        Path blob = path(hash);
+        if (variant == null || !variant.matches("[a-z0-9]+")) {
+            throw new IllegalArgumentException("Invalid variant name: " + variant);
+        }
+        return blob.resolveSibling(hash + "-" + variant);
+    }
+
+    public boolean exists(String hash) {
+        return isHash(hash) && Files.isRegularFile(path(hash));
+    }
+
+    // Location of a blob, whether or not it exists. Throws IllegalArgumentException for anything but a hash,
+    // so a request path can never point outside the store.
+    public Path path(String hash) {
+        if (!isHash(hash)) {
+            throw new IllegalArgumentException("Not a blob hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    public static boolean isHash(String value) {
+        if (value == null || value.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
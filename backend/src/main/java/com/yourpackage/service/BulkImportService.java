@@ -0,0 +1,263 @@
+package com.yourpackage.service;
+
+import com.yourpackage.util.InsertStatementReader;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Loads "INSERT INTO ... VALUES ..." dumps (property.txt, transaction.txt) into the database.
+// The file is streamed one statement at a time; rows are grouped into JDBC batches and handed to a
+// small pool of writer threads, each committing its own batches. When the writers fall behind the
+// reader runs a batch itself, so memory stays bounded by writers * 2 batches.
+@Service
+public class BulkImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportService.class);
+
+    private static final long PROGRESS_INTERVAL_MS = 5000;
+    private static final int MAX_JOBS_KEPT = 50;
+
+    @Autowired
+    private BatchInsertWriter batchInsertWriter;
+
+    @Autowired
+    private PropertySearchIndex propertySearchIndex;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private MarketRollupService marketRollupService;
+
+    @Autowired
+    private RecentTransactionsCache recentTransactionsCache;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private JsonDocumentCache jsonDocumentCache;
+
+    @Value("${import.batch-size:1000}")
+    private int defaultBatchSize;
+
+    @Value("${import.writer-threads:4}")
+    private int defaultWriters;
+
+    // One import at a time; further requests queue behind it
+    private final ExecutorService jobRunner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bulk-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, ImportJob> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ImportJob> eldest) {
+            return size() > MAX_JOBS_KEPT;
+        }
+    };
+
+    // A batch of rows that share one INSERT statement
+    private static class Batch {
+        final String sql;
+        final List<String> columns;
+        final List<Object[]> rows;
+
+        Batch(String sql, List<String> columns, int capacity) {
+            this.sql = sql;
+            this.columns = columns;
+            this.rows = new ArrayList<>(capacity);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        jobRunner.shutdownNow();
+    }
+
+    // Queue an import and return straight away; progress is available from getJob
+    public ImportJob submit(Path file, String source, Integer batchSize, Integer writers, boolean deleteWhenDone) {
+        ImportJob job = newJob(source, batchSize, writers);
+        jobRunner.execute(() -> {
+            try {
+                run(job, file, true);
+            } finally {
+                if (deleteWhenDone) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        logger.warn("Could not delete import file {}: {}", file, e.getMessage());
+                    }
+                }
+            }
+        });
+        return job;
+    }
+
+    // Import on the calling thread (command line). The in-memory views of a running server are not
+    // touched; refresh them afterwards with POST /api/admin/import/refresh.
+    public ImportJob importFile(Path file, Integer batchSize, Integer writers) {
+        ImportJob job = newJob(file.toString(), batchSize, writers);
+        run(job, file, false);
+        return job;
+    }
+
+    public ImportJob getJob(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    public List<ImportJob> getJobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    // Reload everything kept in memory from the database after rows were written behind its back
+    public void refreshInMemoryViews() {
+        logger.info("Refreshing in-memory views after import");
+        propertySearchIndex.rebuild();
+        suggestionService.rebuild();
+        marketRollupService.rebuild();
+        recentTransactionsCache.clear();
+        entityCache.clear();
+        jsonDocumentCache.clear();
+    }
+
+    private ImportJob newJob(String source, Integer batchSize, Integer writers) {
+        int size = batchSize == null || batchSize <= 0 ? defaultBatchSize : batchSize;
+        int threads = writers == null || writers <= 0 ? defaultWriters : writers;
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), source, size, threads);
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+        }
+        return job;
+    }
+
+    private void run(ImportJob job, Path file, boolean refreshViews) {
+        logger.info("Starting import {} from {} (batch size {}, {} writers)",
+                job.getId(), job.getSource(), job.getBatchSize(), job.getWriters());
+        job.started();
+
+        ThreadPoolExecutor writers = new ThreadPoolExecutor(job.getWriters(), job.getWriters(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(job.getWriters() * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+        Map<String, Map<List<String>, String>> statements = new HashMap<>();
+        ImportJob.Status outcome = ImportJob.Status.COMPLETED;
+
+        try (InsertStatementReader reader = new InsertStatementReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            Batch batch = null;
+            long nextProgress = System.currentTimeMillis() + PROGRESS_INTERVAL_MS;
+
+            while (true) {
+                InsertStatementReader.Row row;
+                try {
+                    row = reader.next();
+                } catch (IllegalArgumentException e) {
+                    job.statementSkipped(e.getMessage());
+                    continue;
+                }
+                if (row == null) {
+                    break;
+                }
+
+                String sql = statements.computeIfAbsent(row.getTable(), table -> new HashMap<>())
+                        .computeIfAbsent(row.getColumns(), columns -> BatchInsertWriter.insertSql(row.getTable(), columns));
+                if (sql.isEmpty()) {
+                    job.statementSkipped("Statement " + row.getStatement() + ": table or columns not allowed for import ("
+                            + row.getTable() + ")");
+                    continue;
+                }
+
+                job.rowRead();
+                try {
+                    BatchInsertWriter.convertDates(row.getColumns(), row.getValues());
+                } catch (IllegalArgumentException e) {
+                    job.rowsFailed(1, "Statement " + row.getStatement() + ": invalid date (" + e.getMessage() + ")");
+                    continue;
+                }
+                if (batch != null && !batch.sql.equals(sql)) {
+                    submitBatch(writers, batch, job);
+                    batch = null;
+                }
+                if (batch == null) {
+                    batch = new Batch(sql, row.getColumns(), job.getBatchSize());
+                }
+                batch.rows.add(row.getValues());
+                if (batch.rows.size() >= job.getBatchSize()) {
+                    submitBatch(writers, batch, job);
+                    batch = null;
+                }
+
+                if (System.currentTimeMillis() >= nextProgress) {
+                    logProgress(job);
+                    nextProgress = System.currentTimeMillis() + PROGRESS_INTERVAL_MS;
+                }
+            }
+            if (batch != null) {
+                submitBatch(writers, batch, job);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Import {} failed: {}", job.getId(), e.getMessage());
+            job.error("Import failed: " + e.getMessage());
+            outcome = ImportJob.Status.FAILED;
+        } finally {
+            writers.shutdown();
+            try {
+                writers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                outcome = ImportJob.Status.FAILED;
+            }
+        }
+
+        job.finished(outcome);
+        logger.info("Import {} {}: {} rows written, {} failed, {} statements skipped in {} ms ({} rows/s)",
+                job.getId(), outcome, job.getRowsWritten(), job.getRowsFailed(), job.getStatementsSkipped(),
+                job.getElapsedMillis(), Math.round(job.getRowsPerSecond()));
+
+        if (refreshViews && job.getRowsWritten() > 0) {
+            refreshInMemoryViews();
+        }
+    }
+
+    private void submitBatch(ThreadPoolExecutor writers, Batch batch, ImportJob job) {
+        writers.execute(() -> write(batch, job));
+    }
+
+    private void write(Batch batch, ImportJob job) {
+        try {
+            batchInsertWriter.write(batch.sql, batch.columns, batch.rows);
+            job.rowsWritten(batch.rows.size());
+        } catch (SQLException | RuntimeException e) {
+            logger.error("Import {}: batch of {} rows failed: {}", job.getId(), batch.rows.size(), e.getMessage());
+            job.rowsFailed(batch.rows.size(), "Batch of " + batch.rows.size() + " rows failed: " + e.getMessage());
+        }
+    }
+
+    private void logProgress(ImportJob job) {
+        logger.info("Import {}: {} rows read, {} written, {} failed ({} rows/s)", job.getId(), job.getRowsRead(),
+                job.getRowsWritten(), job.getRowsFailed(), Math.round(job.getRowsPerSecond()));
+    }
+}
@@ -0,0 +1,217 @@
+package com.yourpackage.service;
+
+import com.yourpackage.config.StartupTask;
+import com.yourpackage.dto.ConversationThread;
+import com.yourpackage.dto.CursorPage;
+import com.yourpackage.model.CompletedTask;
+import com.yourpackage.model.Conversation;
+import com.yourpackage.model.Message;
+import com.yourpackage.repository.CompletedTaskRepository;
+import com.yourpackage.repository.ConversationRepository;
+import com.yourpackage.util.SearchCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Maintains the conversations table: MessageService reports every saved and every read message here,
+// inside its own transaction, so a thread row always agrees with the messages it summarises.
+@Service
+public class ConversationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationService.class);
+
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    private static final String BACKFILL_TASK = "conversations-backfill";
+
+    // Insert a backfilled thread unless the pair already has one. An existing row was created by a message
+    // sent while the backfill ran (or by an interrupted earlier run); it keeps its latest message and unread
+    // counts, and its message count is taken from the messages table.
+    private static final String BACKFILL_SQL = "MERGE conversations WITH (HOLDLOCK) AS c " +
+            "USING (SELECT ? AS participant_a, ? AS participant_b, ? AS last_message_id, ? AS last_sender, " +
+            "? AS last_subject, ? AS last_preview, ? AS last_timestamp, ? AS message_count) AS t " +
+            "ON c.participant_a = t.participant_a AND c.participant_b = t.participant_b " +
+            "WHEN MATCHED THEN UPDATE SET message_count = (SELECT COUNT(*) FROM messages m " +
+            "WHERE (m.sender = c.participant_a AND m.recipient = c.participant_b) " +
+            "OR (m.sender = c.participant_b AND m.recipient = c.participant_a)) " +
+            "WHEN NOT MATCHED THEN INSERT (participant_a, participant_b, last_message_id, last_sender, last_subject, " +
+            "last_preview, last_timestamp, message_count, unread_a, unread_b) " +
+            "VALUES (t.participant_a, t.participant_b, t.last_message_id, t.last_sender, t.last_subject, " +
+            "t.last_preview, t.last_timestamp, t.message_count, 0, 0);";
+
+    // Update the pair's thread, or create it on the pair's first message, in one statement. HOLDLOCK keeps
+    // the key range locked until the message commits, so two first messages sent at once cannot both
+    // insert (and one fail on uk_conversations_pair, rolling back its message).
+    private static final String RECORD_MESSAGE_SQL = "MERGE conversations WITH (HOLDLOCK) AS c " +
+            "USING (SELECT ? AS participant_a, ? AS participant_b, ? AS last_message_id, ? AS last_sender, " +
+            "? AS last_subject, ? AS last_preview, ? AS last_timestamp, ? AS unread_a, ? AS unread_b) AS m " +
+            "ON c.participant_a = m.participant_a AND c.participant_b = m.participant_b " +
+            "WHEN MATCHED THEN UPDATE SET last_message_id = m.last_message_id, last_sender = m.last_sender, " +
+            "last_subject = m.last_subject, last_preview = m.last_preview, last_timestamp = m.last_timestamp, " +
+            "message_count = c.message_count + 1, unread_a = c.unread_a + m.unread_a, unread_b = c.unread_b + m.unread_b " +
+            "WHEN NOT MATCHED THEN INSERT (participant_a, participant_b, last_message_id, last_sender, last_subject, " +
+            "last_preview, last_timestamp, message_count, unread_a, unread_b) " +
+            "VALUES (m.participant_a, m.participant_b, m.last_message_id, m.last_sender, m.last_subject, " +
+            "m.last_preview, m.last_timestamp, 1, m.unread_a, m.unread_b);";
+
+    private static final int[] RECORD_MESSAGE_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP, Types.INTEGER, Types.INTEGER};
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private CompletedTaskRepository completedTaskRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Called for a message that has just been saved. Runs on MessageService's connection, inside its transaction.
+    public void messageSaved(Message message) {
+        String sender = normalize(message.getSender());
+        String recipient = normalize(message.getRecipient());
+        boolean recipientIsA = recipient.compareTo(sender) <= 0;
+        String a = recipientIsA ? recipient : sender;
+        String b = recipientIsA ? sender : recipient;
+        String preview = preview(message.getContent());
+
+        jdbcTemplate.update(RECORD_MESSAGE_SQL, new Object[] {a, b, message.getId(), message.getSender(),
+                message.getSubject(), preview, message.getTimestamp(), recipientIsA ? 1 : 0, recipientIsA ? 0 : 1},
+                RECORD_MESSAGE_TYPES);
+    }
+
+    // Called once for a message that has just turned from unread to read
+    public void messageRead(Message message) {
+        String sender = normalize(message.getSender());
+        String recipient = normalize(message.getRecipient());
+        if (recipient.compareTo(sender) <= 0) {
+            conversationRepository.decrementUnreadA(recipient, sender);
+        } else {
+            conversationRepository.decrementUnreadB(sender, recipient);
+        }
+    }
+
+    // The caller's threads, most recently active first
+    public CursorPage<ConversationThread> getThreads(String userEmail, String cursor, Integer size) {
+        SearchCursor after;
+        try {
+            after = cursor == null || cursor.isEmpty() ? null : SearchCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        int limit = CursorPage.clampSize(size);
+        String email = normalize(userEmail);
+
+        // One extra row tells whether there is a next page
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<Conversation> conversations = after == null
+                ? conversationRepository.findThreads(email, page)
+                : conversationRepository.findThreadsAfter(email, after.getDate(), after.getId(), page);
+
+        String nextCursor = null;
+        if (conversations.size() > limit) {
+            conversations = conversations.subList(0, limit);
+            Conversation last = conversations.get(limit - 1);
+            nextCursor = new SearchCursor(last.getLastTimestamp(), last.getId()).encode();
+        }
+
+        List<ConversationThread> threads = new ArrayList<>(conversations.size());
+        for (Conversation conversation : conversations) {
+            threads.add(new ConversationThread(conversation, email));
+        }
+        return new CursorPage<>(threads, nextCursor);
+    }
+
+    // Messages sent before the conversations table existed have no thread yet. Build the threads in one
+    // pass over the messages, until a run gets to the end and records that in completed_tasks. A run
+    // cut short is simply repeated: each thread is merged, not blindly inserted. Those messages all count as read.
+    @StartupTask
+    public void backfill() {
+        if (completedTaskRepository.existsById(BACKFILL_TASK)) {
+            return;
+        }
+
+        Map<String, Object[]> threads = new HashMap<>();
+        try {
+            jdbcTemplate.query("SELECT id, sender, recipient, subject, content, timestamp FROM messages ORDER BY id", rs -> {
+                String sender = rs.getString("sender");
+                String recipient = rs.getString("recipient");
+                if (sender == null || recipient == null) {
+                    return;
+                }
+                String a = normalize(sender);
+                String b = normalize(recipient);
+                if (a.compareTo(b) > 0) {
+                    String swap = a;
+                    a = b;
+                    b = swap;
+                }
+                Object[] thread = threads.computeIfAbsent(a + "\n" + b, key -> new Object[8]);
+                thread[0] = a;
+                thread[1] = b;
+                thread[2] = rs.getLong("id");
+                thread[3] = sender;
+                thread[4] = rs.getString("subject");
+                thread[5] = preview(rs.getString("content"));
+                thread[6] = rs.getTimestamp("timestamp");
+                thread[7] = thread[7] == null ? 1L : (Long) thread[7] + 1;
+            });
+        } catch (DataAccessException e) {
+            logger.warn("Could not read messages to build conversations: {}", e.getMessage());
+            return;
+        }
+
+        if (!threads.isEmpty()) {
+            logger.info("Building {} conversations from existing messages", threads.size());
+        }
+        List<Object[]> batch = new ArrayList<>(BACKFILL_BATCH_SIZE);
+        try {
+            for (Object[] thread : threads.values()) {
+                batch.add(thread);
+                if (batch.size() == BACKFILL_BATCH_SIZE) {
+                    mergeThreads(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                mergeThreads(batch);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Could not build conversations, will retry on the next start: {}", e.getMessage());
+            return;
+        }
+        completedTaskRepository.save(new CompletedTask(BACKFILL_TASK, LocalDateTime.now()));
+    }
+
+    private void mergeThreads(List<Object[]> threads) {
+        jdbcTemplate.batchUpdate(BACKFILL_SQL, threads,
+                new int[] {Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.VARCHAR,
+                        Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP, Types.BIGINT});
+    }
+
+    // Emails are compared case-insensitively, like the database does
+    private static String normalize(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String preview(String content) {
+        if (content == null) {
+            return null;
+        }
+        return content.length() <= Conversation.PREVIEW_LENGTH ? content : content.substring(0, Conversation.PREVIEW_LENGTH);
+    }
+}
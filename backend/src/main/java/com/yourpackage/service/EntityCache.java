@@ -0,0 +1,297 @@
+package com.yourpackage.service;
+
+import com.yourpackage.model.Property;
+import com.yourpackage.model.User;
+import com.yourpackage.repository.PropertyRepository;
+import com.yourpackage.repository.UserRepository;
+import com.yourpackage.util.WeightedLruCache;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+// Read-through cache of Property and User rows, plus email -> user id for findByEmail, each bounded by
+// an approximate byte budget. What is cached is a detached copy of the row's columns (a property keeps
+// only its agent's id), and every read hands out a fresh copy, so callers may change what they get
+// without touching the cache. Services invalidate entries on every write; callers that need a managed
+// entity to modify and save still go to the repository.
+@Component
+public class EntityCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityCache.class);
+
+    // Rough per-object overhead of an entity copy and its boxed fields
+    private static final int ENTITY_OVERHEAD = 160;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${entity-cache.enabled:true}")
+    private volatile boolean enabled;
+
+    @Value("${entity-cache.property-max-bytes:33554432}")
+    private long propertyMaxBytes;
+
+    @Value("${entity-cache.user-max-bytes:8388608}")
+    private long userMaxBytes;
+
+    private WeightedLruCache<Long, CachedProperty> properties;
+    private WeightedLruCache<Long, User> users;
+    private WeightedLruCache<String, Long> userIdsByEmail;
+
+    // Column values of a property; the agent is looked up separately so a change to the user shows up here
+    private static class CachedProperty {
+        final Property state;
+        final Long agentId;
+
+        CachedProperty(Property state, Long agentId) {
+            this.state = state;
+            this.agentId = agentId;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        properties = new WeightedLruCache<>(propertyMaxBytes, cached -> weigh(cached.state));
+        users = new WeightedLruCache<>(userMaxBytes, EntityCache::weigh);
+        userIdsByEmail = new WeightedLruCache<>(userMaxBytes / 4, id -> 64);
+        logger.info("Entity cache {}", enabled ? "enabled" : "disabled");
+    }
+
+    public Optional<Property> findProperty(Long id) {
+        if (!enabled) {
+            return propertyRepository.findById(id);
+        }
+        CachedProperty cached = properties.get(id);
+        if (cached == null) {
+            long generation = properties.generation();
+            Optional<Property> loaded = propertyRepository.findById(id);
+            if (loaded.isEmpty()) {
+                return loaded;
+            }
+            cached = snapshot(loaded.get());
+            properties.put(id, cached, generation);
+        }
+        return Optional.of(assemble(cached));
+    }
+
+    // The properties with the given ids, in the same order; misses are loaded with one query
+    public List<Property> findProperties(List<Long> ids) {
+        if (!enabled) {
+            return ordered(ids, propertyRepository.findAllById(ids));
+        }
+        Map<Long, CachedProperty> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            CachedProperty cached = properties.get(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long generation = properties.generation();
+            for (Property property : propertyRepository.findAllById(missing)) {
+                CachedProperty cached = snapshot(property);
+                properties.put(property.getId(), cached, generation);
+                found.put(property.getId(), cached);
+            }
+        }
+
+        List<Property> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            CachedProperty cached = found.get(id);
+            if (cached != null) {
+                result.add(assemble(cached));
+            }
+        }
+        return result;
+    }
+
+    public Optional<User> findUser(Long id) {
+        if (!enabled) {
+            return userRepository.findById(id);
+        }
+        User cached = users.get(id);
+        if (cached == null) {
+            long generation = users.generation();
+            Optional<User> loaded = userRepository.findById(id);
+            if (loaded.isEmpty()) {
+                return loaded;
+            }
+            cached = copy(loaded.get());
+            users.put(id, cached, generation);
+        }
+        return Optional.of(copy(cached));
+    }
+
+    public Optional<User> findUserByEmail(String email) {
+        if (!enabled || email == null) {
+            return userRepository.findByEmail(email);
+        }
+        String key = email.trim().toLowerCase(Locale.ROOT);
+        Long id = userIdsByEmail.get(key);
+        if (id != null) {
+            Optional<User> user = findUser(id);
+            // The mapping is dropped with the user, but check in case the email changed in between
+            if (user.isPresent() && key.equalsIgnoreCase(user.get().getEmail())) {
+                return user;
+            }
+        }
+
+        long generation = userIdsByEmail.generation();
+        long userGeneration = users.generation();
+        Optional<User> loaded = userRepository.findByEmail(email);
+        if (loaded.isEmpty()) {
+            return loaded;
+        }
+        User cached = copy(loaded.get());
+        users.put(cached.getId(), cached, userGeneration);
+        userIdsByEmail.put(key, cached.getId(), generation);
+        return Optional.of(copy(cached));
+    }
+
+    public void propertyChanged(Long id) {
+        properties.invalidate(id);
+    }
+
+    // Also drops every email that pointed at the user, since the email may have changed
+    public void userChanged(Long id) {
+        users.invalidate(id);
+        userIdsByEmail.invalidateIf(userId -> userId.equals(id));
+    }
+
+    // Deleting a user cascades to the properties they list as agent
+    public void userDeleted(Long id) {
+        userChanged(id);
+        properties.invalidateIf(cached -> id.equals(cached.agentId));
+    }
+
+    // After rows were written behind the services' back (bulk import, migrations)
+    public void clear() {
+        properties.clear();
+        users.clear();
+        userIdsByEmail.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Switch the cache off (everything goes to the database) or back on; either way it starts empty
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        clear();
+        logger.info("Entity cache {}", enabled ? "enabled" : "disabled");
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("properties", properties.getStats());
+        stats.put("users", users.getStats());
+        stats.put("userEmails", userIdsByEmail.getStats());
+        return stats;
+    }
+
+    public void resetStats() {
+        properties.resetStats();
+        users.resetStats();
+        userIdsByEmail.resetStats();
+    }
+
+    private CachedProperty snapshot(Property property) {
+        Property state = copy(property);
+        state.setAgent(null);
+        Long agentId = property.getAgent() == null ? null : property.getAgent().getId();
+        return new CachedProperty(state, agentId);
+    }
+
+    private Property assemble(CachedProperty cached) {
+        Property property = copy(cached.state);
+        if (cached.agentId != null) {
+            property.setAgent(findUser(cached.agentId).orElse(null));
+        }
+        return property;
+    }
+
+    private static List<Property> ordered(List<Long> ids, List<Property> loaded) {
+        Map<Long, Property> byId = new HashMap<>();
+        for (Property property : loaded) {
+            byId.put(property.getId(), property);
+        }
+        List<Property> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Property property = byId.get(id);
+            if (property != null) {
+                result.add(property);
+            }
+        }
+        return result;
+    }
+
+    private static Property copy(Property source) {
+        Property copy = new Property();
+        copy.setId(source.getId());
+        copy.setSizeSqFt(source.getSizeSqFt());
+        copy.setPropertyType(source.getPropertyType());
+        copy.setNoOfFloors(source.getNoOfFloors());
+        copy.setAddress(source.getAddress());
+        copy.setProjectName(source.getProjectName());
+        copy.setPrice(source.getPrice());
+        copy.setYear(source.getYear());
+        copy.setPricePerSqft(source.getPricePerSqft());
+        copy.setFacilities(source.getFacilities());
+        copy.setDateOfValuation(source.getDateOfValuation() == null ? null : new Date(source.getDateOfValuation().getTime()));
+        copy.setVersion(source.getVersion());
+        copy.setAgent(source.getAgent());
+        return copy;
+    }
+
+    // Columns only: the lazy properties and favorites collections are never part of a cached user
+    private static User copy(User source) {
+        User copy = new User();
+        copy.setId(source.getId());
+        copy.setName(source.getName());
+        copy.setEmail(source.getEmail());
+        copy.setPassword(source.getPassword());
+        copy.setRole(source.getRole());
+        copy.setPhoneNumber(source.getPhoneNumber());
+        copy.setAddress(source.getAddress());
+        copy.setDateOfRegistration(source.getDateOfRegistration());
+        copy.setLastLogin(source.getLastLogin());
+        copy.setProfilePictureHash(source.getProfilePictureHash());
+        copy.setVersion(source.getVersion());
+        return copy;
+    }
+
+    private static int weigh(Property property) {
+        return ENTITY_OVERHEAD + 2 * (length(property.getSizeSqFt()) + length(property.getPropertyType())
+                + length(property.getAddress()) + length(property.getProjectName()) + length(property.getFacilities()));
+    }
+
+    private static int weigh(User user) {
+        return ENTITY_OVERHEAD + 2 * (length(user.getName()) + length(user.getEmail()) + length(user.getPassword())
+                + length(user.getRole()) + length(user.getPhoneNumber()) + length(user.getAddress())
+                + length(user.getProfilePictureHash()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,127 @@
+package com.yourpackage.service;
+
+import com.yourpackage.repository.FavoriteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Each user's favourite property ids as a sorted long[], so "is this favourited?" is a binary search
+// rather than a query. Loaded on first use; writes are applied to cached users in place, and users are
+// evicted least recently used past max-users.
+@Component
+public class FavoriteIdCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(FavoriteIdCache.class);
+
+    private static final long[] NONE = new long[0];
+
+    @Autowired
+    private FavoriteRepository favoriteRepository;
+
+    @Value("${favorites.cache.max-users:10000}")
+    private int maxUsers;
+
+    private final Map<Long, long[]> users = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+            return size() > maxUsers;
+        }
+    };
+
+    // Bumped on every write; a cold load is only cached if no write raced with it
+    private long writeGeneration;
+
+    public boolean contains(Long userId, long propertyId) {
+        return Arrays.binarySearch(idsFor(userId), propertyId) >= 0;
+    }
+
+    // Sorted favourite property ids of the user. The array is never modified once published.
+    public long[] idsFor(Long userId) {
+        long generation;
+        synchronized (this) {
+            long[] ids = users.get(userId);
+            if (ids != null) {
+                return ids;
+            }
+            generation = writeGeneration;
+        }
+
+        List<Long> loaded = favoriteRepository.findPropertyIdsByUserId(userId);
+        long[] ids = loaded.isEmpty() ? NONE : loaded.stream().mapToLong(Long::longValue).sorted().toArray();
+
+        synchronized (this) {
+            if (generation == writeGeneration) {
+                users.put(userId, ids);
+            } else {
+                logger.debug("Favorites of user {} changed while loading, not caching", userId);
+            }
+        }
+        return ids;
+    }
+
+    public synchronized void added(Long userId, long propertyId) {
+        writeGeneration++;
+        long[] ids = users.get(userId);
+        if (ids == null) {
+            return;
+        }
+        int at = Arrays.binarySearch(ids, propertyId);
+        if (at >= 0) {
+            return;
+        }
+        at = -at - 1;
+        long[] updated = new long[ids.length + 1];
+        System.arraycopy(ids, 0, updated, 0, at);
+        updated[at] = propertyId;
+        System.arraycopy(ids, at, updated, at + 1, ids.length - at);
+        users.put(userId, updated);
+    }
+
+    public synchronized void removed(Long userId, long propertyId) {
+        writeGeneration++;
+        long[] ids = users.get(userId);
+        if (ids == null) {
+            return;
+        }
+        int at = Arrays.binarySearch(ids, propertyId);
+        if (at < 0) {
+            return;
+        }
+        users.put(userId, without(ids, at));
+    }
+
+    // A deleted property takes its favorites with it (cascade), for every user
+    public synchronized void propertyDeleted(long propertyId) {
+        writeGeneration++;
+        for (Map.Entry<Long, long[]> entry : users.entrySet()) {
+            long[] ids = entry.getValue();
+            int at = Arrays.binarySearch(ids, propertyId);
+            if (at >= 0) {
+                entry.setValue(without(ids, at));
+            }
+        }
+    }
+
+    // Deleting an agent cascades to their properties and so to other users' favorites; start over
+    public synchronized void userDeleted(Long userId) {
+        writeGeneration++;
+        users.clear();
+    }
+
+    private static long[] without(long[] ids, int at) {
+        if (ids.length == 1) {
+            return NONE;
+        }
+        long[] updated = new long[ids.length - 1];
+        System.arraycopy(ids, 0, updated, 0, at);
+        System.arraycopy(ids, at + 1, updated, at, ids.length - at - 1);
+        return updated;
+    }
+}
@@ -1,20 +1,22 @@
 package com.yourpackage.service;
 
+import com.yourpackage.dto.PagedResult;
 import com.yourpackage.model.Favorite;
 import com.yourpackage.model.Property;
 import com.yourpackage.model.User;
 import com.yourpackage.repository.FavoriteRepository;
-import com.yourpackage.repository.PropertyRepository;
-import com.yourpackage.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 public class FavoriteService {
@@ -23,13 +25,16 @@ public class FavoriteService {
     private FavoriteRepository favoriteRepository;
 
     @Autowired
-    private PropertyRepository propertyRepository;
+    private EntityCache entityCache;
 
     @Autowired
-    private UserRepository userRepository;
+    private FavoriteIdCache favoriteIdCache;
 
     private static final Logger logger = LoggerFactory.getLogger(FavoriteService.class);
 
+    // Most property ids one status lookup may ask about (a page of search results)
+    private static final int MAX_STATUS_IDS = 500;
+
     public void addFavorite(Long userId, Long propertyId) {
         logger.info("Attempting to add property with ID {} to favorites for user ID {}", propertyId, userId);
 
@@ -38,13 +43,14 @@ public class FavoriteService {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "Property already favorited");
         }
 
-        User user = userRepository.findById(userId)
+        // Detached copies from the EntityCache are enough: only their ids are written
+        User user = entityCache.findUser(userId)
                 .orElseThrow(() -> {
                     logger.error("User with ID {} not found", userId);
                     return new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
                 });
 
-        Property property = propertyRepository.findById(propertyId)
+        Property property = entityCache.findProperty(propertyId)
                 .orElseThrow(() -> {
                     logger.error("Property with ID {} not found", propertyId);
                     return new ResponseStatusException(HttpStatus.NOT_FOUND, "Property not found");
@@ -55,20 +61,39 @@ public class FavoriteService {
         favorite.setProperty(property);
 
         favoriteRepository.save(favorite);
+        favoriteIdCache.added(userId, propertyId);
         logger.info("Property with ID {} added to favorites for user ID {}", propertyId, userId);
     }
 
-    public List<Property> getFavoritesForUser(Long userId) {
+    public PagedResult<Property> getFavoritesForUser(Long userId, Integer page, Integer size) {
         logger.info("Fetching favorite properties for user ID {}", userId);
 
-        List<Favorite> favorites = favoriteRepository.findByUserId(userId);
-        if (favorites.isEmpty()) {
+        if (page != null && page < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page must not be negative");
+        }
+        PagedResult<Property> favorites = new PagedResult<>(favoriteRepository.findPropertiesByUserId(userId,
+                PageRequest.of(page == null ? 0 : page, PagedResult.clampSize(size))));
+        if (favorites.getTotalItems() == 0) {
             logger.warn("No favorite properties found for user ID {}", userId);
         }
+        return favorites;
+    }
+
+    // Whether each of the given properties is a favourite of the user, in the order asked
+    public Map<Long, Boolean> getFavoriteStatus(Long userId, List<Long> propertyIds) {
+        if (propertyIds.size() > MAX_STATUS_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_STATUS_IDS + " property ids per request");
+        }
 
-        return favorites.stream()
-                .map(Favorite::getProperty)
-                .collect(Collectors.toList());
+        long[] favoriteIds = favoriteIdCache.idsFor(userId);
+        Map<Long, Boolean> status = new LinkedHashMap<>();
+        for (Long propertyId : propertyIds) {
+            if (propertyId != null) {
+                status.put(propertyId, Arrays.binarySearch(favoriteIds, propertyId) >= 0);
+            }
+        }
+        return status;
     }
 
     public void removeFavorite(Long userId, Long propertyId) {
@@ -81,6 +106,7 @@ public class FavoriteService {
         }
 
         favoriteRepository.delete(favorite);
+        favoriteIdCache.removed(userId, propertyId);
         logger.info("Property with ID {} removed from favorites for user ID {}", propertyId, userId);
     }
 }
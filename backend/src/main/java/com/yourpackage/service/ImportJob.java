@@ -0,0 +1,137 @@
+package com.yourpackage.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Progress of one bulk import. Counters are updated by the reader and writer threads while it runs,
+// and the getters give a consistent-enough view for progress polling.
+public class ImportJob {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private static final int MAX_ERRORS = 20;
+
+    private final String id;
+    private final String source;
+    private final int batchSize;
+    private final int writers;
+    private volatile Status status = Status.QUEUED;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final AtomicLong statementsSkipped = new AtomicLong();
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+    public ImportJob(String id, String source, int batchSize, int writers) {
+        this.id = id;
+        this.source = source;
+        this.batchSize = batchSize;
+        this.writers = writers;
+    }
+
+    void started() {
+        startedAt = System.currentTimeMillis();
+        status = Status.RUNNING;
+    }
+
+    void finished(Status finalStatus) {
+        finishedAt = System.currentTimeMillis();
+        status = finalStatus;
+    }
+
+    void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    void rowsWritten(int count) {
+        rowsWritten.addAndGet(count);
+    }
+
+    void rowsFailed(int count, String error) {
+        rowsFailed.addAndGet(count);
+        error(error);
+    }
+
+    void statementSkipped(String error) {
+        statementsSkipped.incrementAndGet();
+        error(error);
+    }
+
+    void error(String error) {
+        synchronized (errors) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(error);
+            }
+        }
+    }
+
+    public long getElapsedMillis() {
+        if (startedAt == 0) {
+            return 0;
+        }
+        return (finishedAt == 0 ? System.currentTimeMillis() : finishedAt) - startedAt;
+    }
+
+    public double getRowsPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : rowsWritten.get() * 1000.0 / elapsed;
+    }
+
+    // Getters
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getWriters() {
+        return writers;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Date getStartedAt() {
+        return startedAt == 0 ? null : new Date(startedAt);
+    }
+
+    public Date getFinishedAt() {
+        return finishedAt == 0 ? null : new Date(finishedAt);
+    }
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed.get();
+    }
+
+    public long getStatementsSkipped() {
+        return statementsSkipped.get();
+    }
+
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.yourpackage.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yourpackage.model.Property;
+import com.yourpackage.model.Transaction;
+import com.yourpackage.util.OffHeapCache;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// The finished JSON of property and transaction detail documents (GET /api/properties/{id} and
+// GET /api/transactions/{id}), kept in an off-heap OffHeapCache so a hit is copied to the response
+// without loading an entity or running Jackson. Only the key, ETag and agent id of each document stay
+// on the heap. Services invalidate documents on every write, as they do for the EntityCache.
+@Component
+public class JsonDocumentCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonDocumentCache.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${json-cache.enabled:true}")
+    private volatile boolean enabled;
+
+    @Value("${json-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${json-cache.block-size:512}")
+    private int blockSize;
+
+    private OffHeapCache<String, Document> documents;
+
+    // What is kept on the heap per document. A property's JSON embeds its agent, so it is dropped with the agent.
+    private static final class Document {
+        final String etag;
+        final Long agentId;
+
+        Document(String etag, Long agentId) {
+            this.etag = etag;
+            this.agentId = agentId;
+        }
+    }
+
+    // A cached document, pinned until closed
+    public static final class Hit implements AutoCloseable {
+        private final OffHeapCache<String, Document>.Handle handle;
+
+        private Hit(OffHeapCache<String, Document>.Handle handle) {
+            this.handle = handle;
+        }
+
+        public String getEtag() {
+            return handle.getMeta().etag;
+        }
+
+        public int getLength() {
+            return handle.getLength();
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            handle.writeTo(out);
+        }
+
+        @Override
+        public void close() {
+            handle.close();
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        documents = new OffHeapCache<>(maxBytes, blockSize);
+        logger.info("JSON document cache {} with {} bytes off-heap", enabled ? "enabled" : "disabled", maxBytes);
+    }
+
+    // The cached document, or null; close the hit once it has been written
+    public Hit findProperty(Long id) {
+        return find(propertyKey(id));
+    }
+
+    public Hit findTransaction(Long id) {
+        return find(transactionKey(id));
+    }
+
+    // Take before loading the entity, and pass to store afterwards
+    public long generation() {
+        return documents.generation();
+    }
+
+    // Serialise the property and keep the result unless it was changed since `generation` was taken
+    public byte[] storeProperty(Property property, String etag, long generation) throws JsonProcessingException {
+        byte[] json = objectMapper.writeValueAsBytes(property);
+        if (enabled) {
+            Long agentId = property.getAgent() == null ? null : property.getAgent().getId();
+            documents.put(propertyKey(property.getId()), new Document(etag, agentId), json, generation);
+        }
+        return json;
+    }
+
+    public byte[] storeTransaction(Transaction transaction, String etag, long generation) throws JsonProcessingException {
+        byte[] json = objectMapper.writeValueAsBytes(transaction);
+        if (enabled) {
+            documents.put(transactionKey(transaction.getId()), new Document(etag, null), json, generation);
+        }
+        return json;
+    }
+
+    public void propertyChanged(Long id) {
+        documents.invalidate(propertyKey(id));
+    }
+
+    public void transactionChanged(Long id) {
+        documents.invalidate(transactionKey(id));
+    }
+
+    // Every property whose JSON embeds the user as agent
+    public void userChanged(Long id) {
+        documents.invalidateIf(document -> id.equals(document.agentId));
+    }
+
+    // After rows were written behind the services' back (bulk import, migrations)
+    public void clear() {
+        documents.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Switch the cache off (every read is serialised again) or back on; either way it starts empty
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        clear();
+        logger.info("JSON document cache {}", enabled ? "enabled" : "disabled");
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.putAll(documents.getStats());
+        return stats;
+    }
+
+    public void resetStats() {
+        documents.resetStats();
+    }
+
+    private Hit find(String key) {
+        if (!enabled) {
+            return null;
+        }
+        OffHeapCache<String, Document>.Handle handle = documents.acquire(key);
+        return handle == null ? null : new Hit(handle);
+    }
+
+    private static String propertyKey(Long id) {
+        return "property/" + id;
+    }
+
+    private static String transactionKey(Long id) {
+        return "transaction/" + id;
+    }
+}
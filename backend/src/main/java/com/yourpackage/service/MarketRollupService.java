@@ -0,0 +1,307 @@
+package com.yourpackage.service;
+
+import com.yourpackage.config.StartupTask;
+import com.yourpackage.dto.ProjectRollup;
+import com.yourpackage.model.Transaction;
+import com.yourpackage.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Per-project transaction statistics, updated on every transaction write so reads are a single map lookup.
+// Each transaction feeds four rollups: project, project + type, project + year and project + type + year.
+@Service
+public class MarketRollupService {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketRollupService.class);
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    // Rebuilds this many times without blocking writers before scanning under the write lock
+    private static final int REBUILD_ATTEMPTS = 3;
+
+    // Replaced as a whole by rebuild, so readers never see a half-filled map
+    private volatile Map<String, Stats> rollups = new ConcurrentHashMap<>();
+
+    // Write hooks hold the read lock while they update the map and bump the generation; rebuild takes the
+    // write lock to publish, and only if no write happened while it was scanning.
+    private final ReadWriteLock publish = new ReentrantReadWriteLock();
+    private final AtomicLong writeGeneration = new AtomicLong();
+
+    // Running totals for one rollup. Min, max and latest date cannot be undone by a delete, so removing the
+    // row that held one of them marks the rollup stale and it is recomputed from the database on next read.
+    private static class Stats {
+        final String projectName;
+        final String propertyType;
+        final Integer year;
+
+        long count;
+        double minPrice = Double.POSITIVE_INFINITY;
+        double maxPrice = Double.NEGATIVE_INFINITY;
+        double priceSum;
+        double pricePerSqftSum;
+        long latestValuation = NO_DATE;
+        boolean stale;
+        // Bumped by every add/remove, so a recompute that raced with a write is discarded
+        long version;
+
+        // Serializes recomputes without holding the monitor across the JDBC call
+        final ReentrantLock refresh = new ReentrantLock();
+
+        Stats(String projectName, String propertyType, Integer year) {
+            this.projectName = projectName;
+            this.propertyType = propertyType;
+            this.year = year;
+        }
+
+        synchronized void add(Transaction transaction) {
+            version++;
+            count++;
+            minPrice = Math.min(minPrice, transaction.getPrice());
+            maxPrice = Math.max(maxPrice, transaction.getPrice());
+            priceSum += transaction.getPrice();
+            pricePerSqftSum += transaction.getPricePerSqft();
+            latestValuation = Math.max(latestValuation, valuationTime(transaction));
+        }
+
+        synchronized void remove(Transaction transaction) {
+            version++;
+            count--;
+            priceSum -= transaction.getPrice();
+            pricePerSqftSum -= transaction.getPricePerSqft();
+            if (transaction.getPrice() <= minPrice || transaction.getPrice() >= maxPrice
+                    || valuationTime(transaction) >= latestValuation) {
+                stale = true;
+            }
+        }
+
+        // Columns: COUNT, MIN(price), MAX(price), SUM(price), SUM(pricePerSqft), MAX(dateOfValuation)
+        synchronized void load(Object[] aggregate, int offset) {
+            count = ((Number) aggregate[offset]).longValue();
+            minPrice = count == 0 ? Double.POSITIVE_INFINITY : ((Number) aggregate[offset + 1]).doubleValue();
+            maxPrice = count == 0 ? Double.NEGATIVE_INFINITY : ((Number) aggregate[offset + 2]).doubleValue();
+            priceSum = count == 0 ? 0 : ((Number) aggregate[offset + 3]).doubleValue();
+            pricePerSqftSum = count == 0 ? 0 : ((Number) aggregate[offset + 4]).doubleValue();
+            Date latest = (Date) aggregate[offset + 5];
+            latestValuation = latest == null ? NO_DATE : latest.getTime();
+            stale = false;
+        }
+
+        synchronized boolean isStale() {
+            return stale;
+        }
+
+        synchronized long version() {
+            return version;
+        }
+
+        // Apply a recomputed aggregate unless a write happened since `expectedVersion` was read
+        synchronized boolean loadIfUnchanged(long expectedVersion, Object[] aggregate) {
+            if (version != expectedVersion) {
+                return false;
+            }
+            load(aggregate, 0);
+            return true;
+        }
+
+        synchronized void merge(Stats other) {
+            count += other.count;
+            minPrice = Math.min(minPrice, other.minPrice);
+            maxPrice = Math.max(maxPrice, other.maxPrice);
+            priceSum += other.priceSum;
+            pricePerSqftSum += other.pricePerSqftSum;
+            latestValuation = Math.max(latestValuation, other.latestValuation);
+        }
+
+        synchronized ProjectRollup toRollup() {
+            if (count == 0) {
+                return null;
+            }
+            return new ProjectRollup(projectName, propertyType, year, count, minPrice, maxPrice,
+                    priceSum / count, pricePerSqftSum / count,
+                    latestValuation == NO_DATE ? null : new Date(latestValuation));
+        }
+    }
+
+    // Recovery path: recompute every rollup with one GROUP BY query. A transaction written during the scan
+    // may be missing from it, so the scan is repeated if the write generation moved; the last attempt
+    // holds writers off while it scans.
+    @StartupTask
+    public void rebuild() {
+        logger.info("Rebuilding market rollups");
+
+        for (int attempt = 1; attempt < REBUILD_ATTEMPTS; attempt++) {
+            long generation = writeGeneration.get();
+            Map<String, Stats> rebuilt = scan();
+            publish.writeLock().lock();
+            try {
+                if (writeGeneration.get() == generation) {
+                    rollups = new ConcurrentHashMap<>(rebuilt);
+                    logger.info("Market rollups rebuilt: {} rollups", rebuilt.size());
+                    return;
+                }
+            } finally {
+                publish.writeLock().unlock();
+            }
+            logger.info("Transactions were written during the market rollup rebuild, scanning again");
+        }
+
+        publish.writeLock().lock();
+        try {
+            Map<String, Stats> rebuilt = scan();
+            rollups = new ConcurrentHashMap<>(rebuilt);
+            logger.info("Market rollups rebuilt: {} rollups", rebuilt.size());
+        } finally {
+            publish.writeLock().unlock();
+        }
+    }
+
+    private Map<String, Stats> scan() {
+        Map<String, Stats> rebuilt = new HashMap<>();
+        for (Object[] row : transactionRepository.aggregateByProjectTypeAndYear()) {
+            String projectName = (String) row[0];
+            String propertyType = (String) row[1];
+            Integer year = ((Number) row[2]).intValue();
+
+            Stats group = new Stats(projectName, propertyType, year);
+            group.load(row, 3);
+            for (Stats target : targets(rebuilt, projectName, propertyType, year)) {
+                target.merge(group);
+            }
+        }
+
+        return rebuilt;
+    }
+
+    // Returns null when the project has no transactions
+    public ProjectRollup getRollup(String projectName, String propertyType, Integer year) {
+        Stats stats = rollups.get(key(projectName, propertyType, year));
+        if (stats == null) {
+            return null;
+        }
+
+        if (stats.isStale()) {
+            stats.refresh.lock();
+            try {
+                if (stats.isStale()) {
+                    logger.info("Recomputing stale market rollup for project {}", projectName);
+                    long version = stats.version();
+                    List<Object[]> aggregate = transactionRepository.aggregateForProject(projectName, propertyType, year);
+                    if (!stats.loadIfUnchanged(version, aggregate.get(0))) {
+                        logger.info("Market rollup for project {} changed during recompute, keeping it stale", projectName);
+                    }
+                }
+            } finally {
+                stats.refresh.unlock();
+            }
+        }
+        return stats.toRollup();
+    }
+
+    // Write hooks
+
+    public void transactionAdded(Transaction transaction) {
+        if (transaction.getProjectName() == null) {
+            return;
+        }
+        publish.readLock().lock();
+        try {
+            for (String key : keys(transaction)) {
+                rollups.compute(key, (k, stats) -> {
+                    if (stats == null) {
+                        stats = newStats(transaction, k);
+                    }
+                    stats.add(transaction);
+                    return stats;
+                });
+            }
+            writeGeneration.incrementAndGet();
+        } finally {
+            publish.readLock().unlock();
+        }
+    }
+
+    public void transactionRemoved(Transaction transaction) {
+        if (transaction.getProjectName() == null) {
+            return;
+        }
+        publish.readLock().lock();
+        try {
+            for (String key : keys(transaction)) {
+                rollups.computeIfPresent(key, (k, stats) -> {
+                    stats.remove(transaction);
+                    return stats.count <= 0 ? null : stats;
+                });
+            }
+            writeGeneration.incrementAndGet();
+        } finally {
+            publish.readLock().unlock();
+        }
+    }
+
+    public void transactionUpdated(Transaction before, Transaction after) {
+        transactionRemoved(before);
+        transactionAdded(after);
+    }
+
+    // Helpers
+
+    private static long valuationTime(Transaction transaction) {
+        return transaction.getDateOfValuation() == null ? NO_DATE : transaction.getDateOfValuation().getTime();
+    }
+
+    // Project and type names are matched case-insensitively, like SQL Server's default collation
+    private static String key(String projectName, String propertyType, Integer year) {
+        return normalize(projectName) + '\u0000' + normalize(propertyType) + '\u0000' + (year == null ? "" : year);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> keys(Transaction transaction) {
+        String projectName = transaction.getProjectName();
+        String propertyType = transaction.getPropertyType();
+        int year = transaction.getYear();
+        if (propertyType == null) {
+            return List.of(key(projectName, null, null), key(projectName, null, year));
+        }
+        return List.of(key(projectName, null, null), key(projectName, propertyType, null),
+                key(projectName, null, year), key(projectName, propertyType, year));
+    }
+
+    private static Stats newStats(Transaction transaction, String key) {
+        String[] parts = key.split("\u0000", -1);
+        return new Stats(transaction.getProjectName(),
+                parts[1].isEmpty() ? null : transaction.getPropertyType(),
+                parts[2].isEmpty() ? null : transaction.getYear());
+    }
+
+    private static List<Stats> targets(Map<String, Stats> map, String projectName, String propertyType, int year) {
+        Stats project = map.computeIfAbsent(key(projectName, null, null), k -> new Stats(projectName, null, null));
+        Stats byYear = map.computeIfAbsent(key(projectName, null, year), k -> new Stats(projectName, null, year));
+        if (propertyType == null) {
+            return List.of(project, byYear);
+        }
+        Stats byType = map.computeIfAbsent(key(projectName, propertyType, null),
+                k -> new Stats(projectName, propertyType, null));
+        Stats byTypeAndYear = map.computeIfAbsent(key(projectName, propertyType, year),
+                k -> new Stats(projectName, propertyType, year));
+        return List.of(project, byType, byYear, byTypeAndYear);
+    }
+}
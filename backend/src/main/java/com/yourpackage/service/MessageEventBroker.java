@@ -0,0 +1,258 @@
+package com.yourpackage.service;
+
+import com.yourpackage.model.Message;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Pushes new messages to the recipient's open GET /api/messages/stream connections (Server-Sent Events).
+// Publishing only appends to a small per-connection buffer; a few sender threads do the socket writes,
+// so a slow client never holds up saveMessage. A connection whose buffer fills up is closed, and the
+// browser's EventSource reconnects and reloads the inbox. Idle connections hold no buffer at all, and
+// a heartbeat comment goes out when a connection has been quiet for a while, which keeps proxies from
+// dropping it and finds connections that have gone away.
+@Service
+public class MessageEventBroker {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageEventBroker.class);
+
+    @Value("${messages.stream.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${messages.stream.heartbeat-ms:25000}")
+    private long heartbeatMillis;
+
+    @Value("${messages.stream.buffer-size:16}")
+    private int bufferSize;
+
+    @Value("${messages.stream.max-connections:5000}")
+    private int maxConnections;
+
+    @Value("${messages.stream.max-per-user:5}")
+    private int maxPerUser;
+
+    @Value("${messages.stream.sender-threads:2}")
+    private int senderThreads;
+
+    // Lower-cased recipient email -> open connections. The lists are replaced, never changed, so publishing
+    // can iterate them without locking.
+    private final Map<String, List<Connection>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private ThreadPoolExecutor senders;
+    private ScheduledExecutorService heartbeat;
+
+    private final class Connection {
+        final String email;
+        final SseEmitter emitter;
+        volatile long lastWrite = System.currentTimeMillis();
+
+        // Guarded by this
+        ArrayDeque<SseEmitter.SseEventBuilder> buffer;
+        boolean draining;
+        boolean closed;
+
+        Connection(String email, SseEmitter emitter) {
+            this.email = email;
+            this.emitter = emitter;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        AtomicInteger counter = new AtomicInteger();
+        // A connection is queued at most once at a time, so the queue never exceeds the connection count
+        senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "message-push-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-push-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        logger.info("Message push started with {} sender threads, heartbeat every {} ms", senderThreads, heartbeatMillis);
+    }
+
+    @PreDestroy
+    void stop() {
+        heartbeat.shutdownNow();
+        senders.shutdownNow();
+        for (List<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                close(connection);
+            }
+        }
+    }
+
+    // Open a stream for the user. Over max-per-user the user's oldest stream is closed; over
+    // max-connections in total the request is refused with 503.
+    public SseEmitter subscribe(String email) {
+        if (connectionCount.incrementAndGet() > maxConnections) {
+            connectionCount.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many open message streams");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Connection connection = new Connection(key(email), emitter);
+        emitter.onCompletion(() -> unregister(connection));
+        emitter.onTimeout(() -> unregister(connection));
+        emitter.onError(e -> unregister(connection));
+
+        List<Connection> evicted = new ArrayList<>(1);
+        connections.compute(connection.email, (key, current) -> {
+            List<Connection> updated = current == null ? new ArrayList<>(1) : new ArrayList<>(current);
+            updated.add(connection);
+            while (updated.size() > maxPerUser) {
+                evicted.add(updated.remove(0));
+            }
+            return updated;
+        });
+        evicted.forEach(this::close);
+        return emitter;
+    }
+
+    // Push a saved message to its recipient. Call only once the message is committed,
+    // so clients never see a message that was rolled back or is not yet readable.
+    public void publish(Message message) {
+        List<Connection> recipients = connections.get(key(message.getRecipient()));
+        if (recipients == null) {
+            return;
+        }
+        for (Connection connection : recipients) {
+            enqueue(connection, SseEmitter.event()
+                    .name("message")
+                    .id(String.valueOf(message.getId()))
+                    .data(message));
+        }
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    private void sendHeartbeats() {
+        long quietSince = System.currentTimeMillis() - heartbeatMillis;
+        for (List<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                if (connection.lastWrite <= quietSince) {
+                    enqueue(connection, SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        }
+    }
+
+    private void enqueue(Connection connection, SseEmitter.SseEventBuilder event) {
+        boolean schedule;
+        boolean overflow = false;
+        synchronized (connection) {
+            if (connection.closed) {
+                return;
+            }
+            if (connection.buffer == null) {
+                connection.buffer = new ArrayDeque<>(4);
+            }
+            if (connection.buffer.size() >= bufferSize) {
+                logger.warn("Message stream of {} is not keeping up; closing it", connection.email);
+                schedule = false;
+                overflow = true;
+            } else {
+                connection.buffer.add(event);
+                schedule = !connection.draining;
+                connection.draining = true;
+            }
+        }
+
+        if (overflow) {
+            close(connection);
+        } else if (schedule) {
+            try {
+                senders.execute(() -> drain(connection));
+            } catch (RejectedExecutionException e) {
+                close(connection);
+            }
+        }
+    }
+
+    // Write buffered events in order until the buffer is empty, then let the buffer go
+    private void drain(Connection connection) {
+        while (true) {
+            SseEmitter.SseEventBuilder event;
+            synchronized (connection) {
+                event = connection.closed || connection.buffer == null ? null : connection.buffer.poll();
+                if (event == null) {
+                    connection.buffer = null;
+                    connection.draining = false;
+                    return;
+                }
+            }
+            try {
+                connection.emitter.send(event);
+                connection.lastWrite = System.currentTimeMillis();
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Message stream of {} closed: {}", connection.email, e.getMessage());
+                close(connection);
+            }
+        }
+    }
+
+    private void close(Connection connection) {
+        unregister(connection);
+        try {
+            connection.emitter.complete();
+        } catch (RuntimeException e) {
+            // Already completed by the container
+        }
+    }
+
+    // The recipient is stored as the sender typed it, and the database matches emails case-insensitively
+    private static String key(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Idempotent: the emitter callbacks and close() may both get here
+    private void unregister(Connection connection) {
+        synchronized (connection) {
+            connection.closed = true;
+            connection.buffer = null;
+        }
+        boolean[] removed = new boolean[1];
+        connections.computeIfPresent(connection.email, (key, current) -> {
+            if (!current.contains(connection)) {
+                return current;
+            }
+            removed[0] = true;
+            List<Connection> updated = new ArrayList<>(current);
+            updated.remove(connection);
+            return updated.isEmpty() ? null : updated;
+        });
+        if (removed[0]) {
+            connectionCount.decrementAndGet();
+        }
+    }
+}
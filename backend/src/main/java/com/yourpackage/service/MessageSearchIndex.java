@@ -0,0 +1,512 @@
+package com.yourpackage.service;
+
+import com.yourpackage.config.StartupTask;
+import com.yourpackage.model.Message;
+import com.yourpackage.repository.MessageRepository;
+import com.yourpackage.util.IndexSegment;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Full-text index over message subjects and contents, kept on disk as a list of IndexSegment files.
+// Saved messages are queued after their transaction commits; one indexer thread writes them out as a
+// new segment per batch and merges the segments when there are too many, so saveMessage never waits
+// for the index. Sender and recipient are indexed as terms too, which lets a search keep to the
+// caller's own messages by intersecting postings. Results are ranked with BM25; subject words count double.
+@Component
+public class MessageSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageSearchIndex.class);
+
+    private static final String MANIFEST = "segments";
+    private static final String LOCK_FILE = "write.lock";
+    private static final char PARTICIPANT_PREFIX = '\u0000';
+    private static final int MAX_TOKEN_LENGTH = 40;
+    private static final int CATCH_UP_BATCH_SIZE = 10000;
+    // Ids are assigned at insert but committed in any order, so catching up starts a little before the highest id
+    private static final long CATCH_UP_OVERLAP = 1000;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    @Value("${messages.search.directory:data/message-index}")
+    private String directoryName;
+
+    @Value("${messages.search.batch-size:500}")
+    private int batchSize;
+
+    @Value("${messages.search.flush-ms:1000}")
+    private long flushMillis;
+
+    @Value("${messages.search.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${messages.search.max-segments:10}")
+    private int maxSegments;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    private Path directory;
+    private BlockingQueue<Message> pending;
+    // Ids of messages that did not fit in the queue; the indexer loads them from the database
+    private final Set<Long> overflow = ConcurrentHashMap.newKeySet();
+    private volatile List<IndexSegment> segments = Collections.emptyList();
+    private int nextSegmentNumber;
+
+    private Thread indexer;
+    private volatile boolean running;
+
+    // Held for as long as this process writes to the directory; without it the index is only searched
+    private FileChannel lockChannel;
+    private FileLock lock;
+
+    // A ranked search result
+    public static class Hit {
+        private final long messageId;
+        private final double score;
+
+        Hit(long messageId, double score) {
+            this.messageId = messageId;
+            this.score = score;
+        }
+
+        // Getters
+
+        public long getMessageId() {
+            return messageId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        pending = new LinkedBlockingQueue<>(queueCapacity);
+        directory = Paths.get(directoryName).toAbsolutePath();
+        Files.createDirectories(directory);
+        load();
+        logger.info("Message search index opened with {} segments, {} messages", segments.size(), getDocCount());
+    }
+
+    // The indexer starts once the schema is ready, catching up on messages saved while it was not running.
+    // Only one process may write the directory: a second one (another server, or a tool on the same
+    // directory) would delete the owner's in-progress files and reuse its segment numbers.
+    @StartupTask
+    public void start() throws IOException {
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            lockChannel = null;
+            logger.warn("Message search index {} is in use by another process; searching it read-only, not indexing", directory);
+            return;
+        }
+
+        // Now that nobody else writes, anything not in the manifest is left over from an interrupted write or merge
+        Set<String> live = load();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "seg-*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                nextSegmentNumber = Math.max(nextSegmentNumber, segmentNumber(name) + 1);
+                if (!live.contains(name)) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+
+        running = true;
+        indexer = new Thread(this::runIndexer, "message-indexer");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    // Open the segments named in the manifest and return their names
+    private Set<String> load() throws IOException {
+        Set<String> live = new LinkedHashSet<>();
+        Path manifest = directory.resolve(MANIFEST);
+        if (Files.exists(manifest)) {
+            for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    live.add(line.trim());
+                }
+            }
+        }
+
+        List<IndexSegment> opened = new ArrayList<>();
+        for (String name : live) {
+            try {
+                opened.add(IndexSegment.open(directory.resolve(name)));
+            } catch (IOException e) {
+                // The catch-up after startup indexes whatever the lost segment held
+                logger.warn("Dropping unreadable message index segment {}: {}", name, e.getMessage());
+            }
+        }
+        segments = Collections.unmodifiableList(opened);
+        return live;
+    }
+
+    // Not interrupted: the indexer notices within flush-ms, writes what is still queued and exits
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (indexer != null) {
+            try {
+                indexer.join(10000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (lockChannel != null) {
+            try {
+                lockChannel.close(); // releases the lock
+            } catch (IOException e) {
+                logger.warn("Could not release the message index lock: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Whether this process owns the index directory and keeps it up to date; false until start() ran
+    public boolean isWriter() {
+        return lock != null;
+    }
+
+    // Queue a saved message for indexing. Inside a transaction it is queued after the commit.
+    public void add(Message message) {
+        if (!isWriter()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(message);
+                }
+            });
+        } else {
+            enqueue(message);
+        }
+    }
+
+    public int getDocCount() {
+        int count = 0;
+        for (IndexSegment segment : segments) {
+            count += segment.getDocCount();
+        }
+        return count;
+    }
+
+    // Best matches among the messages the user sent or received, highest score first
+    public List<Hit> search(String email, String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String owner = participantTerm(email);
+        List<IndexSegment> current = segments;
+
+        long docCount = 0;
+        long totalLength = 0;
+        Map<String, Long> docFreqs = new HashMap<>();
+        for (IndexSegment segment : current) {
+            docCount += segment.getDocCount();
+            totalLength += segment.getTotalLength();
+            for (String term : terms) {
+                docFreqs.merge(term, (long) segment.docFreq(term), Long::sum);
+            }
+        }
+        if (docCount == 0) {
+            return Collections.emptyList();
+        }
+        double averageLength = (double) totalLength / docCount;
+
+        PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, (x, y) -> Double.compare(x.score, y.score));
+        for (IndexSegment segment : current) {
+            IndexSegment.Postings owned = segment.postings(owner);
+            if (owned == null) {
+                continue;
+            }
+            double[] scores = new double[owned.size()];
+            for (String term : terms) {
+                IndexSegment.Postings postings = segment.postings(term);
+                if (postings == null) {
+                    continue;
+                }
+                long df = docFreqs.get(term);
+                double idf = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+
+                // Both lists are in ordinal order: walk them together
+                int i = 0;
+                int j = 0;
+                while (i < owned.size() && j < postings.size()) {
+                    int a = owned.ordinal(i);
+                    int b = postings.ordinal(j);
+                    if (a < b) {
+                        i++;
+                    } else if (a > b) {
+                        j++;
+                    } else {
+                        int tf = postings.frequency(j);
+                        double norm = K1 * (1 - B + B * segment.docLength(a) / averageLength);
+                        scores[i] += idf * tf * (K1 + 1) / (tf + norm);
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            for (int i = 0; i < scores.length; i++) {
+                if (scores[i] > 0) {
+                    top.add(new Hit(segment.docId(owned.ordinal(i)), scores[i]));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort((x, y) -> Double.compare(y.score, x.score));
+        return hits;
+    }
+
+    private void enqueue(Message message) {
+        if (!pending.offer(message)) {
+            overflow.add(message.getId());
+        }
+    }
+
+    private void runIndexer() {
+        try {
+            catchUp();
+        } catch (RuntimeException | IOException e) {
+            logger.error("Message index catch-up failed: {}", e.getMessage());
+        }
+
+        while (running || !pending.isEmpty()) {
+            try {
+                IndexSegment.Builder builder = new IndexSegment.Builder();
+                Message first = pending.poll(flushMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    addDocument(builder, first);
+                    // Collect whatever else arrives within the flush interval, up to one batch
+                    long deadline = System.currentTimeMillis() + flushMillis;
+                    while (builder.getDocCount() < batchSize) {
+                        long wait = deadline - System.currentTimeMillis();
+                        Message next = wait > 0 ? pending.poll(wait, TimeUnit.MILLISECONDS) : pending.poll();
+                        if (next == null) {
+                            break;
+                        }
+                        addDocument(builder, next);
+                    }
+                }
+                addOverflow(builder);
+                if (builder.getDocCount() > 0) {
+                    publish(builder);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                logger.error("Could not write message index segment: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Index the messages the segments do not have yet, starting a little before the highest indexed id
+    private void catchUp() throws IOException {
+        long after = 0;
+        for (IndexSegment segment : segments) {
+            after = Math.max(after, segment.getMaxDocId());
+        }
+        after = Math.max(0, after - CATCH_UP_OVERLAP);
+
+        int indexed = 0;
+        IndexSegment.Builder builder = new IndexSegment.Builder();
+        List<Message> batch = messageRepository.findFirst1000ByIdGreaterThanOrderByIdAsc(after);
+        while (!batch.isEmpty()) {
+            for (Message message : batch) {
+                if (addDocument(builder, message)) {
+                    indexed++;
+                }
+            }
+            if (builder.getDocCount() >= CATCH_UP_BATCH_SIZE) {
+                publish(builder);
+                builder = new IndexSegment.Builder();
+            }
+            batch = messageRepository.findFirst1000ByIdGreaterThanOrderByIdAsc(batch.get(batch.size() - 1).getId());
+        }
+        if (builder.getDocCount() > 0) {
+            publish(builder);
+        }
+        if (indexed > 0) {
+            logger.info("Message search index caught up on {} messages", indexed);
+        }
+    }
+
+    private void addOverflow(IndexSegment.Builder builder) {
+        if (overflow.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(overflow);
+        overflow.removeAll(ids);
+        for (Message message : messageRepository.findAllById(ids)) {
+            addDocument(builder, message);
+        }
+    }
+
+    // Returns false for a message that is already indexed
+    private boolean addDocument(IndexSegment.Builder builder, Message message) {
+        long id = message.getId();
+        if (builder.contains(id)) {
+            return false;
+        }
+        for (IndexSegment segment : segments) {
+            if (segment.contains(id)) {
+                return false;
+            }
+        }
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        for (String token : tokenize(message.getSubject())) {
+            frequencies.merge(token, 2, Integer::sum);
+            length += 2;
+        }
+        for (String token : tokenize(message.getContent())) {
+            frequencies.merge(token, 1, Integer::sum);
+            length++;
+        }
+        Set<String> participants = new HashSet<>();
+        if (message.getSender() != null) {
+            participants.add(participantTerm(message.getSender()));
+        }
+        if (message.getRecipient() != null) {
+            participants.add(participantTerm(message.getRecipient()));
+        }
+        participants.forEach(term -> frequencies.put(term, 1));
+        builder.addDocument(id, frequencies, length);
+        return true;
+    }
+
+    // Only called on the indexer thread
+    private void publish(IndexSegment.Builder builder) throws IOException {
+        String name = "seg-" + (nextSegmentNumber++);
+        Path file = directory.resolve(name);
+        Path temp = directory.resolve(name + ".tmp");
+        builder.write(temp);
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+
+        List<IndexSegment> updated = new ArrayList<>(segments);
+        updated.add(IndexSegment.open(file));
+        commit(updated);
+
+        if (updated.size() > maxSegments) {
+            merge(updated);
+        }
+    }
+
+    private void merge(List<IndexSegment> current) throws IOException {
+        String name = "seg-" + (nextSegmentNumber++);
+        Path file = directory.resolve(name);
+        Path temp = directory.resolve(name + ".tmp");
+        IndexSegment.merge(current, temp);
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+
+        commit(List.of(IndexSegment.open(file)));
+        logger.info("Merged {} message index segments into {}", current.size(), name);
+        // A file that is still mapped cannot be deleted everywhere; open() removes it next time
+        for (IndexSegment segment : current) {
+            deleteQuietly(segment.getPath());
+        }
+    }
+
+    // Record the live segments in the manifest, then let searches see them
+    private void commit(List<IndexSegment> updated) throws IOException {
+        List<String> names = new ArrayList<>(updated.size());
+        for (IndexSegment segment : updated) {
+            names.add(segment.getPath().getFileName().toString());
+        }
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        Files.write(temp, names, StandardCharsets.UTF_8);
+        Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        segments = Collections.unmodifiableList(new ArrayList<>(updated));
+    }
+
+    // Lower-cased runs of letters and digits
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                if (token.length() <= MAX_TOKEN_LENGTH) {
+                    tokens.add(token.toString());
+                }
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private static String participantTerm(String email) {
+        return PARTICIPANT_PREFIX + email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static int segmentNumber(String name) {
+        try {
+            int end = name.indexOf('.');
+            return Integer.parseInt(end < 0 ? name.substring(4) : name.substring(4, end));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+}
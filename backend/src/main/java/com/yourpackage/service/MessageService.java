@@ -1,77 +1,151 @@
 package com.yourpackage.service;
 
+import com.yourpackage.dto.CursorPage;
 import com.yourpackage.model.Message;
 import com.yourpackage.repository.MessageRepository;
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
+import com.yourpackage.repository.UserRepository;
+import com.yourpackage.util.SearchCursor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class MessageService {
 
-    @Value("${jwt.secretKey}")
-    private String secretKey;
-
     @Autowired
     private MessageRepository messageRepository;
 
-    private static final Logger logger = LoggerFactory.getLogger(MessageService.class);
+    @Autowired
+    private UserRepository userRepository;
 
-    private Claims parseToken(String token) {
-        return Jwts.parser()
-                .setSigningKey(secretKey.getBytes())
-                .parseClaimsJws(token.replace("Bearer ", ""))
-                .getBody();
-    }
+    @Autowired
+    private MessageEventBroker messageEventBroker;
 
-    private String getEmailFromToken(String token) {
-        try {
-            return parseToken(token).getSubject();
-        } catch (Exception e) {
-            logger.error("Failed to parse token: {}", e.getMessage());
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid token");
-        }
-    }
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private MessageSearchIndex messageSearchIndex;
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageService.class);
 
-    public List<Message> getReceivedMessagesForUser(String token) {
+    private static final int MAX_SEARCH_RESULTS = 100;
+
+    // One page of the inbox, newest first. The cursor comes from the previous page's nextCursor.
+    public CursorPage<Message> getReceivedMessagesForUser(String userEmail, String cursor, Integer size) {
         logger.info("Fetching received messages for user");
 
-        String userEmail = getEmailFromToken(token);
+        SearchCursor after;
+        try {
+            after = cursor == null || cursor.isEmpty() ? null : SearchCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        int limit = CursorPage.clampSize(size);
 
+        List<Message> messages;
         try {
-            return messageRepository.findMessagesByRecipient(userEmail);
+            // One extra row tells whether there is a next page
+            PageRequest page = PageRequest.of(0, limit + 1);
+            messages = after == null
+                    ? messageRepository.findInbox(userEmail, page)
+                    : messageRepository.findInboxAfter(userEmail, after.getDate(), after.getId(), page);
         } catch (Exception e) {
             logger.error("Error fetching messages for recipient {}: {}", userEmail, e.getMessage());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error fetching messages");
         }
+
+        String nextCursor = null;
+        if (messages.size() > limit) {
+            messages = messages.subList(0, limit);
+            Message last = messages.get(limit - 1);
+            nextCursor = new SearchCursor(last.getTimestamp(), last.getId()).encode();
+        }
+        return new CursorPage<>(messages, nextCursor);
+    }
+
+    // Full-text search over the subject and content of the user's own messages, best match first.
+    // Messages saved in the last second or so may not be searchable yet.
+    public List<Message> searchMessages(String userEmail, String query, Integer size) {
+        logger.info("Searching messages for user");
+
+        if (query == null || query.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search text is required");
+        }
+        int limit = Math.min(CursorPage.clampSize(size), MAX_SEARCH_RESULTS);
+        List<MessageSearchIndex.Hit> hits = messageSearchIndex.search(userEmail, query, limit);
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (MessageSearchIndex.Hit hit : hits) {
+            ids.add(hit.getMessageId());
+        }
+        Map<Long, Message> byId = new HashMap<>();
+        for (Message message : messageRepository.findAllById(ids)) {
+            byId.put(message.getId(), message);
+        }
+
+        List<Message> results = new ArrayList<>(hits.size());
+        for (Long id : ids) {
+            Message message = byId.get(id);
+            if (message != null && (userEmail.equalsIgnoreCase(message.getSender()) || userEmail.equalsIgnoreCase(message.getRecipient()))) {
+                results.add(message);
+            }
+        }
+        return results;
+    }
+
+    // Kept as a counter on the recipient's user row, so this is a single indexed lookup
+    public int getUnreadCount(String userEmail) {
+        return userRepository.findUnreadMessages(userEmail).orElse(0);
     }
 
-    public Message saveMessage(Message message, String token) {
+    @Transactional
+    public Message saveMessage(Message message, String senderEmail) {
         logger.info("Saving message");
 
-        String senderEmail = getEmailFromToken(token);
         message.setSender(senderEmail);
+        message.setRead(false);
 
         try {
-            return messageRepository.save(message);
+            Message saved = messageRepository.save(message);
+            userRepository.incrementUnreadMessages(saved.getRecipient());
+            conversationService.messageSaved(saved);
+            messageSearchIndex.add(saved);
+
+            // Open inboxes hear about the message only after the commit, when it exists and is readable
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    messageEventBroker.publish(saved);
+                }
+            });
+            return saved;
         } catch (Exception e) {
             logger.error("Error saving message from {}: {}", senderEmail, e.getMessage());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error saving message");
         }
     }
 
-    public Message getMessageById(Long id, String token) {
+    // Opening a received message marks it read
+    @Transactional
+    public Message getMessageById(Long id, String userEmail) {
         logger.info("Fetching message with ID {}", id);
 
-        String userEmail = getEmailFromToken(token);
         Message message = messageRepository.findById(id)
                 .orElseThrow(() -> {
                     logger.error("Message with ID {} not found", id);
@@ -83,13 +157,39 @@ public class MessageService {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied");
         }
 
+        if (!message.isRead() && message.getRecipient().equals(userEmail)) {
+            markRead(message);
+        }
         return message;
     }
 
-    public List<Message> getConversation(String token, String otherUserEmail) {
-        logger.info("Fetching conversation between logged-in user and {}");
+    // Mark a received message read and return the caller's remaining unread count
+    @Transactional
+    public int markRead(Long id, String userEmail) {
+        logger.info("Marking message with ID {} as read", id);
 
-        String loggedInUserEmail = getEmailFromToken(token);
+        Message message = messageRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Message not found"));
+        if (!message.getRecipient().equals(userEmail)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied");
+        }
+
+        if (!message.isRead()) {
+            markRead(message);
+        }
+        return getUnreadCount(userEmail);
+    }
+
+    private void markRead(Message message) {
+        if (messageRepository.markRead(message.getId(), message.getRecipient()) == 1) {
+            userRepository.decrementUnreadMessages(message.getRecipient());
+            conversationService.messageRead(message);
+        }
+        message.setRead(true);
+    }
+
+    public List<Message> getConversation(String loggedInUserEmail, String otherUserEmail) {
+        logger.info("Fetching conversation between logged-in user and {}");
 
         try {
             return messageRepository.findConversationBetweenUsers(loggedInUserEmail, otherUserEmail);
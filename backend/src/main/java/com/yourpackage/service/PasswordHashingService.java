@@ -0,0 +1,122 @@
+package com.yourpackage.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.mindrot.jbcrypt.BCrypt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// BCrypt hashing and checking on a small dedicated pool, so a burst of logins cannot tie up every
+// request thread. When the pool and its queue are full the call fails straight away with 503.
+@Service
+public class PasswordHashingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    @Value("${password.bcrypt.cost:10}")
+    private int cost;
+
+    @Value("${password.hashing.threads:0}")
+    private int threads;
+
+    @Value("${password.hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${password.hashing.timeout-ms:10000}")
+    private long timeoutMillis;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        logger.info("Password hashing pool started with {} threads, queue {}, cost {}", poolSize, queueCapacity, cost);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    public String hash(String rawPassword) {
+        return run(() -> BCrypt.hashpw(rawPassword, BCrypt.gensalt(cost)));
+    }
+
+    public boolean matches(String rawPassword, String hashedPassword) {
+        if (rawPassword == null || hashedPassword == null) {
+            return false;
+        }
+        return run(() -> BCrypt.checkpw(rawPassword, hashedPassword));
+    }
+
+    // True when the stored hash was made with a different cost than the configured one
+    public boolean needsRehash(String hashedPassword) {
+        return costOf(hashedPassword) != cost;
+    }
+
+    // "$2a$10$..." -> 10, or -1 if the hash is not in BCrypt format
+    static int costOf(String hashedPassword) {
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(0) != '$') {
+            return -1;
+        }
+        int start = hashedPassword.indexOf('$', 1) + 1;
+        if (start <= 0 || start + 2 > hashedPassword.length()) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hashedPassword.substring(start, start + 2));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Password hashing pool saturated ({} queued)", executor.getQueue().size());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Server busy, please try again shortly.");
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            logger.warn("Password hashing timed out after {} ms", timeoutMillis);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Server busy, please try again shortly.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Server busy, please try again shortly.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
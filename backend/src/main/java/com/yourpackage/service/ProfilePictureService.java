@@ -0,0 +1,188 @@
+package com.yourpackage.service;
+
+import com.yourpackage.config.StartupTask;
+import com.yourpackage.util.ImageFormats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+// Profile pictures live in the BlobStore; a user row only keeps the hash of its picture.
+@Service
+public class ProfilePictureService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfilePictureService.class);
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private JsonDocumentCache jsonDocumentCache;
+
+    // The multipart limit is sized for spreadsheet uploads; pictures have their own, lower one
+    @Value("${profile-picture.max-bytes:10485760}")
+    private long maxBytes;
+
+    // A stored picture ready to be sent
+    public static class Picture {
+
+        private final String etag;
+        private final Path path;
+        private final long size;
+        private final String contentType;
+        private final boolean fallback;
+
+        Picture(String etag, Path path, long size, String contentType, boolean fallback) {
+            this.etag = etag;
+            this.path = path;
+            this.size = size;
+            this.contentType = contentType;
+            this.fallback = fallback;
+        }
+
+        // Getters
+
+        // Unquoted strong ETag: the blob hash, plus the variant for a thumbnail
+        public String getEtag() {
+            return etag;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        // True when a thumbnail was asked for but the original is sent because the thumbnail is not ready yet
+        public boolean isFallback() {
+            return fallback;
+        }
+    }
+
+    // Check the upload is an image, stream it into the store and return its hash
+    public String store(MultipartFile file) {
+        if (file.getSize() > maxBytes) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Profile picture must be at most " + maxBytes / (1024 * 1024) + " MB");
+        }
+        try {
+            String contentType;
+            try (InputStream in = file.getInputStream()) {
+                contentType = ImageFormats.detect(in);
+            }
+            if (contentType == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Profile picture must be a JPEG, PNG, GIF or WebP image");
+            }
+            String hash;
+            try (InputStream in = file.getInputStream()) {
+                hash = blobStore.put(in);
+            }
+            logger.info("Stored profile picture {} ({} bytes)", hash, file.getSize());
+            thumbnailService.generate(hash);
+            return hash;
+        } catch (IOException e) {
+            logger.error("Error storing profile picture: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error storing profile picture");
+        }
+    }
+
+    // The original picture, or with a size the square thumbnail closest to it. A thumbnail that is not
+    // ready yet is queued and the original is returned in its place.
+    public Picture getPicture(String hash, Integer size) {
+        if (!blobStore.exists(hash)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Picture not found");
+        }
+        if (size != null && size <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Size must be positive");
+        }
+
+        if (size != null) {
+            int variant = thumbnailService.variantFor(size);
+            if (thumbnailService.isReady(hash, variant)) {
+                return describe(hash + "-" + variant, blobStore.variantPath(hash, Integer.toString(variant)), false);
+            }
+            thumbnailService.generate(hash);
+        }
+        return describe(hash, blobStore.path(hash), size != null);
+    }
+
+    private Picture describe(String etag, Path path, boolean fallback) {
+        try (InputStream in = Files.newInputStream(path)) {
+            String contentType = ImageFormats.detect(in);
+            return new Picture(etag, path, Files.size(path),
+                    contentType != null ? contentType : "application/octet-stream", fallback);
+        } catch (IOException e) {
+            logger.error("Error reading profile picture {}: {}", path, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error reading picture");
+        }
+    }
+
+    // Pictures saved before the blob store are still in the old users.profile_picture column.
+    // Move each one into the store, record its hash and clear the column. Nothing to do on a new database.
+    @StartupTask
+    public void migrateLegacyPictures() {
+        List<Long> ids;
+        try {
+            ids = jdbcTemplate.queryForList("SELECT id FROM users WHERE profile_picture IS NOT NULL", Long.class);
+        } catch (DataAccessException e) {
+            logger.debug("No legacy profile picture column: {}", e.getMessage());
+            return;
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        logger.info("Moving {} profile pictures into the blob store", ids.size());
+        int moved = 0;
+        for (Long id : ids) {
+            try {
+                String hash = jdbcTemplate.query("SELECT profile_picture FROM users WHERE id = ?", rs -> {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    try (InputStream in = rs.getBinaryStream(1)) {
+                        return in == null ? null : blobStore.put(in);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, id);
+                jdbcTemplate.update("UPDATE users SET profile_picture_hash = ?, profile_picture = NULL, " +
+                        "version = version + 1 WHERE id = ?", hash, id);
+                moved++;
+            } catch (DataAccessException | UncheckedIOException e) {
+                logger.error("Could not move profile picture of user {}: {}", id, e.getMessage());
+            }
+        }
+        logger.info("Moved {} of {} profile pictures into the blob store", moved, ids.size());
+        entityCache.clear();
+        jsonDocumentCache.clear();
+    }
+}
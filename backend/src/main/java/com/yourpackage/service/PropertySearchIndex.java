@@ -0,0 +1,432 @@
+package com.yourpackage.service;
+
+import com.yourpackage.config.StartupTask;
+import com.yourpackage.model.Property;
+import com.yourpackage.repository.PropertyRepository;
+import com.yourpackage.util.FacilityVocabulary;
+import com.yourpackage.util.SearchCursor;
+import com.yourpackage.util.StringDictionary;
+import com.yourpackage.util.ValuationDates;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// In-memory columnar copy of the searchable property columns.
+// Each property occupies one slot; numbers live in primitive arrays and strings are dictionary-encoded,
+// so a search is a handful of passes over a bitmap of live slots instead of loading every entity.
+// A rebuild fills a new set of columns while searches keep using the current one, then swaps it in.
+@Component
+public class PropertySearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(PropertySearchIndex.class);
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock; replaced as a whole by rebuild
+    private Columns columns = new Columns();
+
+    // Writes made while a rebuild is scanning, replayed onto the new columns before they are swapped in.
+    // Null when no rebuild is running. Guarded by lock.
+    private List<Consumer<Columns>> pendingWrites;
+
+    // One rebuild at a time
+    private final ReentrantLock rebuilding = new ReentrantLock();
+
+    // The table is scanned into fresh columns without the lock, so searches go on meanwhile; only the
+    // replay of concurrent writes and the swap hold the write lock.
+    @StartupTask
+    public void rebuild() {
+        logger.info("Rebuilding property search index");
+
+        rebuilding.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                pendingWrites = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Columns fresh = new Columns();
+            List<Property> batch = propertyRepository.findFirst1000ByIdGreaterThanOrderByIdAsc(0L);
+            while (!batch.isEmpty()) {
+                for (Property property : batch) {
+                    fresh.put(property);
+                }
+                if (batch.size() < REBUILD_BATCH_SIZE) {
+                    break;
+                }
+                Long lastId = batch.get(batch.size() - 1).getId();
+                batch = propertyRepository.findFirst1000ByIdGreaterThanOrderByIdAsc(lastId);
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (Consumer<Columns> write : pendingWrites) {
+                    write.accept(fresh);
+                }
+                columns = fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Property search index rebuilt with {} properties", fresh.size());
+        } finally {
+            // Also reached when the scan fails, which leaves the current columns in place
+            lock.writeLock().lock();
+            try {
+                pendingWrites = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            rebuilding.unlock();
+        }
+    }
+
+    // Add the property to the index, or refresh its row if it is already indexed
+    public void upsert(Property property) {
+        if (property == null || property.getId() == null) {
+            return;
+        }
+        write(target -> target.put(property));
+    }
+
+    public void remove(Long id) {
+        write(target -> target.remove(id));
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return columns.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Return the next page of matching property ids, newest valuation first (id descending as tie-breaker).
+    // The page starts strictly after the cursor position when a cursor is given.
+    public Hits search(SearchFilters filters, SearchCursor after, int limit) {
+        long[] valuationRange = filters.getDateOfValuation() == null
+                ? null
+                : ValuationDates.prefixRange(filters.getDateOfValuation());
+
+        lock.readLock().lock();
+        try {
+            return columns.search(filters, after, limit, valuationRange);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Consumer<Columns> write) {
+        lock.writeLock().lock();
+        try {
+            write.accept(columns);
+            if (pendingWrites != null) {
+                pendingWrites.add(write);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // One page of search hits plus the cursor for the following page (null when there is none)
+    public static class Hits {
+
+        private final long[] ids;
+        private final SearchCursor nextCursor;
+
+        Hits(long[] ids, SearchCursor nextCursor) {
+            this.ids = ids;
+            this.nextCursor = nextCursor;
+        }
+
+        public long[] getIds() {
+            return ids;
+        }
+
+        public SearchCursor getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    // The index data. Not thread-safe: the owner's lock guards the published instance, and a rebuild
+    // fills a new one that no other thread sees yet.
+    private static final class Columns {
+
+        private final Map<Long, Integer> slotsById = new HashMap<>();
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();
+        private final BitSet live = new BitSet();
+        private int slotCount;
+
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private double[] prices = new double[INITIAL_CAPACITY];
+        private double[] pricesPerSqft = new double[INITIAL_CAPACITY];
+        private int[] years = new int[INITIAL_CAPACITY];
+        private int[] floors = new int[INITIAL_CAPACITY];
+        private long[] valuationDates = new long[INITIAL_CAPACITY];
+        private int[] sizeCodes = new int[INITIAL_CAPACITY];
+        private int[] typeCodes = new int[INITIAL_CAPACITY];
+        private int[] addressCodes = new int[INITIAL_CAPACITY];
+        private int[] projectCodes = new int[INITIAL_CAPACITY];
+        private int[] facilityCodes = new int[INITIAL_CAPACITY];
+
+        private final StringDictionary sizeDictionary = new StringDictionary();
+        private final StringDictionary typeDictionary = new StringDictionary();
+        private final StringDictionary addressDictionary = new StringDictionary();
+        private final StringDictionary projectDictionary = new StringDictionary();
+        private final StringDictionary facilityDictionary = new StringDictionary();
+
+        // Inverted index: facility token -> slots of the properties that list it
+        private final Map<String, BitSet> facilityPostings = new HashMap<>();
+
+        int size() {
+            return slotsById.size();
+        }
+
+        Hits search(SearchFilters filters, SearchCursor after, int limit, long[] valuationRange) {
+            BitSet hits = (BitSet) live.clone();
+
+            retainCode(hits, sizeCodes, sizeDictionary, filters.getSizeSqFt());
+            retainCode(hits, typeCodes, typeDictionary, filters.getPropertyType());
+            retainCode(hits, addressCodes, addressDictionary, filters.getAddress());
+            retainContaining(hits, projectCodes, projectDictionary, filters.getProjectName());
+            retainFacilities(hits, filters.getFacilities());
+
+            if (filters.getNoOfFloors() != null) {
+                retainEqual(hits, floors, filters.getNoOfFloors());
+            }
+            if (filters.getYear() != null) {
+                retainEqual(hits, years, filters.getYear());
+            }
+            if (filters.hasMinPrice() || filters.hasMaxPrice()) {
+                retainRange(hits, prices,
+                        filters.hasMinPrice() ? filters.getMinPrice() : Double.NEGATIVE_INFINITY,
+                        filters.getMaxPrice());
+            }
+            if (filters.hasMinPricePerSqft() || filters.hasMaxPricePerSqft()) {
+                retainRange(hits, pricesPerSqft,
+                        filters.hasMinPricePerSqft() ? filters.getMinPricePerSqft() : Double.NEGATIVE_INFINITY,
+                        filters.getMaxPricePerSqft());
+            }
+            if (valuationRange != null) {
+                retainDateRange(hits, valuationRange[0], valuationRange[1]);
+            }
+            if (after != null) {
+                retainAfter(hits, after);
+            }
+
+            return firstPage(hits, limit);
+        }
+
+        // Write path
+
+        void put(Property property) {
+            Integer slot = slotsById.get(property.getId());
+            if (slot == null) {
+                slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+                ensureCapacity(slot + 1);
+                slotsById.put(property.getId(), slot);
+                live.set(slot);
+            } else {
+                unpostFacilities(slot);
+            }
+
+            ids[slot] = property.getId();
+            prices[slot] = property.getPrice();
+            pricesPerSqft[slot] = property.getPricePerSqft();
+            years[slot] = property.getYear();
+            floors[slot] = property.getNoOfFloors();
+            valuationDates[slot] = property.getDateOfValuation() == null ? NO_DATE : property.getDateOfValuation().getTime();
+            sizeCodes[slot] = sizeDictionary.encode(property.getSizeSqFt());
+            typeCodes[slot] = typeDictionary.encode(property.getPropertyType());
+            addressCodes[slot] = addressDictionary.encode(property.getAddress());
+            projectCodes[slot] = projectDictionary.encode(property.getProjectName());
+            facilityCodes[slot] = facilityDictionary.encode(property.getFacilities());
+            for (String token : FacilityVocabulary.tokenize(property.getFacilities())) {
+                facilityPostings.computeIfAbsent(token, t -> new BitSet()).set(slot);
+            }
+        }
+
+        private void unpostFacilities(int slot) {
+            for (String token : FacilityVocabulary.tokenize(facilityDictionary.decode(facilityCodes[slot]))) {
+                BitSet posting = facilityPostings.get(token);
+                if (posting != null) {
+                    posting.clear(slot);
+                    if (posting.isEmpty()) {
+                        facilityPostings.remove(token);
+                    }
+                }
+            }
+        }
+
+        void remove(Long id) {
+            Integer slot = slotsById.remove(id);
+            if (slot != null) {
+                unpostFacilities(slot);
+                live.clear(slot);
+                freeSlots.push(slot);
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= ids.length) {
+                return;
+            }
+            int newCapacity = Math.max(capacity, ids.length * 2);
+            ids = Arrays.copyOf(ids, newCapacity);
+            prices = Arrays.copyOf(prices, newCapacity);
+            pricesPerSqft = Arrays.copyOf(pricesPerSqft, newCapacity);
+            years = Arrays.copyOf(years, newCapacity);
+            floors = Arrays.copyOf(floors, newCapacity);
+            valuationDates = Arrays.copyOf(valuationDates, newCapacity);
+            sizeCodes = Arrays.copyOf(sizeCodes, newCapacity);
+            typeCodes = Arrays.copyOf(typeCodes, newCapacity);
+            addressCodes = Arrays.copyOf(addressCodes, newCapacity);
+            projectCodes = Arrays.copyOf(projectCodes, newCapacity);
+            facilityCodes = Arrays.copyOf(facilityCodes, newCapacity);
+        }
+
+        // Read path
+
+        private void retainCode(BitSet hits, int[] column, StringDictionary dictionary, String value) {
+            if (value == null) {
+                return;
+            }
+            int code = dictionary.lookup(value);
+            if (code == StringDictionary.NULL_CODE) {
+                hits.clear();
+                return;
+            }
+            for (int slot = hits.nextSetBit(0); slot >= 0; slot = hits.nextSetBit(slot + 1)) {
+                if (column[slot] != code) {
+                    hits.clear(slot);
+                }
+            }
+        }
+
+        private void retainContaining(BitSet hits, int[] column, StringDictionary dictionary, String value) {
+            if (value == null) {
+                return;
+            }
+            String needle = StringDictionary.normalize(value);
+            BitSet codes = dictionary.matching(candidate -> candidate.contains(needle));
+            for (int slot = hits.nextSetBit(0); slot >= 0; slot = hits.nextSetBit(slot + 1)) {
+                int code = column[slot];
+                if (code == StringDictionary.NULL_CODE || !codes.get(code)) {
+                    hits.clear(slot);
+                }
+            }
+        }
+
+        // Every comma-separated facility in the filter must match: each one is the union of the postings of
+        // the tokens containing it (so "gym" still finds "Gymnasium"), and the facilities are intersected
+        private void retainFacilities(BitSet hits, String value) {
+            if (value == null) {
+                return;
+            }
+            for (String wanted : FacilityVocabulary.tokenize(value)) {
+                BitSet matching = new BitSet();
+                for (Map.Entry<String, BitSet> posting : facilityPostings.entrySet()) {
+                    if (posting.getKey().contains(wanted)) {
+                        matching.or(posting.getValue());
+                    }
+                }
+                hits.and(matching);
+            }
+        }
+
+        private void retainEqual(BitSet hits, int[] column, int value) {
+            for (int slot = hits.nextSetBit(0); slot >= 0; slot = hits.nextSetBit(slot + 1)) {
+                if (column[slot] != value) {
+                    hits.clear(slot);
+                }
+            }
+        }
+
+        private void retainRange(BitSet hits, double[] column, double min, double max) {
+            for (int slot = hits.nextSetBit(0); slot >= 0; slot = hits.nextSetBit(slot + 1)) {
+                if (column[slot] < min || column[slot] > max) {
+                    hits.clear(slot);
+                }
+            }
+        }
+
+        private void retainAfter(BitSet hits, SearchCursor after) {
+            long afterDate = after.getValuationTime() == null ? NO_DATE : after.getValuationTime();
+            long afterId = after.getId();
+            for (int slot = hits.nextSetBit(0); slot >= 0; slot = hits.nextSetBit(slot + 1)) {
+                long date = valuationDates[slot];
+                if (date > afterDate || (date == afterDate && ids[slot] >= afterId)) {
+                    hits.clear(slot);
+                }
+            }
+        }
+
+        // Negative when slot a sorts before slot b. NO_DATE is the smallest value, so undated rows come last.
+        private int compareSlots(int a, int b) {
+            int byDate = Long.compare(valuationDates[b], valuationDates[a]);
+            return byDate != 0 ? byDate : Long.compare(ids[b], ids[a]);
+        }
+
+        // Select the first `limit` hits in search order with a bounded heap, instead of sorting every hit
+        private Hits firstPage(BitSet hits, int limit) {
+            PriorityQueue<Integer> page = new PriorityQueue<>(limit + 1, (a, b) -> compareSlots(b, a));
+            boolean more = false;
+            for (int slot = hits.nextSetBit(0); slot >= 0; slot = hits.nextSetBit(slot + 1)) {
+                if (page.size() < limit) {
+                    page.offer(slot);
+                } else {
+                    more = true;
+                    if (compareSlots(slot, page.peek()) < 0) {
+                        page.poll();
+                        page.offer(slot);
+                    }
+                }
+            }
+
+            long[] result = new long[page.size()];
+            SearchCursor nextCursor = null;
+            for (int i = result.length - 1; i >= 0; i--) {
+                int slot = page.poll();
+                result[i] = ids[slot];
+                if (more && i == result.length - 1) {
+                    Date date = valuationDates[slot] == NO_DATE ? null : new Date(valuationDates[slot]);
+                    nextCursor = new SearchCursor(date, ids[slot]);
+                }
+            }
+            return new Hits(result, nextCursor);
+        }
+
+        private void retainDateRange(BitSet hits, long from, long to) {
+            for (int slot = hits.nextSetBit(0); slot >= 0; slot = hits.nextSetBit(slot + 1)) {
+                long date = valuationDates[slot];
+                if (date == NO_DATE || date < from || date >= to) {
+                    hits.clear(slot);
+                }
+            }
+        }
+    }
+}
@@ -1,14 +1,14 @@
 package com.yourpackage.service;
 
+import com.yourpackage.dto.AuthenticatedUser;
+import com.yourpackage.dto.CursorPage;
 import com.yourpackage.model.User;
-import com.yourpackage.repository.UserRepository;
 import com.yourpackage.exception.UnauthorizedException;
 import com.yourpackage.model.Property;
 import com.yourpackage.repository.PropertyRepository;
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
+import com.yourpackage.util.EntityTag;
+import com.yourpackage.util.SearchCursor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -16,118 +16,204 @@ import org.springframework.web.server.ResponseStatusException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 public class PropertyService {
 
     @Autowired
-    private UserRepository userRepository;
+    private PropertyRepository propertyRepository;
 
     @Autowired
-    private PropertyRepository propertyRepository;
+    private PropertySearchIndex propertySearchIndex;
 
-    @Value("${jwt.secretKey}")
-    private String secretKey;
+    @Autowired
+    private SuggestionService suggestionService;
 
-    private static final Logger logger = LoggerFactory.getLogger(PropertyService.class);
+    @Autowired
+    private FavoriteIdCache favoriteIdCache;
 
-    private Claims parseToken(String token) {
-        return Jwts.parser()
-                .setSigningKey(secretKey.getBytes())
-                .parseClaimsJws(token.replace("Bearer ", ""))
-                .getBody();
-    }
-    
+    @Autowired
+    private EntityCache entityCache;
 
-    public String getRoleFromToken(String token) {
-        return parseToken(token).get("role", String.class);
-    }
+    @Autowired
+    private JsonDocumentCache jsonDocumentCache;
 
-    public Long getUserIdFromToken(String token) {
-        return Long.parseLong(parseToken(token).get("id", String.class));
-    }
+    private static final Logger logger = LoggerFactory.getLogger(PropertyService.class);
+
+    private static final int LOAD_CHUNK_SIZE = 1000;
 
-    public List<Property> searchProperties(String sizeSqFt, String propertyType, Integer noOfFloors, String address,
-                                           String projectName, double minPrice, double maxPrice, Integer year,
-                                           double minPricePerSqft, double maxPricePerSqft, String facilities,
-                                           String dateOfValuation) {
+    public CursorPage<Property> searchProperties(SearchFilters filters, String cursor, Integer size) {
         logger.info("Searching properties with provided filters");
 
         try {
-            List<Property> properties = propertyRepository.findAll();
-
-            return properties.stream()
-                    .filter(property -> (sizeSqFt == null || property.getSizeSqFt().equalsIgnoreCase(sizeSqFt)))
-                    .filter(property -> (propertyType == null || property.getPropertyType().equalsIgnoreCase(propertyType)))
-                    .filter(property -> (noOfFloors == null || property.getNoOfFloors() == noOfFloors))
-                    .filter(property -> (address == null || property.getAddress().equalsIgnoreCase(address)))
-                    .filter(property -> (projectName == null || property.getProjectName().toLowerCase().contains(projectName.toLowerCase())))
-                    .filter(property -> (minPrice == 0 || property.getPrice() >= minPrice))
-                    .filter(property -> (maxPrice == Double.MAX_VALUE || property.getPrice() <= maxPrice))
-                    .filter(property -> (year == null || property.getYear() == year))
-                    .filter(property -> (minPricePerSqft == 0 || property.getPricePerSqft() >= minPricePerSqft))
-                    .filter(property -> (maxPricePerSqft == Double.MAX_VALUE || property.getPricePerSqft() <= maxPricePerSqft))
-                    .filter(property -> (facilities == null || property.getFacilities().toLowerCase().contains(facilities.toLowerCase())))
-                    .filter(property -> (dateOfValuation == null || property.getDateOfValuation().toString().startsWith(dateOfValuation)))
-                    .collect(Collectors.toList());
-
+            PropertySearchIndex.Hits hits = search(filters, cursor, size);
+            String nextCursor = hits.getNextCursor() == null ? null : hits.getNextCursor().encode();
+            return new CursorPage<>(loadProperties(hits.getIds()), nextCursor);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid property search filter: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (Exception e) {
             logger.error("Error occurred while filtering properties: {}", e.getMessage());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error occurred while filtering properties");
         }
     }
 
+    // ETag of the page searchProperties would return, from the search index and the version columns only
+    public String getSearchTag(SearchFilters filters, String cursor, Integer size) {
+        try {
+            PropertySearchIndex.Hits hits = search(filters, cursor, size);
+            long[] ids = hits.getIds();
+            List<Long> idList = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                idList.add(id);
+            }
+            Map<Long, Object[]> versions = new HashMap<>();
+            if (!idList.isEmpty()) {
+                for (Object[] row : propertyRepository.findVersionsByIdIn(idList)) {
+                    versions.put((Long) row[0], row);
+                }
+            }
+
+            // Same rows in the same order as the page: ids that no longer exist are skipped by both
+            EntityTag tag = new EntityTag("properties");
+            for (long id : ids) {
+                Object[] row = versions.get(id);
+                if (row != null) {
+                    addToTag(tag, id, (Long) row[1], (Long) row[2]);
+                }
+            }
+            return tag.add(hits.getNextCursor() == null ? null : hits.getNextCursor().encode()).build();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    public static String tagOf(CursorPage<Property> page) {
+        EntityTag tag = new EntityTag("properties");
+        for (Property property : page.getItems()) {
+            addToTag(tag, property.getId(), property.getVersion(),
+                    property.getAgent() == null ? null : property.getAgent().getVersion());
+        }
+        return tag.add(page.getNextCursor()).build();
+    }
+
+    private static void addToTag(EntityTag tag, long id, long version, Long agentVersion) {
+        tag.add(id).add(version).add(agentVersion == null ? -1 : agentVersion);
+    }
+
+    private PropertySearchIndex.Hits search(SearchFilters filters, String cursor, Integer size) {
+        SearchCursor after = cursor == null ? null : SearchCursor.decode(cursor);
+        return propertySearchIndex.search(filters, after, CursorPage.clampSize(size));
+    }
+
+    // Load the entities for the given ids in the same order, in chunks that stay under SQL Server's parameter limit.
+    // Ids that no longer exist (e.g. removed by a cascade) are dropped from the search index.
+    List<Property> loadProperties(long[] ids) {
+        List<Property> result = new ArrayList<>(ids.length);
+        for (int from = 0; from < ids.length; from += LOAD_CHUNK_SIZE) {
+            int to = Math.min(from + LOAD_CHUNK_SIZE, ids.length);
+            List<Long> chunk = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                chunk.add(ids[i]);
+            }
+
+            Map<Long, Property> loaded = new HashMap<>();
+            for (Property property : propertyRepository.findAllById(chunk)) {
+                loaded.put(property.getId(), property);
+            }
+            for (Long id : chunk) {
+                Property property = loaded.get(id);
+                if (property != null) {
+                    result.add(property);
+                } else {
+                    logger.warn("Property with ID {} is indexed but no longer exists, removing it from the index", id);
+                    propertySearchIndex.remove(id);
+                }
+            }
+        }
+        return result;
+    }
+
+    public List<String> getProjectNameSuggestions(String query, Integer limit) {
+        logger.info("Fetching property project name suggestions for query: {}", query);
+        return suggestionService.suggestPropertyProjectNames(query, limit != null ? limit : SuggestionService.DEFAULT_LIMIT);
+    }
+
+    public List<String> getPropertyTypeSuggestions(String query, Integer limit) {
+        logger.info("Fetching property type suggestions for query: {}", query);
+        return suggestionService.suggestPropertyTypes(query, limit != null ? limit : SuggestionService.DEFAULT_LIMIT);
+    }
+
+    public Map<String, Integer> getFacilityVocabulary() {
+        logger.info("Fetching property facility vocabulary");
+        return suggestionService.getPropertyFacilities();
+    }
+
     public Property getPropertyById(Long id) {
         logger.info("Fetching property with ID {}", id);
 
-        return propertyRepository.findById(id)
+        return entityCache.findProperty(id)
                 .orElseThrow(() -> {
                     logger.error("Property with ID {} not found", id);
                     return new ResponseStatusException(HttpStatus.NOT_FOUND, "Property not found");
                 });
     }
 
-    public Property addProperty(Property property, String token) {
+    // ETag of a property from its version columns, without loading the row. The agent's version is
+    // part of it because the property's JSON embeds the agent.
+    public String getPropertyTag(Long id) {
+        List<Object[]> versions = propertyRepository.findVersionsByIdIn(List.of(id));
+        if (versions.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Property not found");
+        }
+        Object[] row = versions.get(0);
+        return EntityTag.of("property", id, row[1], row[2]);
+    }
+
+    public static String tagOf(Property property) {
+        return EntityTag.of("property", property.getId(), property.getVersion(),
+                property.getAgent() == null ? null : property.getAgent().getVersion());
+    }
+
+    public Property addProperty(Property property, Long agentId) {
         logger.info("Adding a new property");
 
-        String email = parseToken(token).getSubject();
-        User agent = userRepository.findByEmail(email)
+        // A detached copy is enough: only its id is written as the foreign key
+        User agent = entityCache.findUser(agentId)
                 .orElseThrow(() -> {
-                    logger.error("Agent with email {} not found", email);
+                    logger.error("Agent with ID {} not found", agentId);
                     return new ResponseStatusException(HttpStatus.NOT_FOUND, "Agent not found");
                 });
 
         property.setAgent(agent);
 
         try {
-            return propertyRepository.save(property);
+            Property savedProperty = propertyRepository.save(property);
+            propertySearchIndex.upsert(savedProperty);
+            suggestionService.propertyAdded(savedProperty);
+            return savedProperty;
         } catch (Exception e) {
             logger.error("Error saving property: {}", e.getMessage());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error saving property");
         }
     }
 
-    public List<Property> getPropertiesByAgent(String token) {
-        logger.info("Fetching properties for the agent");
-
-        String email = parseToken(token).getSubject();
-        User agent = userRepository.findByEmail(email)
-                .orElseThrow(() -> {
-                    logger.error("Agent with email {} not found", email);
-                    return new ResponseStatusException(HttpStatus.NOT_FOUND, "Agent not found");
-                });
+    public List<Property> getPropertiesByAgent(Long agentId) {
+        logger.info("Fetching properties for agent ID {}", agentId);
 
         try {
-            return propertyRepository.findByAgent(agent);
+            return entityCache.findProperties(propertyRepository.findIdsByAgentId(agentId));
         } catch (Exception e) {
             logger.error("Error fetching properties for agent: {}", e.getMessage());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error fetching properties");
         }
     }
 
-    public Property updateProperty(Long id, Property updatedProperty, String token) {
+    public Property updateProperty(Long id, Property updatedProperty) {
         logger.info("Updating property with ID {}", id);
 
         Property existingProperty = propertyRepository.findById(id)
@@ -136,6 +222,10 @@ public class PropertyService {
                     return new ResponseStatusException(HttpStatus.NOT_FOUND, "Property not found");
                 });
 
+        String oldProjectName = existingProperty.getProjectName();
+        String oldPropertyType = existingProperty.getPropertyType();
+        String oldFacilities = existingProperty.getFacilities();
+
         try {
             existingProperty.setSizeSqFt(updatedProperty.getSizeSqFt());
             existingProperty.setPropertyType(updatedProperty.getPropertyType());
@@ -148,24 +238,34 @@ public class PropertyService {
             existingProperty.setFacilities(updatedProperty.getFacilities());
             existingProperty.setDateOfValuation(updatedProperty.getDateOfValuation());
 
-            return propertyRepository.save(existingProperty);
+            Property savedProperty = propertyRepository.save(existingProperty);
+            entityCache.propertyChanged(id);
+            jsonDocumentCache.propertyChanged(id);
+            propertySearchIndex.upsert(savedProperty);
+            suggestionService.propertyUpdated(oldProjectName, oldPropertyType, oldFacilities, savedProperty);
+            return savedProperty;
         } catch (Exception e) {
             logger.error("Error updating property: {}", e.getMessage());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error updating property");
         }
     }
 
-    public void deleteProperty(Long id, String token) {
+    public void deleteProperty(Long id, AuthenticatedUser caller) {
         logger.info("Attempting to delete property with ID {}", id);
 
-        String role = getRoleFromToken(token);
-
-        if (!"ADMIN".equals(role)) {
+        if (!caller.isAdmin()) {
             throw new UnauthorizedException("Only ADMIN users can delete properties");
         }
 
         try {
-            propertyRepository.deleteById(id);
+            propertyRepository.findById(id).ifPresent(property -> {
+                propertyRepository.delete(property);
+                suggestionService.propertyDeleted(property);
+            });
+            entityCache.propertyChanged(id);
+            jsonDocumentCache.propertyChanged(id);
+            propertySearchIndex.remove(id);
+            favoriteIdCache.propertyDeleted(id);
             logger.info("Property with ID {} deleted successfully", id);
         } catch (Exception e) {
             logger.error("Error deleting property: {}", e.getMessage());
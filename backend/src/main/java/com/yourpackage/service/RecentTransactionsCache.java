@@ -0,0 +1,157 @@
+package com.yourpackage.service;
+
+import com.yourpackage.model.Transaction;
+import com.yourpackage.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// The N most recent transactions of each project (by valuation date), served from memory after the first read.
+// Writes are applied to cached projects in place; projects are evicted least recently used past max-projects.
+@Component
+public class RecentTransactionsCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecentTransactionsCache.class);
+
+    // Newest valuation first, undated last, id as tie-breaker (same order as the search)
+    private static final Comparator<Transaction> RECENCY = Comparator
+            .comparing(Transaction::getDateOfValuation, Comparator.nullsFirst(Comparator.<Date>naturalOrder()))
+            .thenComparing(Transaction::getId, Comparator.nullsFirst(Comparator.<Long>naturalOrder()))
+            .reversed();
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Value("${transactions.recent.size:5}")
+    private int size;
+
+    @Value("${transactions.recent.max-projects:10000}")
+    private int maxProjects;
+
+    private final Map<String, Recent> projects = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Recent> eldest) {
+            return size() > maxProjects;
+        }
+    };
+
+    // Bumped on every write; a cold load is only cached if no write raced with it
+    private long writeGeneration;
+
+    // Fixed-capacity buffer kept in RECENCY order
+    private static class Recent {
+        final Transaction[] items;
+        int count;
+
+        Recent(int capacity, List<Transaction> newestFirst) {
+            items = new Transaction[capacity];
+            for (Transaction transaction : newestFirst) {
+                if (count == capacity) {
+                    break;
+                }
+                items[count++] = transaction;
+            }
+        }
+
+        // Only called while the buffer still holds the full top N, so anything ranked below it can be dropped
+        void offer(Transaction transaction) {
+            int at = count;
+            while (at > 0 && RECENCY.compare(transaction, items[at - 1]) < 0) {
+                at--;
+            }
+            if (at == items.length) {
+                return;
+            }
+            int end = Math.min(count, items.length - 1);
+            System.arraycopy(items, at, items, at + 1, end - at);
+            items[at] = transaction;
+            count = Math.min(count + 1, items.length);
+        }
+
+        boolean contains(Long id) {
+            for (int i = 0; i < count; i++) {
+                if (items[i].getId().equals(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        List<Transaction> snapshot() {
+            return new ArrayList<>(Arrays.asList(items).subList(0, count));
+        }
+    }
+
+    public List<Transaction> getRecent(String projectName) {
+        String key = key(projectName);
+        long generation;
+        synchronized (this) {
+            Recent recent = projects.get(key);
+            if (recent != null) {
+                return recent.snapshot();
+            }
+            generation = writeGeneration;
+        }
+
+        logger.info("Recent transactions cache miss for project {}", projectName);
+        List<Transaction> loaded = transactionRepository.findTop5ByProjectNameOrderByDateOfValuationDesc(
+                projectName, PageRequest.of(0, size));
+
+        synchronized (this) {
+            if (generation == writeGeneration) {
+                projects.put(key, new Recent(size, loaded));
+            }
+        }
+        return loaded;
+    }
+
+    // Write hooks
+
+    public synchronized void transactionAdded(Transaction transaction) {
+        writeGeneration++;
+        Recent recent = peek(transaction.getProjectName());
+        if (recent != null) {
+            recent.offer(transaction);
+        }
+    }
+
+    public synchronized void transactionUpdated(Transaction before, Transaction after) {
+        transactionRemoved(before);
+        transactionAdded(after);
+    }
+
+    // Dropping a buffered row leaves a gap only the database can fill, so the project is reloaded on next read
+    public synchronized void transactionRemoved(Transaction transaction) {
+        writeGeneration++;
+        Recent recent = peek(transaction.getProjectName());
+        if (recent != null && recent.contains(transaction.getId())) {
+            projects.remove(key(transaction.getProjectName()));
+        }
+    }
+
+    public synchronized void clear() {
+        writeGeneration++;
+        projects.clear();
+    }
+
+    // Writes go through the same LRU map, a project that is being written to is worth keeping
+    private Recent peek(String projectName) {
+        return projectName == null ? null : projects.get(key(projectName));
+    }
+
+    private static String key(String projectName) {
+        return projectName == null ? "" : projectName.trim().toLowerCase(Locale.ROOT);
+    }
+}
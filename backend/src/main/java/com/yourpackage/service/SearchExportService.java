@@ -0,0 +1,176 @@
+package com.yourpackage.service;
+
+import com.yourpackage.model.Property;
+import com.yourpackage.model.Transaction;
+import com.yourpackage.repository.TransactionRepository;
+import com.yourpackage.util.CsvRowWriter;
+import com.yourpackage.util.SearchCursor;
+import com.yourpackage.util.SheetRowWriter;
+import com.yourpackage.util.XlsxRowWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+
+// Streams the full result of a property or transaction search into a CSV or XLSX download.
+// Rows are fetched in keyset chunks (the same cursor the paged search uses) and written as they arrive,
+// and the persistence context is cleared after each chunk, so memory does not grow with the result size.
+@Service
+public class SearchExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchExportService.class);
+
+    private static final int CHUNK_SIZE = 1000;
+
+    // Header names match the ones SpreadsheetImportService recognises, so an export can be re-imported
+    private static final Object[] HEADER = {"ID", "Project Name", "Property Type", "Size Sq Ft", "No Of Floors",
+            "Address", "Price", "Year", "Price Per Sqft", "Facilities", "Date Of Valuation"};
+
+    public enum Format {
+        CSV("text/csv; charset=UTF-8", "csv"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        // "csv" (the default when null) or "xlsx", case-insensitive
+        public static Format parse(String value) {
+            if (value == null || value.isBlank()) {
+                return CSV;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Export format must be csv or xlsx");
+            }
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    @Autowired
+    private PropertySearchIndex propertySearchIndex;
+
+    @Autowired
+    private PropertyService propertyService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public long exportProperties(SearchFilters filters, Format format, OutputStream out) throws IOException {
+        logger.info("Exporting property search as {}", format);
+
+        // Run the first chunk before anything is written, so a bad filter can still become a 400
+        PropertySearchIndex.Hits hits = searchProperties(filters, null);
+        long rows = 0;
+        try (SheetRowWriter writer = open(format, out, "Properties")) {
+            while (true) {
+                for (Property property : propertyService.loadProperties(hits.getIds())) {
+                    writer.row(property.getId(), property.getProjectName(), property.getPropertyType(),
+                            property.getSizeSqFt(), property.getNoOfFloors(), property.getAddress(), property.getPrice(),
+                            property.getYear(), property.getPricePerSqft(), property.getFacilities(),
+                            property.getDateOfValuation());
+                    rows++;
+                }
+                chunkWritten(writer);
+                if (hits.getNextCursor() == null) {
+                    break;
+                }
+                hits = searchProperties(filters, hits.getNextCursor());
+            }
+        }
+        logger.info("Exported {} properties", rows);
+        return rows;
+    }
+
+    public long exportTransactions(SearchFilters filters, Format format, OutputStream out) throws IOException {
+        logger.info("Exporting transaction search as {}", format);
+
+        Specification<Transaction> matching = matchingTransactions(filters);
+        List<Transaction> chunk = transactionChunk(matching, null);
+        long rows = 0;
+        try (SheetRowWriter writer = open(format, out, "Transactions")) {
+            while (true) {
+                for (Transaction transaction : chunk) {
+                    writer.row(transaction.getId(), transaction.getProjectName(), transaction.getPropertyType(),
+                            transaction.getSizeSqFt(), transaction.getNoOfFloors(), transaction.getAddress(),
+                            transaction.getPrice(), transaction.getYear(), transaction.getPricePerSqft(),
+                            transaction.getFacilities(), transaction.getDateOfValuation());
+                    rows++;
+                }
+                chunkWritten(writer);
+                if (chunk.size() < CHUNK_SIZE) {
+                    break;
+                }
+                Transaction last = chunk.get(chunk.size() - 1);
+                chunk = transactionChunk(matching, new SearchCursor(last.getDateOfValuation(), last.getId()));
+            }
+        }
+        logger.info("Exported {} transactions", rows);
+        return rows;
+    }
+
+    private SheetRowWriter open(Format format, OutputStream out, String sheetName) throws IOException {
+        if (format == Format.XLSX) {
+            // Commit the response headers now; the workbook itself is only written out on close
+            out.flush();
+            return new XlsxRowWriter(out, sheetName, HEADER);
+        }
+        return new CsvRowWriter(out, HEADER);
+    }
+
+    private void chunkWritten(SheetRowWriter writer) throws IOException {
+        entityManager.clear();
+        if (writer instanceof CsvRowWriter) {
+            ((CsvRowWriter) writer).flush();
+        }
+    }
+
+    private PropertySearchIndex.Hits searchProperties(SearchFilters filters, SearchCursor after) {
+        try {
+            return propertySearchIndex.search(filters, after, CHUNK_SIZE);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private Specification<Transaction> matchingTransactions(SearchFilters filters) {
+        try {
+            return TransactionSpecifications.matching(filters);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private List<Transaction> transactionChunk(Specification<Transaction> matching, SearchCursor after) {
+        Specification<Transaction> specification = after == null
+                ? matching
+                : matching.and(TransactionSpecifications.after(after));
+        return transactionRepository.findBy(specification,
+                query -> query.sortBy(TransactionSpecifications.SEARCH_ORDER).limit(CHUNK_SIZE).all());
+    }
+}
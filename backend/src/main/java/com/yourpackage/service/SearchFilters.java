@@ -0,0 +1,103 @@
+package com.yourpackage.service;
+
+// Filter values shared by the property and transaction searches.
+// A null string/integer, a minimum of 0 or a maximum of Double.MAX_VALUE means "no filter".
+public class SearchFilters {
+
+    private final String sizeSqFt;
+    private final String propertyType;
+    private final Integer noOfFloors;
+    private final String address;
+    private final String projectName;
+    private final double minPrice;
+    private final double maxPrice;
+    private final Integer year;
+    private final double minPricePerSqft;
+    private final double maxPricePerSqft;
+    private final String facilities;
+    private final String dateOfValuation;
+
+    public SearchFilters(String sizeSqFt, String propertyType, Integer noOfFloors, String address,
+                         String projectName, double minPrice, double maxPrice, Integer year,
+                         double minPricePerSqft, double maxPricePerSqft, String facilities,
+                         String dateOfValuation) {
+        this.sizeSqFt = sizeSqFt;
+        this.propertyType = propertyType;
+        this.noOfFloors = noOfFloors;
+        this.address = address;
+        this.projectName = projectName;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.year = year;
+        this.minPricePerSqft = minPricePerSqft;
+        this.maxPricePerSqft = maxPricePerSqft;
+        this.facilities = facilities;
+        this.dateOfValuation = dateOfValuation;
+    }
+
+    public boolean hasMinPrice() {
+        return minPrice != 0;
+    }
+
+    public boolean hasMaxPrice() {
+        return maxPrice != Double.MAX_VALUE;
+    }
+
+    public boolean hasMinPricePerSqft() {
+        return minPricePerSqft != 0;
+    }
+
+    public boolean hasMaxPricePerSqft() {
+        return maxPricePerSqft != Double.MAX_VALUE;
+    }
+
+    // Getters
+
+    public String getSizeSqFt() {
+        return sizeSqFt;
+    }
+
+    public String getPropertyType() {
+        return propertyType;
+    }
+
+    public Integer getNoOfFloors() {
+        return noOfFloors;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public double getMinPrice() {
+        return minPrice;
+    }
+
+    public double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public double getMinPricePerSqft() {
+        return minPricePerSqft;
+    }
+
+    public double getMaxPricePerSqft() {
+        return maxPricePerSqft;
+    }
+
+    public String getFacilities() {
+        return facilities;
+    }
+
+    public String getDateOfValuation() {
+        return dateOfValuation;
+    }
+}
@@ -0,0 +1,304 @@
+package com.yourpackage.service;
+
+import com.yourpackage.dto.ImportReport;
+import com.yourpackage.model.Property;
+import com.yourpackage.model.Transaction;
+import com.yourpackage.repository.PropertyRepository;
+import com.yourpackage.repository.TransactionRepository;
+import com.yourpackage.util.CsvRowReader;
+import com.yourpackage.util.SheetRowHandler;
+import com.yourpackage.util.XlsxRowReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Imports Property and Transaction rows from .xlsx or .csv uploads. Rows are streamed from the file,
+// validated, and inserted in batches; the report lists every rejected row with its reason. The inserted
+// rows are applied to the search index, suggestions, rollups and recent-transactions cache one batch at a
+// time, as if they had been added through the services, so an upload does not rebuild any of them.
+@Service
+public class SpreadsheetImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpreadsheetImportService.class);
+
+    private static final List<String> COLUMNS = List.of("address", "facilities", "no_of_floors", "price",
+            "price_per_sqft", "project_name", "property_type", "size_sq_ft", "year", "date_of_valuation");
+
+    private static final Set<String> INTEGER_COLUMNS = Set.of("no_of_floors", "year");
+    private static final Set<String> DECIMAL_COLUMNS = Set.of("price", "price_per_sqft");
+
+    // Header text reduced to lower-case letters and digits -> column
+    private static final Map<String, String> HEADERS = Map.ofEntries(
+            Map.entry("address", "address"),
+            Map.entry("facilities", "facilities"),
+            Map.entry("nooffloors", "no_of_floors"),
+            Map.entry("floors", "no_of_floors"),
+            Map.entry("price", "price"),
+            Map.entry("pricepersqft", "price_per_sqft"),
+            Map.entry("psf", "price_per_sqft"),
+            Map.entry("projectname", "project_name"),
+            Map.entry("project", "project_name"),
+            Map.entry("propertytype", "property_type"),
+            Map.entry("type", "property_type"),
+            Map.entry("sizesqft", "size_sq_ft"),
+            Map.entry("size", "size_sq_ft"),
+            Map.entry("year", "year"),
+            Map.entry("dateofvaluation", "date_of_valuation"),
+            Map.entry("valuationdate", "date_of_valuation"));
+
+    // Ids per IN list when loading inserted rows back
+    private static final int MAX_IDS_PER_LOAD = 1000;
+
+    @Autowired
+    private BatchInsertWriter batchInsertWriter;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PropertySearchIndex propertySearchIndex;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private MarketRollupService marketRollupService;
+
+    @Autowired
+    private RecentTransactionsCache recentTransactionsCache;
+
+    @Value("${import.batch-size:1000}")
+    private int batchSize;
+
+    // Uploaded properties are listed under the uploading agent
+    public ImportReport importProperties(MultipartFile file, Long agentId) {
+        return importRows(file, "property", agentId);
+    }
+
+    public ImportReport importTransactions(MultipartFile file) {
+        return importRows(file, "transactions", null);
+    }
+
+    private ImportReport importRows(MultipartFile file, String table, Long agentId) {
+        String name = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase(Locale.ROOT);
+        boolean xlsx = name.endsWith(".xlsx");
+        if (!xlsx && !name.endsWith(".csv")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only .xlsx and .csv files are supported");
+        }
+        logger.info("Importing {} rows from {}", table, file.getOriginalFilename());
+
+        ImportReport report = new ImportReport();
+        RowLoader loader = new RowLoader(table, agentId, report);
+        Path upload = null;
+        try {
+            upload = Files.createTempFile("upload-", xlsx ? ".xlsx" : ".csv");
+            file.transferTo(upload);
+            if (xlsx) {
+                XlsxRowReader.read(upload.toFile(), loader);
+            } else {
+                try (Reader reader = Files.newBufferedReader(upload, StandardCharsets.UTF_8)) {
+                    CsvRowReader.read(reader, loader);
+                }
+            }
+            loader.flush();
+        } catch (IOException e) {
+            logger.error("Error reading {}: {}", file.getOriginalFilename(), e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read file: " + e.getMessage());
+        } finally {
+            if (upload != null) {
+                try {
+                    Files.deleteIfExists(upload);
+                } catch (IOException e) {
+                    logger.warn("Could not delete upload {}: {}", upload, e.getMessage());
+                }
+            }
+        }
+
+        if (loader.headerError != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, loader.headerError);
+        }
+        logger.info("Imported {} of {} {} rows from {}", report.getRowsImported(), report.getRowsRead(), table,
+                file.getOriginalFilename());
+        return report;
+    }
+
+    // The same write hooks PropertyService.addProperty and TransactionService.addTransaction call. New rows
+    // cannot be in the entity or JSON document caches, so nothing needs invalidating.
+    private void applyInserted(String table, List<Long> ids) {
+        for (int start = 0; start < ids.size(); start += MAX_IDS_PER_LOAD) {
+            List<Long> chunk = ids.subList(start, Math.min(ids.size(), start + MAX_IDS_PER_LOAD));
+            if ("property".equals(table)) {
+                for (Property property : propertyRepository.findAllById(chunk)) {
+                    propertySearchIndex.upsert(property);
+                    suggestionService.propertyAdded(property);
+                }
+            } else {
+                for (Transaction transaction : transactionRepository.findAllById(chunk)) {
+                    suggestionService.transactionAdded(transaction);
+                    marketRollupService.transactionAdded(transaction);
+                    recentTransactionsCache.transactionAdded(transaction);
+                }
+            }
+        }
+    }
+
+    // Maps cells to columns using the header row, validates each data row and inserts in batches
+    private class RowLoader implements SheetRowHandler {
+        private final ImportReport report;
+        private final String table;
+        private final Long agentId;
+        private final List<String> columns = new ArrayList<>(COLUMNS);
+        private final int[] cellIndex = new int[COLUMNS.size()];
+        private final String[] labels = new String[COLUMNS.size()];
+        private final List<Object[]> rows = new ArrayList<>();
+        private final List<Integer> rowNumbers = new ArrayList<>();
+        private boolean headerSeen;
+        private String headerError;
+
+        RowLoader(String table, Long agentId, ImportReport report) {
+            this.report = report;
+            this.table = table;
+            this.agentId = agentId;
+            if (agentId != null) {
+                columns.add("agent_id");
+            }
+            Arrays.fill(cellIndex, -1);
+        }
+
+        @Override
+        public void row(int rowNumber, String[] cells) {
+            if (headerError != null || isBlank(cells)) {
+                return;
+            }
+            if (!headerSeen) {
+                readHeader(cells);
+                return;
+            }
+
+            report.rowRead();
+            try {
+                rows.add(convert(cells));
+                rowNumbers.add(rowNumber);
+            } catch (IllegalArgumentException e) {
+                report.reject(rowNumber, e.getMessage());
+            }
+            if (rows.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            List<Long> ids = new ArrayList<>();
+            Map<Integer, String> failures = batchInsertWriter.writeIsolatingFailures(table, columns, rows, ids);
+            for (Map.Entry<Integer, String> failure : failures.entrySet()) {
+                report.reject(rowNumbers.get(failure.getKey()), "Database rejected row: " + failure.getValue());
+            }
+            report.rowsImported(rows.size() - failures.size());
+            rows.clear();
+            rowNumbers.clear();
+            applyInserted(table, ids);
+        }
+
+        private void readHeader(String[] cells) {
+            headerSeen = true;
+            for (int i = 0; i < cells.length; i++) {
+                if (cells[i] == null) {
+                    continue;
+                }
+                String column = HEADERS.get(cells[i].toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", ""));
+                int position = column == null ? -1 : COLUMNS.indexOf(column);
+                if (position >= 0 && cellIndex[position] < 0) {
+                    cellIndex[position] = i;
+                    labels[position] = cells[i].trim();
+                }
+            }
+            if (cellIndex[COLUMNS.indexOf("project_name")] < 0) {
+                headerError = "The first row must be a header with at least a 'Project Name' column";
+            }
+        }
+
+        private Object[] convert(String[] cells) {
+            Object[] values = new Object[columns.size()];
+            for (int i = 0; i < COLUMNS.size(); i++) {
+                String column = COLUMNS.get(i);
+                String text = cellIndex[i] >= 0 && cellIndex[i] < cells.length ? cells[cellIndex[i]] : null;
+                text = text == null || text.isBlank() ? null : text.trim();
+                values[i] = convert(column, labels[i], text);
+            }
+            if (agentId != null) {
+                values[COLUMNS.size()] = agentId;
+            }
+            return values;
+        }
+
+        // Blank numbers become 0, as on an entity saved through JPA
+        private Object convert(String column, String label, String text) {
+            if ("project_name".equals(column) && text == null) {
+                throw new IllegalArgumentException("Project name is required");
+            }
+            if (INTEGER_COLUMNS.contains(column) || DECIMAL_COLUMNS.contains(column)) {
+                if (text == null) {
+                    return INTEGER_COLUMNS.contains(column) ? (Object) 0 : BigDecimal.ZERO;
+                }
+                BigDecimal number;
+                try {
+                    number = new BigDecimal(text.replace(",", ""));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(label + " must be a number, got '" + text + "'");
+                }
+                if (number.signum() < 0) {
+                    throw new IllegalArgumentException(label + " must not be negative");
+                }
+                if (INTEGER_COLUMNS.contains(column)) {
+                    try {
+                        return number.intValueExact();
+                    } catch (ArithmeticException e) {
+                        throw new IllegalArgumentException(label + " must be a whole number, got '" + text + "'");
+                    }
+                }
+                return number;
+            }
+            if ("date_of_valuation".equals(column) && text != null) {
+                try {
+                    return BatchInsertWriter.timestamp(text);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(label + " must be a date like 2018-04-06, got '" + text + "'");
+                }
+            }
+            return text;
+        }
+
+        private boolean isBlank(String[] cells) {
+            for (String cell : cells) {
+                if (cell != null && !cell.isBlank()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
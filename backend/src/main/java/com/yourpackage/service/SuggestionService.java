@@ -0,0 +1,121 @@
+package com.yourpackage.service;
+
+import com.yourpackage.config.StartupTask;
+import com.yourpackage.model.Property;
+import com.yourpackage.model.Transaction;
+import com.yourpackage.repository.PropertyRepository;
+import com.yourpackage.repository.TransactionRepository;
+import com.yourpackage.util.AutocompleteIndex;
+import com.yourpackage.util.FacilityVocabulary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+
+// In-memory autocomplete and facility vocabularies for the search UI,
+// kept in step with property and transaction writes
+@Service
+public class SuggestionService {
+
+    public static final int DEFAULT_LIMIT = 10;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionService.class);
+
+    private final AutocompleteIndex propertyProjectNames = new AutocompleteIndex();
+    private final AutocompleteIndex propertyTypes = new AutocompleteIndex();
+    private final AutocompleteIndex transactionProjectNames = new AutocompleteIndex();
+    private final FacilityVocabulary propertyFacilities = new FacilityVocabulary();
+    private final FacilityVocabulary transactionFacilities = new FacilityVocabulary();
+
+    @StartupTask
+    public void rebuild() {
+        logger.info("Rebuilding suggestion indexes");
+
+        load(propertyProjectNames, propertyRepository.countByProjectName());
+        load(propertyTypes, propertyRepository.countByPropertyType());
+        load(transactionProjectNames, transactionRepository.countByProjectName());
+        load(propertyFacilities, propertyRepository.countByFacilities());
+        load(transactionFacilities, transactionRepository.countByFacilities());
+
+        logger.info("Suggestion indexes rebuilt: {} property projects, {} property types, {} transaction projects",
+                propertyProjectNames.size(), propertyTypes.size(), transactionProjectNames.size());
+    }
+
+    public List<String> suggestPropertyProjectNames(String query, int limit) {
+        return propertyProjectNames.suggest(query, limit);
+    }
+
+    public List<String> suggestPropertyTypes(String query, int limit) {
+        return propertyTypes.suggest(query, limit);
+    }
+
+    public List<String> suggestTransactionProjectNames(String query, int limit) {
+        return transactionProjectNames.suggest(query, limit);
+    }
+
+    public Map<String, Integer> getPropertyFacilities() {
+        return propertyFacilities.snapshot();
+    }
+
+    public Map<String, Integer> getTransactionFacilities() {
+        return transactionFacilities.snapshot();
+    }
+
+    // Write hooks. For updates, pass the values the row had before it was changed.
+
+    public void propertyAdded(Property property) {
+        propertyProjectNames.add(property.getProjectName());
+        propertyTypes.add(property.getPropertyType());
+        propertyFacilities.add(property.getFacilities(), 1);
+    }
+
+    public void propertyUpdated(String oldProjectName, String oldPropertyType, String oldFacilities, Property property) {
+        propertyProjectNames.replace(oldProjectName, property.getProjectName());
+        propertyTypes.replace(oldPropertyType, property.getPropertyType());
+        propertyFacilities.replace(oldFacilities, property.getFacilities());
+    }
+
+    public void propertyDeleted(Property property) {
+        propertyProjectNames.remove(property.getProjectName());
+        propertyTypes.remove(property.getPropertyType());
+        propertyFacilities.remove(property.getFacilities());
+    }
+
+    public void transactionAdded(Transaction transaction) {
+        transactionProjectNames.add(transaction.getProjectName());
+        transactionFacilities.add(transaction.getFacilities(), 1);
+    }
+
+    public void transactionUpdated(String oldProjectName, String oldFacilities, Transaction transaction) {
+        transactionProjectNames.replace(oldProjectName, transaction.getProjectName());
+        transactionFacilities.replace(oldFacilities, transaction.getFacilities());
+    }
+
+    public void transactionDeleted(Transaction transaction) {
+        transactionProjectNames.remove(transaction.getProjectName());
+        transactionFacilities.remove(transaction.getFacilities());
+    }
+
+    private void load(AutocompleteIndex index, List<Object[]> counts) {
+        index.clear();
+        for (Object[] row : counts) {
+            index.add((String) row[0], ((Number) row[1]).longValue());
+        }
+    }
+
+    private void load(FacilityVocabulary vocabulary, List<Object[]> counts) {
+        vocabulary.clear();
+        for (Object[] row : counts) {
+            vocabulary.add((String) row[0], ((Number) row[1]).longValue());
+        }
+    }
+}
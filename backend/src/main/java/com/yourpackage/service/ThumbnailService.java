@@ -0,0 +1,247 @@
+package com.yourpackage.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Generates square, downscaled variants of profile pictures (48, 128 and 512 px by default) in the
+// background with the JDK's ImageIO and Java2D. Variants are stored next to the original in the BlobStore.
+// Work runs on a small bounded pool; when it is full the request is dropped and retried the next time
+// the variant is asked for, and the original is served until then. A picture that fails for another
+// reason (a read or write error) is retried after a delay that doubles with each failure.
+@Service
+public class ThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+    // Refuse to decode images above this size, however small the file
+    private static final long MAX_PIXELS = 50_000_000L;
+    private static final int MAX_FAILURES_KEPT = 1000;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Value("${thumbnails.sizes:48,128,512}")
+    private int[] sizes;
+
+    @Value("${thumbnails.threads:2}")
+    private int threads;
+
+    @Value("${thumbnails.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${thumbnails.retry-delay-ms:60000}")
+    private long retryDelayMs;
+
+    @Value("${thumbnails.retry-max-delay-ms:3600000}")
+    private long retryMaxDelayMs;
+
+    private ThreadPoolExecutor executor;
+
+    // Hashes queued or being processed, so a picture is not queued twice
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    // Pictures that could not be decoded (e.g. WebP, which ImageIO does not read); not retried
+    private final Set<String> failed = Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_FAILURES_KEPT;
+        }
+    }));
+
+    // Pictures whose last attempt hit a transient error, with when they may be tried again
+    private final Map<String, Retry> retries = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Retry> eldest) {
+            return size() > MAX_FAILURES_KEPT;
+        }
+    });
+
+    private static final class Retry {
+        final int failures;
+        final long notBefore;
+
+        Retry(int failures, long notBefore) {
+            this.failures = failures;
+            this.notBefore = notBefore;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        sizes = Arrays.stream(sizes).filter(size -> size > 0).sorted().distinct().toArray();
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        logger.info("Thumbnail pool started with {} threads, queue {}, sizes {}", threads, queueCapacity,
+                Arrays.toString(sizes));
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    // The configured size to serve for a requested one: the smallest variant at least that big,
+    // or the largest variant when more is asked for
+    public int variantFor(int requested) {
+        for (int size : sizes) {
+            if (size >= requested) {
+                return size;
+            }
+        }
+        return sizes[sizes.length - 1];
+    }
+
+    public boolean isReady(String hash, int size) {
+        return blobStore.variantExists(hash, Integer.toString(size));
+    }
+
+    // Queue generation of any missing variants. Returns immediately.
+    public void generate(String hash) {
+        if (failed.contains(hash) || isBackingOff(hash) || !pending.add(hash)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    createVariants(hash);
+                } finally {
+                    pending.remove(hash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(hash);
+            logger.warn("Thumbnail queue full, skipping picture {} for now", hash);
+        }
+    }
+
+    private void createVariants(String hash) {
+        try {
+            BufferedImage square = loadSquare(hash);
+            if (square == null) {
+                failed.add(hash);
+                return;
+            }
+
+            // Largest first, each one scaled from the previous so the work shrinks as we go
+            BufferedImage source = square;
+            for (int i = sizes.length - 1; i >= 0; i--) {
+                int size = sizes[i];
+                BufferedImage variant = scale(source, Math.min(size, square.getWidth()));
+                if (!isReady(hash, size)) {
+                    boolean alpha = variant.getColorModel().hasAlpha();
+                    blobStore.putVariant(hash, Integer.toString(size), out -> {
+                        if (!ImageIO.write(variant, alpha ? "png" : "jpg", out)) {
+                            throw new IOException("No image writer available");
+                        }
+                    });
+                }
+                source = variant;
+            }
+            retries.remove(hash);
+            logger.info("Created thumbnails for picture {}", hash);
+        } catch (IOException | RuntimeException e) {
+            Retry previous = retries.get(hash);
+            int failures = previous == null ? 1 : previous.failures + 1;
+            long delay = Math.min(retryMaxDelayMs, retryDelayMs << Math.min(failures - 1, 20));
+            retries.put(hash, new Retry(failures, System.currentTimeMillis() + delay));
+            logger.error("Could not create thumbnails for picture {} (failure {}), retrying in {} s: {}",
+                    hash, failures, delay / 1000, e.getMessage());
+        }
+    }
+
+    private boolean isBackingOff(String hash) {
+        Retry retry = retries.get(hash);
+        return retry != null && System.currentTimeMillis() < retry.notBefore;
+    }
+
+    // Decode the centre square of the picture. Large images are decoded with subsampling, only keeping
+    // enough pixels for the biggest variant. Returns null when the format cannot be decoded.
+    private BufferedImage loadSquare(String hash) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(blobStore.path(hash).toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                logger.info("No decoder for picture {}, serving the original only", hash);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_PIXELS) {
+                    logger.warn("Picture {} is {}x{}, too large to thumbnail", hash, width, height);
+                    return null;
+                }
+
+                int side = Math.min(width, height);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(new Rectangle((width - side) / 2, (height - side) / 2, side, side));
+                int step = Math.max(1, side / (sizes[sizes.length - 1] * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Downscale a square image to size x size, halving in steps first so bilinear filtering stays sharp
+    private static BufferedImage scale(BufferedImage source, int size) {
+        BufferedImage current = source;
+        int currentSize = source.getWidth();
+        while (currentSize / 2 >= size) {
+            currentSize /= 2;
+            current = draw(current, currentSize);
+        }
+        return currentSize == size && current != source ? current : draw(current, size);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int size) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage target = new BufferedImage(size, size, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, size, size, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+}
@@ -0,0 +1,39 @@
+package com.yourpackage.service;
+
+// The parts of a verified JWT the application uses: subject (email), role and user id.
+public class TokenClaims {
+
+    private final String email;
+    private final String role;
+    private final Long userId;
+    private final long expiresAt;
+
+    public TokenClaims(String email, String role, Long userId, long expiresAt) {
+        this.email = email;
+        this.role = role;
+        this.userId = userId;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+
+    // Getters
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+}
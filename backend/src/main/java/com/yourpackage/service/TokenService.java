@@ -0,0 +1,99 @@
+package com.yourpackage.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Verifies bearer tokens and remembers the verified claims, so repeat requests with the same token
+// skip the signature check and claims parsing. Entries are keyed by a SHA-256 of the token (the token
+// itself is never stored) and are dropped once the token expires.
+@Service
+public class TokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenService.class);
+
+    @Value("${jwt.secretKey}")
+    private String secretKey;
+
+    @Value("${jwt.cache.max-entries:10000}")
+    private int maxEntries;
+
+    // Upper bound for tokens issued without an expiry
+    @Value("${jwt.cache.max-ttl-ms:3600000}")
+    private long maxTtlMillis;
+
+    private final Map<String, TokenClaims> verified = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TokenClaims> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    // Accepts the raw Authorization header value ("Bearer ..." or the bare token).
+    // Throws the jjwt exception for a bad signature, malformed or expired token, as the parser did before.
+    public TokenClaims verify(String token) {
+        String jwt = token.replace("Bearer ", "");
+        String key = hash(jwt);
+        long now = System.currentTimeMillis();
+
+        synchronized (verified) {
+            TokenClaims cached = verified.get(key);
+            if (cached != null) {
+                if (!cached.isExpired(now)) {
+                    return cached;
+                }
+                verified.remove(key);
+            }
+        }
+
+        Claims claims = Jwts.parser()
+                .setSigningKey(secretKey.getBytes())
+                .parseClaimsJws(jwt)
+                .getBody();
+        TokenClaims result = new TokenClaims(claims.getSubject(), claims.get("role", String.class),
+                userId(claims), expiresAt(claims, now));
+
+        synchronized (verified) {
+            verified.put(key, result);
+        }
+        return result;
+    }
+
+    public void clear() {
+        synchronized (verified) {
+            verified.clear();
+        }
+    }
+
+    private long expiresAt(Claims claims, long now) {
+        Date expiration = claims.getExpiration();
+        long limit = now + maxTtlMillis;
+        return expiration == null ? limit : Math.min(expiration.getTime(), limit);
+    }
+
+    private static Long userId(Claims claims) {
+        String id = claims.get("id", String.class);
+        return id == null ? null : Long.parseLong(id);
+    }
+
+    private static String hash(String jwt) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            logger.error("SHA-256 not available: {}", e.getMessage());
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package com.yourpackage.service;
 
+import com.yourpackage.dto.CursorPage;
+import com.yourpackage.dto.ProjectRollup;
 import com.yourpackage.model.Transaction;
 import com.yourpackage.repository.TransactionRepository;
+import com.yourpackage.util.EntityTag;
+import com.yourpackage.util.SearchCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 public class TransactionService {
@@ -19,38 +30,115 @@ public class TransactionService {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private MarketRollupService marketRollupService;
+
+    @Autowired
+    private RecentTransactionsCache recentTransactionsCache;
+
+    @Autowired
+    private JsonDocumentCache jsonDocumentCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private static final Logger logger = LoggerFactory.getLogger(TransactionService.class);
 
-    public List<Transaction> searchTransactions(String sizeSqFt, String propertyType, Integer noOfFloors,
-                                                 String address, String projectName, double minPrice, double maxPrice,
-                                                 Integer year, double minPricePerSqft, double maxPricePerSqft,
-                                                 String facilities, String dateOfValuation) {
+    public CursorPage<Transaction> searchTransactions(SearchFilters filters, String cursor, Integer size) {
         logger.info("Searching transactions with provided filters");
 
         try {
-            List<Transaction> transactions = transactionRepository.findAll();
-
-            return transactions.stream()
-                    .filter(transaction -> (sizeSqFt == null || transaction.getSizeSqFt().equalsIgnoreCase(sizeSqFt)))
-                    .filter(transaction -> (propertyType == null || transaction.getPropertyType().equalsIgnoreCase(propertyType)))
-                    .filter(transaction -> (noOfFloors == null || transaction.getNoOfFloors() == noOfFloors))
-                    .filter(transaction -> (address == null || transaction.getAddress().equalsIgnoreCase(address)))
-                    .filter(transaction -> (projectName == null || transaction.getProjectName().toLowerCase().contains(projectName.toLowerCase())))
-                    .filter(transaction -> (minPrice == 0 || transaction.getPrice() >= minPrice))
-                    .filter(transaction -> (maxPrice == Double.MAX_VALUE || transaction.getPrice() <= maxPrice))
-                    .filter(transaction -> (year == null || transaction.getYear() == year))
-                    .filter(transaction -> (minPricePerSqft == 0 || transaction.getPricePerSqft() >= minPricePerSqft))
-                    .filter(transaction -> (maxPricePerSqft == Double.MAX_VALUE || transaction.getPricePerSqft() <= maxPricePerSqft))
-                    .filter(transaction -> (facilities == null || transaction.getFacilities().toLowerCase().contains(facilities.toLowerCase())))
-                    .filter(transaction -> (dateOfValuation == null || transaction.getDateOfValuation().toString().startsWith(dateOfValuation)))
-                    .collect(Collectors.toList());
+            Specification<Transaction> specification = searchSpecification(filters, cursor);
 
+            // Fetch one extra row to find out whether there is a next page
+            int pageSize = CursorPage.clampSize(size);
+            List<Transaction> transactions = transactionRepository.findBy(specification,
+                    query -> query.sortBy(TransactionSpecifications.SEARCH_ORDER).limit(pageSize + 1).all());
+
+            String nextCursor = null;
+            if (transactions.size() > pageSize) {
+                transactions = transactions.subList(0, pageSize);
+                Transaction last = transactions.get(pageSize - 1);
+                nextCursor = new SearchCursor(last.getDateOfValuation(), last.getId()).encode();
+            }
+            return new CursorPage<>(transactions, nextCursor);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid transaction search filter: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (Exception e) {
             logger.error("Error occurred while filtering transactions: {}", e.getMessage());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error occurred while filtering transactions");
         }
     }
 
+    // ETag of the page searchTransactions would return. Runs the same query, but selects only the
+    // id, version and valuation date columns instead of loading the entities.
+    public String getSearchTag(SearchFilters filters, String cursor, Integer size) {
+        try {
+            Specification<Transaction> specification = searchSpecification(filters, cursor);
+            int pageSize = CursorPage.clampSize(size);
+
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+            Root<Transaction> root = query.from(Transaction.class);
+            query.multiselect(root.get("id"), root.get("version"), root.get("dateOfValuation"));
+            query.where(specification.toPredicate(root, query, cb));
+            query.orderBy(QueryUtils.toOrders(TransactionSpecifications.SEARCH_ORDER, root, cb));
+            List<Object[]> rows = entityManager.createQuery(query).setMaxResults(pageSize + 1).getResultList();
+
+            EntityTag tag = new EntityTag("transactions");
+            for (int i = 0; i < Math.min(rows.size(), pageSize); i++) {
+                tag.add((Long) rows.get(i)[0]).add((Long) rows.get(i)[1]);
+            }
+            String nextCursor = null;
+            if (rows.size() > pageSize) {
+                Object[] last = rows.get(pageSize - 1);
+                nextCursor = new SearchCursor((Date) last[2], (Long) last[0]).encode();
+            }
+            return tag.add(nextCursor).build();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    public static String tagOf(CursorPage<Transaction> page) {
+        EntityTag tag = new EntityTag("transactions");
+        for (Transaction transaction : page.getItems()) {
+            tag.add(transaction.getId()).add(transaction.getVersion());
+        }
+        return tag.add(page.getNextCursor()).build();
+    }
+
+    private Specification<Transaction> searchSpecification(SearchFilters filters, String cursor) {
+        Specification<Transaction> specification = TransactionSpecifications.matching(filters);
+        if (cursor != null) {
+            specification = specification.and(TransactionSpecifications.after(SearchCursor.decode(cursor)));
+        }
+        return specification;
+    }
+
+    public long countTransactions(String sizeSqFt, String propertyType, Integer noOfFloors,
+                                  String address, String projectName, double minPrice, double maxPrice,
+                                  Integer year, double minPricePerSqft, double maxPricePerSqft,
+                                  String facilities, String dateOfValuation) {
+        logger.info("Counting transactions with provided filters");
+
+        try {
+            SearchFilters filters = new SearchFilters(sizeSqFt, propertyType, noOfFloors, address, projectName,
+                    minPrice, maxPrice, year, minPricePerSqft, maxPricePerSqft, facilities, dateOfValuation);
+            return transactionRepository.count(TransactionSpecifications.matching(filters));
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid transaction search filter: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error occurred while counting transactions: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error occurred while counting transactions");
+        }
+    }
+
     public Transaction getTransactionById(Long id) {
         logger.info("Fetching transaction with ID {}", id);
 
@@ -61,23 +149,61 @@ public class TransactionService {
                 });
     }
 
-    public List<String> getProjectNameSuggestions(String query) {
+    // ETag of a transaction from its version column, without loading the row
+    public String getTransactionTag(Long id) {
+        Long version = transactionRepository.findVersionById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Transaction not found"));
+        return EntityTag.of("transaction", id, version);
+    }
+
+    public static String tagOf(Transaction transaction) {
+        return EntityTag.of("transaction", transaction.getId(), transaction.getVersion());
+    }
+
+    public List<String> getProjectNameSuggestions(String query, Integer limit) {
         logger.info("Fetching project name suggestions for query: {}", query);
 
         try {
-            return transactionRepository.findProjectNamesContaining(query);
+            return suggestionService.suggestTransactionProjectNames(query,
+                    limit != null ? limit : SuggestionService.DEFAULT_LIMIT);
         } catch (Exception e) {
             logger.error("Error fetching project name suggestions: {}", e.getMessage());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error fetching project name suggestions");
         }
     }
 
+    public Map<String, Integer> getFacilityVocabulary() {
+        logger.info("Fetching transaction facility vocabulary");
+        return suggestionService.getTransactionFacilities();
+    }
+
+    public ProjectRollup getProjectRollup(String projectName, String propertyType, Integer year) {
+        logger.info("Fetching market rollup for project name: {}", projectName);
+
+        ProjectRollup rollup = marketRollupService.getRollup(projectName, propertyType, year);
+        if (rollup == null) {
+            logger.error("No transactions found for project name {}", projectName);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No transactions for this project");
+        }
+        return rollup;
+    }
+
+    public void rebuildProjectRollups() {
+        logger.info("Rebuilding all market rollups");
+
+        try {
+            marketRollupService.rebuild();
+        } catch (Exception e) {
+            logger.error("Error rebuilding market rollups: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error rebuilding market rollups");
+        }
+    }
+
     public List<Transaction> getLast5TransactionsByProjectName(String projectName) {
         logger.info("Fetching last 5 transactions for project name: {}", projectName);
 
         try {
-            PageRequest pageRequest = PageRequest.of(0, 5);
-            return transactionRepository.findTop5ByProjectNameOrderByDateOfValuationDesc(projectName, pageRequest);
+            return recentTransactionsCache.getRecent(projectName);
         } catch (Exception e) {
             logger.error("Error fetching last 5 transactions: {}", e.getMessage());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error fetching last 5 transactions");
@@ -88,7 +214,11 @@ public class TransactionService {
         logger.info("Adding a new transaction");
 
         try {
-            return transactionRepository.save(transaction);
+            Transaction savedTransaction = transactionRepository.save(transaction);
+            suggestionService.transactionAdded(savedTransaction);
+            marketRollupService.transactionAdded(savedTransaction);
+            recentTransactionsCache.transactionAdded(savedTransaction);
+            return savedTransaction;
         } catch (Exception e) {
             logger.error("Error saving transaction: {}", e.getMessage());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error saving transaction");
@@ -104,6 +234,8 @@ public class TransactionService {
                     return new ResponseStatusException(HttpStatus.NOT_FOUND, "Transaction not found");
                 });
 
+        Transaction previous = copyOf(existingTransaction);
+
         try {
             existingTransaction.setSizeSqFt(updatedTransaction.getSizeSqFt());
             existingTransaction.setPropertyType(updatedTransaction.getPropertyType());
@@ -116,7 +248,12 @@ public class TransactionService {
             existingTransaction.setFacilities(updatedTransaction.getFacilities());
             existingTransaction.setDateOfValuation(updatedTransaction.getDateOfValuation());
 
-            return transactionRepository.save(existingTransaction);
+            Transaction savedTransaction = transactionRepository.save(existingTransaction);
+            jsonDocumentCache.transactionChanged(id);
+            suggestionService.transactionUpdated(previous.getProjectName(), previous.getFacilities(), savedTransaction);
+            marketRollupService.transactionUpdated(previous, savedTransaction);
+            recentTransactionsCache.transactionUpdated(previous, savedTransaction);
+            return savedTransaction;
         } catch (Exception e) {
             logger.error("Error updating transaction: {}", e.getMessage());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error updating transaction");
@@ -127,7 +264,13 @@ public class TransactionService {
         logger.info("Attempting to delete transaction with ID {}", id);
 
         try {
-            transactionRepository.deleteById(id);
+            transactionRepository.findById(id).ifPresent(transaction -> {
+                transactionRepository.delete(transaction);
+                suggestionService.transactionDeleted(transaction);
+                marketRollupService.transactionRemoved(transaction);
+                recentTransactionsCache.transactionRemoved(transaction);
+            });
+            jsonDocumentCache.transactionChanged(id);
             logger.info("Transaction with ID {} deleted successfully", id);
         } catch (Exception e) {
             logger.error("Error deleting transaction: {}", e.getMessage());
@@ -135,8 +278,21 @@ public class TransactionService {
         }
     }
 
-    public String getRoleFromToken(String token) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'getRoleFromToken'");
+    // Detached copy of the fields, taken before an update so the in-memory views can retract the old values
+    private Transaction copyOf(Transaction transaction) {
+        Transaction copy = new Transaction();
+        copy.setId(transaction.getId());
+        copy.setPropertyId(transaction.getPropertyId());
+        copy.setSizeSqFt(transaction.getSizeSqFt());
+        copy.setPropertyType(transaction.getPropertyType());
+        copy.setNoOfFloors(transaction.getNoOfFloors());
+        copy.setAddress(transaction.getAddress());
+        copy.setProjectName(transaction.getProjectName());
+        copy.setPrice(transaction.getPrice());
+        copy.setYear(transaction.getYear());
+        copy.setPricePerSqft(transaction.getPricePerSqft());
+        copy.setFacilities(transaction.getFacilities());
+        copy.setDateOfValuation(transaction.getDateOfValuation());
+        return copy;
     }
 }
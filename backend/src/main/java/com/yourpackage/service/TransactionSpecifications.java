@@ -0,0 +1,115 @@
+package com.yourpackage.service;
+
+import com.yourpackage.model.Transaction;
+import com.yourpackage.util.FacilityVocabulary;
+import com.yourpackage.util.SearchCursor;
+import com.yourpackage.util.ValuationDates;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// Builds the WHERE clause of the transaction search so the filtering runs in SQL Server. Text columns are
+// compared as they are: the default collation is case-insensitive, and wrapping a column in LOWER() would
+// keep SQL Server from seeking an index on it.
+public class TransactionSpecifications {
+
+    // Newest valuations first, id as tie-breaker so the order is stable
+    public static final Sort SEARCH_ORDER = Sort.by(Sort.Direction.DESC, "dateOfValuation")
+            .and(Sort.by(Sort.Direction.DESC, "id"));
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private TransactionSpecifications() {
+    }
+
+    public static Specification<Transaction> matching(SearchFilters filters) {
+        // Parse up front so a bad filter is reported before any query is issued
+        long[] valuationRange = filters.getDateOfValuation() == null
+                ? null
+                : ValuationDates.prefixRange(filters.getDateOfValuation());
+
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (filters.getSizeSqFt() != null) {
+                predicates.add(cb.equal(root.get("sizeSqFt"), filters.getSizeSqFt()));
+            }
+            if (filters.getPropertyType() != null) {
+                predicates.add(cb.equal(root.get("propertyType"), filters.getPropertyType()));
+            }
+            if (filters.getAddress() != null) {
+                predicates.add(cb.equal(root.get("address"), filters.getAddress()));
+            }
+            if (filters.getProjectName() != null) {
+                predicates.add(contains(cb, root.get("projectName"), filters.getProjectName()));
+            }
+            // Each comma-separated facility must appear, matching the property index semantics
+            for (String facility : FacilityVocabulary.tokenize(filters.getFacilities())) {
+                predicates.add(contains(cb, root.get("facilities"), facility));
+            }
+            if (filters.getNoOfFloors() != null) {
+                predicates.add(cb.equal(root.get("noOfFloors"), filters.getNoOfFloors()));
+            }
+            if (filters.getYear() != null) {
+                predicates.add(cb.equal(root.get("year"), filters.getYear()));
+            }
+            if (filters.hasMinPrice()) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), filters.getMinPrice()));
+            }
+            if (filters.hasMaxPrice()) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("price"), filters.getMaxPrice()));
+            }
+            if (filters.hasMinPricePerSqft()) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("pricePerSqft"), filters.getMinPricePerSqft()));
+            }
+            if (filters.hasMaxPricePerSqft()) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("pricePerSqft"), filters.getMaxPricePerSqft()));
+            }
+            if (valuationRange != null) {
+                Expression<Date> valuationDate = root.get("dateOfValuation");
+                predicates.add(cb.greaterThanOrEqualTo(valuationDate, new Date(valuationRange[0])));
+                predicates.add(cb.lessThan(valuationDate, new Date(valuationRange[1])));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // Rows strictly after the cursor in SEARCH_ORDER. SQL Server sorts NULL dates last in a DESC order,
+    // so undated rows follow every dated one.
+    public static Specification<Transaction> after(SearchCursor cursor) {
+        return (root, query, cb) -> {
+            Expression<Date> valuationDate = root.get("dateOfValuation");
+            Expression<Long> id = root.get("id");
+            if (cursor.getDateOfValuation() == null) {
+                return cb.and(cb.isNull(valuationDate), cb.lessThan(id, cursor.getId()));
+            }
+            return cb.or(
+                    cb.lessThan(valuationDate, cursor.getDateOfValuation()),
+                    cb.and(cb.equal(valuationDate, cursor.getDateOfValuation()), cb.lessThan(id, cursor.getId())),
+                    cb.isNull(valuationDate));
+        };
+    }
+
+    private static Predicate contains(CriteriaBuilder cb, Expression<String> column, String value) {
+        return cb.like(column, "%" + escapeLike(value) + "%", LIKE_ESCAPE);
+    }
+
+    // Treat %, _ and [ in user input literally (SQL Server also gives [ a special meaning in LIKE)
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '%' || c == '_' || c == '[' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -1,12 +1,18 @@
 package com.yourpackage.service;
 
+import com.yourpackage.dto.PagedResult;
+import com.yourpackage.dto.UserSummary;
+import com.yourpackage.model.Property;
 import com.yourpackage.model.User;
+import com.yourpackage.repository.PropertyRepository;
 import com.yourpackage.repository.UserRepository;
-import org.mindrot.jbcrypt.BCrypt;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import io.jsonwebtoken.Claims;
+import org.springframework.web.server.ResponseStatusException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -18,6 +24,8 @@ import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -26,6 +34,27 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private FavoriteIdCache favoriteIdCache;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private JsonDocumentCache jsonDocumentCache;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private PropertySearchIndex propertySearchIndex;
+
     @Value("${jwt.secretKey}")
     private String secretKey;
 
@@ -37,36 +66,16 @@ public class UserService {
         return Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
     }
 
-    private Claims parseToken(String token) {
-        return Jwts.parser()
-                .setSigningKey(secretKey.getBytes())
-                .parseClaimsJws(token.replace("Bearer ", ""))
-                .getBody();
-    }
-    
-
-    public String getRoleFromToken(String token) {
-        return parseToken(token).get("role", String.class);
-    }
-
-    public Long getUserIdFromToken(String token) {
-        return Long.parseLong(parseToken(token).get("id", String.class));
-    }
-
-    public String getEmailFromToken(String token) {
-        return parseToken(token).getSubject();
-    }
-
     public User registerUser(User user) {
         logger.info("Attempting to register user with email: {}", user.getEmail());
 
-        Optional<User> existingUser = userRepository.findByEmail(user.getEmail());
+        Optional<User> existingUser = entityCache.findUserByEmail(user.getEmail());
         if (existingUser.isPresent()) {
             logger.error("User with email {} already exists", user.getEmail());
             throw new RuntimeException("User already exists with this email.");
         }
 
-        user.setPassword(BCrypt.hashpw(user.getPassword(), BCrypt.gensalt()));
+        user.setPassword(passwordHashingService.hash(user.getPassword()));
         user.setDateOfRegistration(LocalDateTime.now());
 
         logger.info("User with email {} successfully registered", user.getEmail());
@@ -79,13 +88,20 @@ public class UserService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Invalid email or password."));
     
-        if (!BCrypt.checkpw(password, user.getPassword())) {
+        if (!passwordHashingService.matches(password, user.getPassword())) {
             logger.error("Invalid password for user with email: {}", email);
             throw new RuntimeException("Invalid email or password.");
         }
+
+        // Bring hashes made with an older cost up to the configured one while we have the plain password
+        if (passwordHashingService.needsRehash(user.getPassword())) {
+            logger.info("Rehashing password for user with email: {}", email);
+            user.setPassword(passwordHashingService.hash(password));
+        }
     
-        user.setLastLogin(LocalDateTime.now());
-        userRepository.save(user);
+        userRepository.recordLogin(user.getId(), LocalDateTime.now(), user.getPassword());
+        entityCache.userChanged(user.getId());
+        jsonDocumentCache.userChanged(user.getId());
     
         return Jwts.builder()
                 .setSubject(user.getEmail())
@@ -105,46 +121,94 @@ public class UserService {
         existingUser.setEmail(updatedUser.getEmail());
         existingUser.setPhoneNumber(updatedUser.getPhoneNumber());
         existingUser.setAddress(updatedUser.getAddress());
-    
 
-    
-        if (updatedUser.getProfilePicture() != null) {
-            existingUser.setProfilePicture(updatedUser.getProfilePicture());
+        // Callers start from a copy returned by getUserById, so carry over what they may have changed
+        if (updatedUser.getRole() != null) {
+            existingUser.setRole(updatedUser.getRole());
+        }
+        if (updatedUser.getPassword() != null) {
+            existingUser.setPassword(updatedUser.getPassword());
+        }
+        if (updatedUser.getProfilePictureHash() != null) {
+            existingUser.setProfilePictureHash(updatedUser.getProfilePictureHash());
         }
     
-        return userRepository.save(existingUser);
+        User savedUser = userRepository.save(existingUser);
+        entityCache.userChanged(userId);
+        jsonDocumentCache.userChanged(userId);
+        return savedUser;
     }
     
     
-    public boolean isAdmin(String token) {
-        String role = getRoleFromToken(token);
-        return "ADMIN".equals(role);
-    }
-
     public void deleteUser(Long userId) {
         logger.info("Attempting to delete user with ID: {}", userId);
+        // The delete cascades to the properties they list as agent; read them first so the in-memory views
+        // can drop them as PropertyService.deleteProperty would
+        List<Property> listed = entityCache.findProperties(propertyRepository.findIdsByAgentId(userId));
         userRepository.deleteById(userId);
+        for (Property property : listed) {
+            suggestionService.propertyDeleted(property);
+            propertySearchIndex.remove(property.getId());
+            favoriteIdCache.propertyDeleted(property.getId());
+        }
+        entityCache.userDeleted(userId);
+        jsonDocumentCache.userChanged(userId);
+        favoriteIdCache.userDeleted(userId);
         logger.info("User with ID: {} successfully deleted", userId);
     }
 
     public User getUserByEmail(String email) {
         logger.info("Fetching user with email: {}", email);
-        return userRepository.findByEmail(email)
+        return entityCache.findUserByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
     }
 
     public String encodePassword(String rawPassword) {
-        return BCrypt.hashpw(rawPassword, BCrypt.gensalt());
+        return passwordHashingService.hash(rawPassword);
     }
 
     public User getUserById(Long userId) {
         logger.info("Fetching user with ID: {}", userId);
-        return userRepository.findById(userId)
+        return entityCache.findUser(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
-    public List<User> getAllUsers() {
-        logger.info("Fetching all users");
-        return userRepository.findAll();
+    // Sort parameter -> entity attribute for the admin listing
+    private static final Map<String, String> USER_SORTS = Map.of(
+            "registered", "dateOfRegistration",
+            "lastlogin", "lastLogin");
+
+    // One page of users for the admin screens, newest registrations first by default. query matches the
+    // start of the email or the name (case-insensitively under SQL Server's default collation).
+    public PagedResult<UserSummary> listUsers(String role, String query, String sort, String direction,
+                                              Integer page, Integer size) {
+        logger.info("Listing users (role {}, query {}, sort {} {}, page {})", role, query, sort, direction, page);
+
+        String attribute = USER_SORTS.get(sort == null ? "registered" : sort.toLowerCase(Locale.ROOT));
+        if (attribute == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sort must be registered or lastLogin");
+        }
+        Sort.Direction order = "asc".equalsIgnoreCase(direction) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        if (page != null && page < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page must not be negative");
+        }
+
+        PageRequest pageRequest = PageRequest.of(page == null ? 0 : page, PagedResult.clampSize(size),
+                Sort.by(order, attribute).and(Sort.by(order, "id")));
+        String prefix = query == null || query.isBlank() ? null : escapeLike(query.trim()) + "%";
+        String roleFilter = role == null || role.isBlank() ? null : role.trim().toUpperCase(Locale.ROOT);
+        return new PagedResult<>(userRepository.findSummaries(roleFilter, prefix, pageRequest));
+    }
+
+    // Treat %, _ and [ in the query literally
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '%' || c == '_' || c == '[' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
     }
 }
@@ -0,0 +1,243 @@
+package com.yourpackage.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Autocomplete over a set of distinct values (project names, property types...).
+// Prefix matches come from a sorted map of the lower-cased values, infix matches from a trigram index.
+// Each value keeps a reference count so rows can be added and removed incrementally.
+public class AutocompleteIndex {
+
+    private static final int GRAM = 3;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Term> terms = new TreeMap<>();
+    private final Map<String, Set<Term>> trigrams = new HashMap<>();
+
+    private static class Term {
+        final String key;
+        final String value;
+        int count;
+
+        Term(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    // Most frequent first, then alphabetical
+    private static final Comparator<Term> RANKING = Comparator.<Term>comparingInt(term -> -term.count)
+            .thenComparing(term -> term.key);
+
+    public void add(String value) {
+        add(value, 1);
+    }
+
+    public void add(String value, long occurrences) {
+        if (value == null || value.isBlank() || occurrences <= 0) {
+            return;
+        }
+        String key = value.trim().toLowerCase(Locale.ROOT);
+
+        lock.writeLock().lock();
+        try {
+            Term term = terms.get(key);
+            if (term == null) {
+                term = new Term(key, value.trim());
+                terms.put(key, term);
+                for (String gram : grams(key)) {
+                    trigrams.computeIfAbsent(gram, g -> new HashSet<>()).add(term);
+                }
+            }
+            term.count += (int) Math.min(occurrences, Integer.MAX_VALUE - term.count);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String value) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        String key = value.trim().toLowerCase(Locale.ROOT);
+
+        lock.writeLock().lock();
+        try {
+            Term term = terms.get(key);
+            if (term == null || --term.count > 0) {
+                return;
+            }
+            terms.remove(key);
+            for (String gram : grams(key)) {
+                Set<Term> posting = trigrams.get(gram);
+                if (posting != null) {
+                    posting.remove(term);
+                    if (posting.isEmpty()) {
+                        trigrams.remove(gram);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Convenience for update paths: move one occurrence from the old value to the new one
+    public void replace(String oldValue, String newValue) {
+        if (oldValue != null && oldValue.equals(newValue)) {
+            return;
+        }
+        remove(oldValue);
+        add(newValue);
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            trigrams.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Up to `limit` values containing the query: prefix matches first, then matches at a word start,
+    // then any other infix match. Within each group the most frequent values win.
+    public List<String> suggest(String query, int limit) {
+        List<String> result = new ArrayList<>();
+        if (query == null || query.isBlank() || limit <= 0) {
+            return result;
+        }
+        String needle = query.trim().toLowerCase(Locale.ROOT);
+
+        lock.readLock().lock();
+        try {
+            Set<Term> taken = new HashSet<>();
+            for (Term term : top(prefixMatches(needle), limit)) {
+                result.add(term.value);
+                taken.add(term);
+            }
+            if (result.size() == limit) {
+                return result;
+            }
+
+            List<Term> wordStart = new ArrayList<>();
+            List<Term> inside = new ArrayList<>();
+            for (Term term : infixCandidates(needle)) {
+                if (taken.contains(term)) {
+                    continue;
+                }
+                int at = term.key.indexOf(needle);
+                if (at < 0) {
+                    continue;
+                }
+                if (startsWord(term.key, needle, at)) {
+                    wordStart.add(term);
+                } else {
+                    inside.add(term);
+                }
+            }
+            for (Term term : top(wordStart, limit - result.size())) {
+                result.add(term.value);
+            }
+            for (Term term : top(inside, limit - result.size())) {
+                result.add(term.value);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Read helpers, caller holds the read lock
+
+    private Iterable<Term> prefixMatches(String needle) {
+        return terms.subMap(needle, true, needle + Character.MAX_VALUE, false).values();
+    }
+
+    // Terms sharing every trigram of the needle; short needles fall back to scanning the vocabulary
+    private Iterable<Term> infixCandidates(String needle) {
+        if (needle.length() < GRAM) {
+            return terms.values();
+        }
+        Set<Term> smallest = null;
+        List<Set<Term>> postings = new ArrayList<>();
+        for (String gram : grams(needle)) {
+            Set<Term> posting = trigrams.get(gram);
+            if (posting == null) {
+                return List.of();
+            }
+            postings.add(posting);
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        List<Term> candidates = new ArrayList<>();
+        for (Term term : smallest) {
+            boolean inAll = true;
+            for (Set<Term> posting : postings) {
+                if (posting != smallest && !posting.contains(term)) {
+                    inAll = false;
+                    break;
+                }
+            }
+            if (inAll) {
+                candidates.add(term);
+            }
+        }
+        return candidates;
+    }
+
+    // Best `limit` terms by RANKING, kept in a bounded heap
+    private static List<Term> top(Iterable<Term> candidates, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Term> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        for (Term term : candidates) {
+            best.offer(term);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Term> ordered = new ArrayList<>(best);
+        ordered.sort(RANKING);
+        return ordered;
+    }
+
+    private static boolean startsWord(String key, String needle, int from) {
+        for (int at = from; at >= 0; at = key.indexOf(needle, at + 1)) {
+            if (at == 0 || !Character.isLetterOrDigit(key.charAt(at - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> grams(String key) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            grams.add(key.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,78 @@
+package com.yourpackage.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Streaming RFC 4180 CSV reader: quoted fields may contain commas, doubled quotes and line breaks.
+// Row numbers count records, not physical lines.
+public class CsvRowReader {
+
+    private CsvRowReader() {
+    }
+
+    public static void read(Reader input, SheetRowHandler handler) throws IOException {
+        BufferedReader reader = input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input, 1 << 16);
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        boolean cellStarted = false;
+        int rowNumber = 0;
+
+        int c = reader.read();
+        if (c == '\uFEFF') {
+            c = reader.read();
+        }
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        cell.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    cell.append((char) c);
+                }
+            } else if (c == '"' && cell.length() == 0) {
+                quoted = true;
+                cellStarted = true;
+            } else if (c == ',') {
+                cells.add(value(cell, cellStarted));
+                cell.setLength(0);
+                cellStarted = false;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                cells.add(value(cell, cellStarted));
+                handler.row(++rowNumber, cells.toArray(new String[0]));
+                cells.clear();
+                cell.setLength(0);
+                cellStarted = false;
+            } else {
+                cell.append((char) c);
+                cellStarted = true;
+            }
+            c = reader.read();
+        }
+        if (cellStarted || cell.length() > 0 || !cells.isEmpty()) {
+            cells.add(value(cell, cellStarted));
+            handler.row(++rowNumber, cells.toArray(new String[0]));
+        }
+    }
+
+    private static String value(StringBuilder cell, boolean started) {
+        return started || cell.length() > 0 ? cell.toString() : null;
+    }
+}
@@ -0,0 +1,77 @@
+package com.yourpackage.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+// RFC 4180 CSV straight onto an output stream; nothing but the current row is buffered.
+// Starts with a UTF-8 byte order mark so Excel picks the right encoding (CsvRowReader skips it), then the header row.
+public class CsvRowWriter implements SheetRowWriter {
+
+    private final Writer writer;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+
+    public CsvRowWriter(OutputStream out, Object... header) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        writer.write('\uFEFF');
+        row(header);
+    }
+
+    @Override
+    public void row(Object... cells) throws IOException {
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCell(cells[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    // Push what has been written so far to the client
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+
+    private void writeCell(Object cell) throws IOException {
+        if (cell == null) {
+            return;
+        }
+        if (cell instanceof Date) {
+            writer.write(dateFormat.format((Date) cell));
+        } else if (cell instanceof Double || cell instanceof Float) {
+            // Plain digits: 1575000 rather than 1575000.0 or 1.575E6
+            writer.write(BigDecimal.valueOf(((Number) cell).doubleValue()).stripTrailingZeros().toPlainString());
+        } else if (cell instanceof Number) {
+            writer.write(cell.toString());
+        } else {
+            writeText(cell.toString());
+        }
+    }
+
+    private void writeText(String text) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
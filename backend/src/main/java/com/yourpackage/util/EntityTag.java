@@ -0,0 +1,81 @@
+package com.yourpackage.util;
+
+import java.nio.charset.StandardCharsets;
+
+// Strong ETags built from row versions. A single row's tag spells out its id and version columns;
+// a search page folds the id and versions of every row on it, plus the next-page cursor, into a
+// 64-bit FNV-1a digest, so the tag changes whenever any row on the page or the page's makeup does.
+public class EntityTag {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String kind;
+    private long hash = FNV_OFFSET;
+
+    // Start a digest for a page of the given kind, e.g. "properties"
+    public EntityTag(String kind) {
+        this.kind = kind;
+    }
+
+    // Quoted tag of one row: the kind followed by the non-null parts, e.g. "property-12-3-7"
+    public static String of(String kind, Object... parts) {
+        StringBuilder tag = new StringBuilder("\"").append(kind);
+        for (Object part : parts) {
+            if (part != null) {
+                tag.append('-').append(part);
+            }
+        }
+        return tag.append('"').toString();
+    }
+
+    public EntityTag add(long value) {
+        for (int shift = 0; shift < 64; shift += 8) {
+            mix((byte) (value >>> shift));
+        }
+        return this;
+    }
+
+    // Null and "" are told apart from each other and from any other string
+    public EntityTag add(String value) {
+        if (value == null) {
+            mix((byte) 0xFF);
+            return this;
+        }
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            mix(b);
+        }
+        mix((byte) 0);
+        return this;
+    }
+
+    public String build() {
+        return "\"" + kind + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    // Whether an If-None-Match header names the tag. As RFC 9110 asks for this header the comparison
+    // is weak, so a W/ prefix added by a proxy still matches.
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*")) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void mix(byte b) {
+        hash ^= b & 0xFF;
+        hash *= FNV_PRIME;
+    }
+}
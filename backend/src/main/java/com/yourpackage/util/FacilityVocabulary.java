@@ -0,0 +1,91 @@
+package com.yourpackage.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Facility tokens ("Jogging Track, Multipurpose Hall" -> "jogging track", "multipurpose hall")
+// with the number of rows that list each one.
+public class FacilityVocabulary {
+
+    private final Map<String, Integer> counts = new HashMap<>();
+    private final Map<String, String> displayNames = new HashMap<>();
+
+    // Split a comma-separated facilities string into normalized tokens
+    public static Set<String> tokenize(String facilities) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (facilities == null) {
+            return tokens;
+        }
+        for (String part : facilities.split(",")) {
+            String token = normalize(part);
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static String normalize(String token) {
+        return token.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public synchronized void add(String facilities, long rows) {
+        if (facilities == null || rows <= 0) {
+            return;
+        }
+        Set<String> seen = new LinkedHashSet<>();
+        for (String part : facilities.split(",")) {
+            String token = normalize(part);
+            if (token.isEmpty() || !seen.add(token)) {
+                continue;
+            }
+            counts.merge(token, (int) Math.min(rows, Integer.MAX_VALUE), Integer::sum);
+            displayNames.putIfAbsent(token, part.trim().replaceAll("\\s+", " "));
+        }
+    }
+
+    public synchronized void remove(String facilities) {
+        for (String token : tokenize(facilities)) {
+            Integer count = counts.get(token);
+            if (count == null) {
+                continue;
+            }
+            if (count <= 1) {
+                counts.remove(token);
+                displayNames.remove(token);
+            } else {
+                counts.put(token, count - 1);
+            }
+        }
+    }
+
+    public void replace(String oldFacilities, String newFacilities) {
+        if (oldFacilities != null && oldFacilities.equals(newFacilities)) {
+            return;
+        }
+        remove(oldFacilities);
+        add(newFacilities, 1);
+    }
+
+    public synchronized void clear() {
+        counts.clear();
+        displayNames.clear();
+    }
+
+    // Facility name -> number of rows, most common first
+    public synchronized Map<String, Integer> snapshot() {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            result.put(displayNames.get(entry.getKey()), entry.getValue());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,44 @@
+package com.yourpackage.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Recognises the image formats accepted as profile pictures from their leading bytes,
+// so neither the file name nor the client-supplied content type has to be trusted.
+public class ImageFormats {
+
+    private static final int HEADER_LENGTH = 12;
+
+    private ImageFormats() {
+    }
+
+    // Content type of the image, or null when the stream does not start like a supported image
+    public static String detect(InputStream in) throws IOException {
+        byte[] header = in.readNBytes(HEADER_LENGTH);
+        if (startsWith(header, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(header, 0, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(header, 0, 'R', 'I', 'F', 'F') && startsWith(header, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] header, int offset, int... expected) {
+        if (header.length < offset + expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if ((header[offset + i] & 0xFF) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,296 @@
+package com.yourpackage.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// One immutable file of an inverted index. Documents are identified by a long id and kept in id order;
+// postings refer to them by position in that order, delta- and varint-encoded, with the term frequency.
+// The document table and term dictionary are read into memory when the segment is opened, while the
+// postings stay on disk and are read through a memory mapping.
+//
+// File layout: magic, doc count, doc ids, doc lengths, postings length, term count,
+// then per term (UTF term, doc frequency, postings offset, postings length), then the postings.
+public final class IndexSegment {
+
+    private static final int MAGIC = 0x4D534958; // "MSIX"
+
+    private final Path path;
+    private final long[] docIds;
+    private final int[] docLengths;
+    private final long totalLength;
+    private final Map<String, TermEntry> terms;
+    private final ByteBuffer postings;
+
+    private static final class TermEntry {
+        final int docFreq;
+        final int offset;
+        final int length;
+
+        TermEntry(int docFreq, int offset, int length) {
+            this.docFreq = docFreq;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    // Postings of one term: positions in the segment's document table, ascending, and frequencies
+    public static final class Postings {
+        private final int[] ordinals;
+        private final int[] frequencies;
+
+        Postings(int[] ordinals, int[] frequencies) {
+            this.ordinals = ordinals;
+            this.frequencies = frequencies;
+        }
+
+        public int size() {
+            return ordinals.length;
+        }
+
+        public int ordinal(int index) {
+            return ordinals[index];
+        }
+
+        public int frequency(int index) {
+            return frequencies[index];
+        }
+    }
+
+    private IndexSegment(Path path, long[] docIds, int[] docLengths, Map<String, TermEntry> terms, ByteBuffer postings) {
+        this.path = path;
+        this.docIds = docIds;
+        this.docLengths = docLengths;
+        this.terms = terms;
+        this.postings = postings;
+        long total = 0;
+        for (int length : docLengths) {
+            total += length;
+        }
+        this.totalLength = total;
+    }
+
+    public static IndexSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an index segment: " + path);
+            }
+            int docCount = in.readInt();
+            long[] docIds = new long[docCount];
+            for (int i = 0; i < docCount; i++) {
+                docIds[i] = in.readLong();
+            }
+            int[] docLengths = new int[docCount];
+            for (int i = 0; i < docCount; i++) {
+                docLengths[i] = in.readInt();
+            }
+            int postingsLength = in.readInt();
+            int termCount = in.readInt();
+            Map<String, TermEntry> terms = new HashMap<>(termCount * 4 / 3 + 1);
+            for (int i = 0; i < termCount; i++) {
+                String term = in.readUTF();
+                terms.put(term, new TermEntry(in.readInt(), in.readInt(), in.readInt()));
+            }
+            long postingsStart = channel.size() - postingsLength;
+            MappedByteBuffer postings = channel.map(FileChannel.MapMode.READ_ONLY, postingsStart, postingsLength);
+            return new IndexSegment(path, docIds, docLengths, terms, postings);
+        }
+    }
+
+    // Write the union of several segments as one new segment file
+    public static void merge(List<IndexSegment> segments, Path target) throws IOException {
+        Builder builder = new Builder();
+        for (IndexSegment segment : segments) {
+            for (int i = 0; i < segment.docIds.length; i++) {
+                builder.addDocument(segment.docIds[i], segment.docLengths[i]);
+            }
+            for (String term : segment.terms.keySet()) {
+                Postings postings = segment.postings(term);
+                for (int i = 0; i < postings.size(); i++) {
+                    builder.addPosting(term, segment.docIds[postings.ordinal(i)], postings.frequency(i));
+                }
+            }
+        }
+        builder.write(target);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getDocCount() {
+        return docIds.length;
+    }
+
+    public long getTotalLength() {
+        return totalLength;
+    }
+
+    public long getMaxDocId() {
+        return docIds.length == 0 ? 0 : docIds[docIds.length - 1];
+    }
+
+    public boolean contains(long docId) {
+        return Arrays.binarySearch(docIds, docId) >= 0;
+    }
+
+    public long docId(int ordinal) {
+        return docIds[ordinal];
+    }
+
+    public int docLength(int ordinal) {
+        return docLengths[ordinal];
+    }
+
+    public int docFreq(String term) {
+        TermEntry entry = terms.get(term);
+        return entry == null ? 0 : entry.docFreq;
+    }
+
+    // Decoded postings of a term, or null when the segment does not contain it
+    public Postings postings(String term) {
+        TermEntry entry = terms.get(term);
+        if (entry == null) {
+            return null;
+        }
+        ByteBuffer buffer = postings.duplicate();
+        buffer.position(entry.offset);
+        int[] ordinals = new int[entry.docFreq];
+        int[] frequencies = new int[entry.docFreq];
+        int ordinal = 0;
+        for (int i = 0; i < entry.docFreq; i++) {
+            ordinal += readVarint(buffer);
+            ordinals[i] = ordinal;
+            frequencies[i] = readVarint(buffer);
+        }
+        return new Postings(ordinals, frequencies);
+    }
+
+    // Collects documents in memory and writes them out as a segment
+    public static final class Builder {
+
+        private final Map<Long, Integer> docLengths = new HashMap<>();
+        private final Map<String, long[]> postings = new TreeMap<>(); // term -> [size, docId, tf, docId, tf, ...]
+
+        public void addDocument(long docId, Map<String, Integer> termFrequencies, int length) {
+            addDocument(docId, length);
+            termFrequencies.forEach((term, frequency) -> addPosting(term, docId, frequency));
+        }
+
+        public boolean contains(long docId) {
+            return docLengths.containsKey(docId);
+        }
+
+        public int getDocCount() {
+            return docLengths.size();
+        }
+
+        void addDocument(long docId, int length) {
+            docLengths.put(docId, length);
+        }
+
+        void addPosting(String term, long docId, int frequency) {
+            long[] list = postings.get(term);
+            if (list == null) {
+                list = new long[5];
+            } else if (list[0] * 2 + 3 > list.length) {
+                list = Arrays.copyOf(list, list.length * 2 + 1);
+            }
+            int end = (int) (list[0] * 2 + 1);
+            list[end] = docId;
+            list[end + 1] = frequency;
+            list[0]++;
+            postings.put(term, list);
+        }
+
+        public void write(Path target) throws IOException {
+            long[] docIds = docLengths.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            Map<Long, Integer> ordinals = new HashMap<>(docIds.length * 4 / 3 + 1);
+            for (int i = 0; i < docIds.length; i++) {
+                ordinals.put(docIds[i], i);
+            }
+
+            // Encode every postings list first so the dictionary can record offsets into the block
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            List<String> termOrder = new ArrayList<>(postings.size());
+            List<int[]> entries = new ArrayList<>(postings.size());
+            for (Map.Entry<String, long[]> entry : postings.entrySet()) {
+                long[] list = entry.getValue();
+                int size = (int) list[0];
+                long[][] pairs = new long[size][];
+                for (int i = 0; i < size; i++) {
+                    pairs[i] = new long[] {ordinals.get(list[i * 2 + 1]), list[i * 2 + 2]};
+                }
+                Arrays.sort(pairs, (x, y) -> Long.compare(x[0], y[0]));
+
+                int offset = block.size();
+                long previous = 0;
+                for (long[] pair : pairs) {
+                    writeVarint(block, (int) (pair[0] - previous));
+                    writeVarint(block, (int) pair[1]);
+                    previous = pair[0];
+                }
+                termOrder.add(entry.getKey());
+                entries.add(new int[] {size, offset, block.size() - offset});
+            }
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(docIds.length);
+                for (long docId : docIds) {
+                    out.writeLong(docId);
+                }
+                for (long docId : docIds) {
+                    out.writeInt(docLengths.get(docId));
+                }
+                out.writeInt(block.size());
+                out.writeInt(termOrder.size());
+                for (int i = 0; i < termOrder.size(); i++) {
+                    int[] entry = entries.get(i);
+                    out.writeUTF(termOrder.get(i));
+                    out.writeInt(entry[0]);
+                    out.writeInt(entry[1]);
+                    out.writeInt(entry[2]);
+                }
+                block.writeTo(out);
+            }
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.yourpackage.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Streams rows out of a SQL dump made of "INSERT INTO schema.table (col, ...) VALUES (...), (...);" statements.
+// Only one statement is held in memory at a time. Values come back as String (quoted literals),
+// BigDecimal (numbers) or null (NULL).
+public class InsertStatementReader implements AutoCloseable {
+
+    private final Reader reader;
+    private int peeked = -2;
+    private long statementNumber;
+
+    private String table;
+    private List<String> columns;
+    private boolean inValues;
+
+    public static class Row {
+        private final long statement;
+        private final String table;
+        private final List<String> columns;
+        private final Object[] values;
+
+        Row(long statement, String table, List<String> columns, Object[] values) {
+            this.statement = statement;
+            this.table = table;
+            this.columns = columns;
+            this.values = values;
+        }
+
+        // Getters
+
+        public long getStatement() {
+            return statement;
+        }
+
+        // Lower-cased table name without schema, e.g. "property"
+        public String getTable() {
+            return table;
+        }
+
+        // Lower-cased column names, shared by every row of the statement
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        public Object[] getValues() {
+            return values;
+        }
+    }
+
+    public InsertStatementReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader, 1 << 16);
+    }
+
+    // Next row, or null at end of input. Throws IllegalArgumentException for a malformed statement;
+    // the reader then skips to the end of that statement so the caller can carry on.
+    public Row next() throws IOException {
+        while (true) {
+            if (!inValues) {
+                if (!startStatement()) {
+                    return null;
+                }
+            }
+
+            skipWhitespace();
+            int c = read();
+            if (c == '(') {
+                try {
+                    Object[] values = readTuple();
+                    if (values.length != columns.size()) {
+                        throw new IllegalArgumentException("Statement " + statementNumber + " has " + values.length
+                                + " values for " + columns.size() + " columns");
+                    }
+                    afterTuple();
+                    return new Row(statementNumber, table, columns, values);
+                } catch (IllegalArgumentException e) {
+                    skipStatement();
+                    throw e;
+                }
+            }
+            if (c == ';' || c == -1) {
+                inValues = false;
+                continue;
+            }
+            skipStatement();
+            throw new IllegalArgumentException("Statement " + statementNumber + ": expected '(' in VALUES list");
+        }
+    }
+
+    public long getStatementNumber() {
+        return statementNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Parse "INSERT INTO name (columns) VALUES" up to the first tuple. Returns false at end of input.
+    private boolean startStatement() throws IOException {
+        skipWhitespace();
+        if (peek() == -1) {
+            return false;
+        }
+        statementNumber++;
+        try {
+            expectWord("INSERT");
+            expectWord("INTO");
+            table = tableName(readWord());
+            skipWhitespace();
+            if (read() != '(') {
+                throw new IllegalArgumentException("Statement " + statementNumber + ": a column list is required");
+            }
+            columns = readColumns();
+            expectWord("VALUES");
+            inValues = true;
+            return true;
+        } catch (IllegalArgumentException e) {
+            skipStatement();
+            throw e;
+        }
+    }
+
+    private List<String> readColumns() throws IOException {
+        List<String> names = new ArrayList<>();
+        StringBuilder name = new StringBuilder();
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw new IllegalArgumentException("Statement " + statementNumber + ": unterminated column list");
+            }
+            if (c == ',' || c == ')') {
+                names.add(unquote(name.toString().trim()).toLowerCase(Locale.ROOT));
+                name.setLength(0);
+                if (c == ')') {
+                    return Collections.unmodifiableList(names);
+                }
+            } else {
+                name.append((char) c);
+            }
+        }
+    }
+
+    // Values of one "(...)" tuple; the opening parenthesis has been consumed
+    private Object[] readTuple() throws IOException {
+        List<Object> values = new ArrayList<>(columns.size());
+        while (true) {
+            skipWhitespace();
+            int c = peek();
+            if (c == '\'' || c == 'N' && isQuotedUnicode()) {
+                if (c == 'N') {
+                    read();
+                }
+                values.add(readString());
+            } else {
+                values.add(readLiteral());
+            }
+            skipWhitespace();
+            c = read();
+            if (c == ')') {
+                return values.toArray();
+            }
+            if (c != ',') {
+                throw new IllegalArgumentException("Statement " + statementNumber + ": expected ',' or ')' in VALUES");
+            }
+        }
+    }
+
+    // After a tuple: either ", (" for another row of the same statement or the end of the statement
+    private void afterTuple() throws IOException {
+        skipWhitespace();
+        int c = peek();
+        if (c == ',') {
+            read();
+        } else {
+            if (c == ';') {
+                read();
+            }
+            inValues = false;
+        }
+    }
+
+    private String readString() throws IOException {
+        read(); // opening quote
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw new IllegalArgumentException("Statement " + statementNumber + ": unterminated string");
+            }
+            if (c == '\'') {
+                if (peek() == '\'') {
+                    read();
+                    value.append('\'');
+                    continue;
+                }
+                return value.toString();
+            }
+            value.append((char) c);
+        }
+    }
+
+    private Object readLiteral() throws IOException {
+        StringBuilder literal = new StringBuilder();
+        while (true) {
+            int c = peek();
+            if (c == -1 || c == ',' || c == ')' || Character.isWhitespace(c)) {
+                break;
+            }
+            literal.append((char) read());
+        }
+        String text = literal.toString();
+        if (text.equalsIgnoreCase("NULL")) {
+            return null;
+        }
+        try {
+            return new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Statement " + statementNumber + ": unsupported value " + text);
+        }
+    }
+
+    // N'...' literal: the N (already peeked) is only a prefix when a quote follows it
+    private boolean isQuotedUnicode() throws IOException {
+        reader.mark(1);
+        try {
+            return reader.read() == '\'';
+        } finally {
+            reader.reset();
+        }
+    }
+
+    private void expectWord(String expected) throws IOException {
+        String word = readWord();
+        if (!word.equalsIgnoreCase(expected)) {
+            throw new IllegalArgumentException("Statement " + statementNumber + ": expected " + expected + " but found '" + word + "'");
+        }
+    }
+
+    private String readWord() throws IOException {
+        skipWhitespace();
+        StringBuilder word = new StringBuilder();
+        while (true) {
+            int c = peek();
+            if (c == -1 || c == '(' || c == ';' || Character.isWhitespace(c)) {
+                return word.toString();
+            }
+            word.append((char) read());
+        }
+    }
+
+    // "db_owner.[property]" -> "property"
+    private static String tableName(String qualified) {
+        String name = qualified.substring(qualified.lastIndexOf('.') + 1);
+        return unquote(name).toLowerCase(Locale.ROOT);
+    }
+
+    private static String unquote(String name) {
+        if (name.length() >= 2 && (name.charAt(0) == '[' || name.charAt(0) == '"' || name.charAt(0) == '`')) {
+            return name.substring(1, name.length() - 1);
+        }
+        return name;
+    }
+
+    // Drop everything up to and including the next ';' outside a string literal
+    private void skipStatement() throws IOException {
+        inValues = false;
+        boolean inString = false;
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '\'') {
+                inString = !inString;
+            } else if (c == ';' && !inString) {
+                return;
+            }
+        }
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c == -1 || !Character.isWhitespace(c)) {
+                return;
+            }
+            read();
+        }
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        peeked = -2;
+        return c;
+    }
+}
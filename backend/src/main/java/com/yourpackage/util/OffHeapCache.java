@@ -0,0 +1,231 @@
+package com.yourpackage.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// Least-recently-used cache of byte strings kept outside the Java heap. One direct buffer is allocated up
+// front and cut into fixed-size blocks; a value occupies as many blocks as it needs, so the budget is
+// never exceeded and nothing is allocated or freed per entry. Only the keys, block lists and a small
+// metadata object per entry live on the heap.
+//
+// A reader pins an entry while it copies the bytes out, without holding the cache lock; an entry that
+// is evicted or invalidated meanwhile keeps its blocks until the last reader closes its handle.
+// Like WeightedLruCache it carries a write generation, so a value loaded before an invalidation is dropped.
+public class OffHeapCache<K, M> {
+
+    private final ByteBuffer arena;
+    private final int blockSize;
+    private final int blockCount;
+
+    private final int[] freeBlocks;
+    private int freeCount;
+
+    private final LinkedHashMap<K, Entry<M>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long writeGeneration;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+
+    private static final class Entry<M> {
+        final M meta;
+        final int[] blocks;
+        final int length;
+        int pins;
+        boolean removed;
+
+        Entry(M meta, int[] blocks, int length) {
+            this.meta = meta;
+            this.blocks = blocks;
+            this.length = length;
+        }
+    }
+
+    // A pinned entry; close it once the bytes have been written
+    public final class Handle implements AutoCloseable {
+        private final Entry<M> entry;
+        private boolean closed;
+
+        private Handle(Entry<M> entry) {
+            this.entry = entry;
+        }
+
+        public M getMeta() {
+            return entry.meta;
+        }
+
+        public int getLength() {
+            return entry.length;
+        }
+
+        // Copy the value to the stream a block at a time, through a buffer of one block
+        public void writeTo(OutputStream out) throws IOException {
+            byte[] buffer = new byte[Math.min(blockSize, entry.length)];
+            int remaining = entry.length;
+            for (int block : entry.blocks) {
+                int chunk = Math.min(blockSize, remaining);
+                arena.get(block * blockSize, buffer, 0, chunk);
+                out.write(buffer, 0, chunk);
+                remaining -= chunk;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                unpin(entry);
+            }
+        }
+    }
+
+    // The capacity is rounded down to whole blocks and may not exceed what one buffer can address
+    public OffHeapCache(long capacityBytes, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.blockSize = blockSize;
+        this.blockCount = (int) (Math.min(capacityBytes, Integer.MAX_VALUE) / blockSize);
+        this.arena = ByteBuffer.allocateDirect(blockCount * blockSize);
+        this.freeBlocks = new int[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            freeBlocks[i] = blockCount - 1 - i;
+        }
+        this.freeCount = blockCount;
+    }
+
+    // The pinned entry, or null (counted as a miss)
+    public synchronized Handle acquire(K key) {
+        Entry<M> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        entry.pins++;
+        return new Handle(entry);
+    }
+
+    // Take before loading a value, and pass to put afterwards
+    public synchronized long generation() {
+        return writeGeneration;
+    }
+
+    // Store a loaded value unless something was invalidated since `generation` was taken. Evicts the
+    // least recently used entries to make room; returns false if the value was not stored.
+    public synchronized boolean put(K key, M meta, byte[] value, long generation) {
+        if (generation != writeGeneration) {
+            return false;
+        }
+        int needed = Math.max(1, (value.length + blockSize - 1) / blockSize);
+        if (needed > blockCount) {
+            rejections++;
+            return false;
+        }
+
+        remove(entries.remove(key));
+        Iterator<Entry<M>> eldest = entries.values().iterator();
+        while (freeCount < needed && eldest.hasNext()) {
+            Entry<M> entry = eldest.next();
+            eldest.remove();
+            remove(entry);
+            evictions++;
+        }
+        // Whatever is still short is held by readers of evicted entries
+        if (freeCount < needed) {
+            rejections++;
+            return false;
+        }
+
+        int[] blocks = new int[needed];
+        for (int i = 0; i < needed; i++) {
+            blocks[i] = freeBlocks[--freeCount];
+            int offset = i * blockSize;
+            arena.put(blocks[i] * blockSize, value, offset, Math.min(blockSize, value.length - offset));
+        }
+        entries.put(key, new Entry<>(meta, blocks, value.length));
+        bytes += value.length;
+        return true;
+    }
+
+    public synchronized void invalidate(K key) {
+        writeGeneration++;
+        remove(entries.remove(key));
+    }
+
+    public synchronized void invalidateIf(Predicate<M> condition) {
+        writeGeneration++;
+        Iterator<Entry<M>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry<M> entry = iterator.next();
+            if (condition.test(entry.meta)) {
+                iterator.remove();
+                remove(entry);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        writeGeneration++;
+        for (Entry<M> entry : entries.values()) {
+            remove(entry);
+        }
+        entries.clear();
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long lookups = hits + misses;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("bytes", bytes);
+        stats.put("blocksUsed", blockCount - freeCount);
+        stats.put("blocks", blockCount);
+        stats.put("blockSize", blockSize);
+        stats.put("capacityBytes", (long) blockCount * blockSize);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hits / lookups);
+        stats.put("evictions", evictions);
+        stats.put("rejections", rejections);
+        return stats;
+    }
+
+    public synchronized void resetStats() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+        rejections = 0;
+    }
+
+    // Caller holds the lock and has already taken the entry out of the map
+    private void remove(Entry<M> entry) {
+        if (entry == null) {
+            return;
+        }
+        entry.removed = true;
+        bytes -= entry.length;
+        if (entry.pins == 0) {
+            release(entry);
+        }
+    }
+
+    private synchronized void unpin(Entry<M> entry) {
+        entry.pins--;
+        if (entry.removed && entry.pins == 0) {
+            release(entry);
+        }
+    }
+
+    private void release(Entry<M> entry) {
+        for (int block : entry.blocks) {
+            freeBlocks[freeCount++] = block;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.yourpackage.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+// Opaque continuation token for searches ordered by (dateOfValuation DESC, id DESC), and likewise
+// for the inbox ordered by (timestamp DESC, id DESC).
+// It records the sort key of the last row returned; the next page starts strictly after it.
+public class SearchCursor {
+
+    private static final String NO_DATE = "-";
+
+    private final Long valuationTime; // null when the last row had no valuation date
+    private final long id;
+
+    public SearchCursor(Date dateOfValuation, long id) {
+        this.valuationTime = dateOfValuation == null ? null : dateOfValuation.getTime();
+        this.id = id;
+    }
+
+    private SearchCursor(Long valuationTime, long id) {
+        this.valuationTime = valuationTime;
+        this.id = id;
+    }
+
+    public static SearchCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(':');
+            String time = value.substring(0, separator);
+            long id = Long.parseLong(value.substring(separator + 1));
+            return new SearchCursor(NO_DATE.equals(time) ? null : Long.valueOf(time), id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid search cursor");
+        }
+    }
+
+    public String encode() {
+        String value = (valuationTime == null ? NO_DATE : valuationTime.toString()) + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Long getValuationTime() {
+        return valuationTime;
+    }
+
+    public Date getDateOfValuation() {
+        return valuationTime == null ? null : new Date(valuationTime);
+    }
+
+    // Same value for cursors over other dated rows
+    public Date getDate() {
+        return getDateOfValuation();
+    }
+
+    public long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,8 @@
+package com.yourpackage.util;
+
+// Receives spreadsheet rows one at a time. Row numbers are 1-based as shown in Excel;
+// cells are positional, with null for an empty cell.
+public interface SheetRowHandler {
+
+    void row(int rowNumber, String[] cells);
+}
@@ -0,0 +1,11 @@
+package com.yourpackage.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Writes spreadsheet rows one at a time. Cells may be String, Number, java.util.Date or null (empty cell).
+// close() finishes the document and flushes it to the underlying stream, which stays open.
+public interface SheetRowWriter extends Closeable {
+
+    void row(Object... cells) throws IOException;
+}
@@ -0,0 +1,71 @@
+package com.yourpackage.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// Dictionary encoding for string columns: every distinct (lower-cased) value gets a small int code.
+// Not thread-safe, callers guard it with their own lock.
+public class StringDictionary {
+
+    public static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    public static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    // Return the code for the value, adding it to the dictionary if it is new
+    public int encode(String value) {
+        String key = normalize(value);
+        if (key == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(key);
+        if (code == null) {
+            code = values.size();
+            codes.put(key, code);
+            values.add(key);
+        }
+        return code;
+    }
+
+    // Return the code for the value, or NULL_CODE if it has never been seen
+    public int lookup(String value) {
+        String key = normalize(value);
+        if (key == null) {
+            return NULL_CODE;
+        }
+        return codes.getOrDefault(key, NULL_CODE);
+    }
+
+    public String decode(int code) {
+        return code == NULL_CODE ? null : values.get(code);
+    }
+
+    // Evaluate the predicate once per distinct value and return the matching codes
+    public BitSet matching(Predicate<String> predicate) {
+        BitSet matches = new BitSet(values.size());
+        for (int code = 0; code < values.size(); code++) {
+            if (predicate.test(values.get(code))) {
+                matches.set(code);
+            }
+        }
+        return matches;
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public void clear() {
+        codes.clear();
+        values.clear();
+    }
+}
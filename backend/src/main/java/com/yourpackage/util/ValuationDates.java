@@ -0,0 +1,44 @@
+package com.yourpackage.util;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+public class ValuationDates {
+
+    private ValuationDates() {
+    }
+
+    // Turn a "yyyy", "yyyy-MM" or "yyyy-MM-dd" filter into the half-open range [from, to) in epoch millis.
+    // This matches the old toString().startsWith(...) check without converting every date to a string.
+    public static long[] prefixRange(String prefix) {
+        String value = prefix.trim();
+        try {
+            LocalDate from;
+            LocalDate to;
+            switch (value.length()) {
+                case 4:
+                    from = LocalDate.of(Integer.parseInt(value), 1, 1);
+                    to = from.plusYears(1);
+                    break;
+                case 7:
+                    from = LocalDate.parse(value + "-01");
+                    to = from.plusMonths(1);
+                    break;
+                case 10:
+                    from = LocalDate.parse(value);
+                    to = from.plusDays(1);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported date of valuation filter: " + prefix);
+            }
+            ZoneId zone = ZoneId.systemDefault();
+            return new long[] {
+                    from.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    to.atStartOfDay(zone).toInstant().toEpochMilli()
+            };
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Unsupported date of valuation filter: " + prefix);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.yourpackage.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+// Least-recently-used map bounded by the total weight (approximate bytes) of its values rather than
+// by entry count, with hit, miss and eviction counters. Like the other caches in this project it
+// carries a write generation: a value loaded from the database is only stored if no invalidation
+// happened while it was being loaded.
+public class WeightedLruCache<K, V> {
+
+    private final long maxWeight;
+    private final ToIntFunction<V> weigher;
+
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long writeGeneration;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private static class Entry<V> {
+        final V value;
+        final int weight;
+
+        Entry(V value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    public WeightedLruCache(long maxWeight, ToIntFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    // The cached value, or null (counted as a miss)
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    // Take before loading a value, and pass to put afterwards
+    public synchronized long generation() {
+        return writeGeneration;
+    }
+
+    // Store a loaded value unless something was invalidated since `generation` was taken
+    public synchronized void put(K key, V value, long generation) {
+        if (generation != writeGeneration) {
+            return;
+        }
+        int entryWeight = weigher.applyAsInt(value);
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        Entry<V> previous = entries.put(key, new Entry<>(value, entryWeight));
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        weight += entryWeight;
+
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        writeGeneration++;
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight;
+        }
+    }
+
+    public synchronized void invalidateIf(Predicate<V> condition) {
+        writeGeneration++;
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry<V> entry = iterator.next();
+            if (condition.test(entry.value)) {
+                weight -= entry.weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        writeGeneration++;
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long lookups = hits + misses;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("weightBytes", weight);
+        stats.put("maxWeightBytes", maxWeight);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hits / lookups);
+        stats.put("missRate", lookups == 0 ? 0.0 : (double) misses / lookups);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+
+    public synchronized void resetStats() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+}
@@ -0,0 +1,86 @@
+package com.yourpackage.util;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+
+// Writes an .xlsx with POI's SXSSFWorkbook: only the last WINDOW rows are kept in memory, older rows are
+// flushed to a compressed temp file. The zip is assembled from that file on close(), so the bytes reach
+// the stream only at the end. A sheet that reaches Excel's row limit continues on a new sheet, header repeated.
+public class XlsxRowWriter implements SheetRowWriter {
+
+    private static final int WINDOW = 100;
+    private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    private final OutputStream out;
+    private final SXSSFWorkbook workbook = new SXSSFWorkbook(WINDOW);
+    private final CellStyle dateStyle;
+    private final String sheetName;
+    private final Object[] header;
+    private SXSSFSheet sheet;
+    private int sheetCount;
+    private int rowNumber;
+
+    // The header row is written now and repeated at the top of every further sheet
+    public XlsxRowWriter(OutputStream out, String sheetName, Object... header) {
+        this.out = out;
+        this.sheetName = sheetName;
+        this.header = header;
+        workbook.setCompressTempFiles(true);
+        dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd"));
+        newSheet();
+    }
+
+    @Override
+    public void row(Object... cells) {
+        if (rowNumber == MAX_ROWS) {
+            newSheet();
+        }
+        writeRow(cells);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            workbook.write(out);
+            out.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void newSheet() {
+        sheetCount++;
+        sheet = workbook.createSheet(sheetCount == 1 ? sheetName : sheetName + " " + sheetCount);
+        rowNumber = 0;
+        writeRow(header);
+    }
+
+    private void writeRow(Object[] cells) {
+        Row row = sheet.createRow(rowNumber++);
+        for (int i = 0; i < cells.length; i++) {
+            Object value = cells[i];
+            if (value == null) {
+                continue;
+            }
+            Cell cell = row.createCell(i);
+            if (value instanceof Date) {
+                cell.setCellValue((Date) value);
+                cell.setCellStyle(dateStyle);
+            } else if (value instanceof Number) {
+                cell.setCellValue(((Number) value).doubleValue());
+            } else {
+                cell.setCellValue(value.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.yourpackage.util;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Closed-loop load generator for comparing the platform-thread and virtual-thread server modes.
+// Each scenario runs `concurrency` clients back to back for a warmup and then a measured period,
+// and reports throughput and latency percentiles. Run it against a server started in each mode
+// with the same database and the same arguments. It is a test source, so it stays out of the server jar:
+//
+//   mvn test-compile
+//   java -cp target/test-classes com.yourpackage.util.EndpointBenchmark \
+//        --base-url=http://localhost:8081 --email=buyer@example.com --password=secret \
+//        --concurrency=64 --warmup=10 --duration=30 --scenarios=search,inbox,login
+public class EndpointBenchmark {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String baseUrl = options.getOrDefault("base-url", "http://localhost:8081");
+        String email = options.get("email");
+        String password = options.get("password");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        String projectName = options.getOrDefault("project-name", "");
+        List<String> scenarios = Arrays.asList(options.getOrDefault("scenarios", "search,inbox,login").split(","));
+
+        if (email == null || password == null) {
+            System.err.println("--email and --password are required (used for login and to get a token for the inbox)");
+            return;
+        }
+
+        // The client's threads are not daemons; shut them down so the JVM can exit
+        ExecutorService httpThreads = Executors.newFixedThreadPool(4);
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .executor(httpThreads)
+                    .build();
+            runScenarios(client, baseUrl, email, password, projectName, scenarios, concurrency, warmup, duration);
+        } finally {
+            httpThreads.shutdownNow();
+        }
+    }
+
+    private static void runScenarios(HttpClient client, String baseUrl, String email, String password,
+                                     String projectName, List<String> scenarios, int concurrency, int warmup,
+                                     int duration) throws Exception {
+        String loginBody = "{\"email\":\"" + json(email) + "\",\"password\":\"" + json(password) + "\"}";
+        Supplier<HttpRequest> login = () -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/users/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(loginBody))
+                .build();
+
+        String token = login(client, login.get());
+
+        Map<String, Supplier<HttpRequest>> requests = new HashMap<>();
+        String searchQuery = projectName.isEmpty() ? "" : "&projectName=" + URLEncoder.encode(projectName, StandardCharsets.UTF_8);
+        requests.put("search", () -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/transactions/search?size=50" + searchQuery))
+                .GET().build());
+        requests.put("inbox", () -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/messages"))
+                .header("Authorization", "Bearer " + token)
+                .GET().build());
+        requests.put("login", login);
+
+        System.out.printf("%-8s %10s %8s %10s %9s %9s %9s %9s%n",
+                "scenario", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (String scenario : scenarios) {
+            Supplier<HttpRequest> request = requests.get(scenario.trim());
+            if (request == null) {
+                System.err.println("Unknown scenario: " + scenario);
+                continue;
+            }
+            run(client, request, concurrency, warmup);
+            Result result = run(client, request, concurrency, duration);
+            result.print(scenario.trim(), duration);
+        }
+    }
+
+    // Run `concurrency` closed-loop clients for `seconds` and merge their samples
+    private static Result run(HttpClient client, Supplier<HttpRequest> request, int concurrency, int seconds)
+            throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        try {
+            return merge(submitClients(clients, client, request, concurrency, deadline));
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private static List<Future<Result>> submitClients(ExecutorService clients, HttpClient client,
+                                                      Supplier<HttpRequest> request, int concurrency, long deadline) {
+        List<Future<Result>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(clients.submit(() -> {
+                Result result = new Result();
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request.get(), HttpResponse.BodyHandlers.discarding());
+                        result.record(System.nanoTime() - start, response.statusCode() < 400);
+                    } catch (Exception e) {
+                        result.record(System.nanoTime() - start, false);
+                    }
+                }
+                return result;
+            }));
+        }
+        return futures;
+    }
+
+    private static Result merge(List<Future<Result>> futures) throws Exception {
+        Result merged = new Result();
+        for (Future<Result> future : futures) {
+            merged.merge(future.get());
+        }
+        return merged;
+    }
+
+    private static String login(HttpClient client, HttpRequest request) throws Exception {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = TOKEN.matcher(response.body());
+        if (response.statusCode() != 200 || !matcher.find()) {
+            throw new IllegalStateException("Login failed with status " + response.statusCode() + ": " + response.body());
+        }
+        return matcher.group(1);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    private static String json(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    // Latency samples in nanoseconds plus an error count
+    private static class Result {
+        long[] samples = new long[1024];
+        int count;
+        int errors;
+
+        void record(long nanos, boolean ok) {
+            if (!ok) {
+                errors++;
+            }
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = nanos;
+        }
+
+        void merge(Result other) {
+            if (count + other.count > samples.length) {
+                samples = Arrays.copyOf(samples, count + other.count);
+            }
+            System.arraycopy(other.samples, 0, samples, count, other.count);
+            count += other.count;
+            errors += other.errors;
+        }
+
+        void print(String scenario, int seconds) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            System.out.printf("%-8s %10d %8d %10.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    scenario, count, errors, count / (double) seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                    count == 0 ? 0.0 : sorted[count - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0.0;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.yourpackage.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntityTagTest {
+
+    // A page of rows (id, version) followed by its next-page cursor, as the search services fold them
+    private static String page(long[][] rows, String cursor) {
+        EntityTag tag = new EntityTag("properties");
+        for (long[] row : rows) {
+            tag.add(row[0]).add(row[1]);
+        }
+        return tag.add(cursor).build();
+    }
+
+    @Test
+    void rowTagSpellsOutTheNonNullParts() {
+        assertEquals("\"property-12-3-7\"", EntityTag.of("property", 12L, 3L, 7L));
+        assertEquals("\"property-12-3\"", EntityTag.of("property", 12L, 3L, null));
+    }
+
+    @Test
+    void pageTagIsStableForTheSameRows() {
+        long[][] rows = {{1, 0}, {2, 5}};
+
+        assertEquals(page(rows, "abc"), page(rows, "abc"));
+        assertTrue(page(rows, "abc").startsWith("\"properties-"));
+    }
+
+    @Test
+    void pageTagChangesWithAVersionBump() {
+        assertNotEquals(page(new long[][]{{1, 0}, {2, 5}}, "abc"), page(new long[][]{{1, 0}, {2, 6}}, "abc"));
+        assertNotEquals(EntityTag.of("property", 12L, 3L), EntityTag.of("property", 12L, 4L));
+    }
+
+    @Test
+    void pageTagChangesWithTheRowsOrCursor() {
+        long[][] rows = {{1, 0}, {2, 5}};
+
+        assertNotEquals(page(rows, "abc"), page(rows, "abd"));
+        assertNotEquals(page(rows, null), page(rows, ""));
+        assertNotEquals(page(rows, "abc"), page(new long[][]{{2, 5}, {1, 0}}, "abc"));
+    }
+
+    @Test
+    void ifNoneMatchComparesWeaklyAndAcceptsLists() {
+        String tag = EntityTag.of("property", 12L, 3L);
+
+        assertTrue(EntityTag.matches(tag, tag));
+        assertTrue(EntityTag.matches("W/" + tag, tag));
+        assertTrue(EntityTag.matches("\"other\", " + tag, tag));
+        assertTrue(EntityTag.matches("*", tag));
+        assertFalse(EntityTag.matches("\"property-12-4\"", tag));
+        assertFalse(EntityTag.matches(null, tag));
+    }
+}
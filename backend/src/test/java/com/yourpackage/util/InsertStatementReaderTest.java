@@ -0,0 +1,108 @@
+package com.yourpackage.util;
+
+import com.yourpackage.service.BatchInsertWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InsertStatementReaderTest {
+
+    private static InsertStatementReader reader(String sql) {
+        return new InsertStatementReader(new StringReader(sql));
+    }
+
+    @Test
+    void readsEveryRowOfAMultiRowInsert() throws IOException {
+        try (InsertStatementReader reader = reader(
+                "INSERT INTO dbo.[property] ([Project_Name], price) VALUES ('A', 1), ('B', 2.50),\n  ('C', 3);")) {
+            InsertStatementReader.Row first = reader.next();
+            assertEquals("property", first.getTable());
+            assertEquals(List.of("project_name", "price"), first.getColumns());
+            assertArrayEquals(new Object[]{"A", new BigDecimal("1")}, first.getValues());
+            assertArrayEquals(new Object[]{"B", new BigDecimal("2.50")}, reader.next().getValues());
+            assertArrayEquals(new Object[]{"C", new BigDecimal("3")}, reader.next().getValues());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void keepsStatementsApart() throws IOException {
+        try (InsertStatementReader reader = reader(
+                "INSERT INTO property (price) VALUES (1);\nINSERT INTO transactions (price) VALUES (2)")) {
+            InsertStatementReader.Row first = reader.next();
+            InsertStatementReader.Row second = reader.next();
+            assertEquals(1, first.getStatement());
+            assertEquals("property", first.getTable());
+            assertEquals(2, second.getStatement());
+            assertEquals("transactions", second.getTable());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void unescapesDoubledQuotesAndKeepsDelimitersInsideStrings() throws IOException {
+        try (InsertStatementReader reader = reader(
+                "INSERT INTO property (address, facilities) VALUES ('O''Hara Street', 'Pool, Gym; (new)');")) {
+            assertArrayEquals(new Object[]{"O'Hara Street", "Pool, Gym; (new)"}, reader.next().getValues());
+        }
+    }
+
+    @Test
+    void readsUnicodeLiteralsAndNulls() throws IOException {
+        try (InsertStatementReader reader = reader(
+                "INSERT INTO property (project_name, facilities, price, year) VALUES (N'Résidence', NULL, null, -5);")) {
+            assertArrayEquals(new Object[]{"Résidence", null, null, new BigDecimal("-5")}, reader.next().getValues());
+        }
+    }
+
+    @Test
+    void reportsAMalformedStatementAndCarriesOnWithTheNext() throws IOException {
+        try (InsertStatementReader reader = reader(
+                "INSERT INTO property (price, year) VALUES (1);\n"
+                        + "INSERT INTO property (price) VALUES (abc);\n"
+                        + "UPDATE property SET price = 1;\n"
+                        + "INSERT INTO property (price) VALUES (4);")) {
+            assertThrows(IllegalArgumentException.class, reader::next);
+            assertThrows(IllegalArgumentException.class, reader::next);
+            assertThrows(IllegalArgumentException.class, reader::next);
+            InsertStatementReader.Row row = reader.next();
+            assertEquals(4, row.getStatement());
+            assertArrayEquals(new Object[]{new BigDecimal("4")}, row.getValues());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void rejectsAnUnterminatedString() throws IOException {
+        try (InsertStatementReader reader = reader("INSERT INTO property (address) VALUES ('Main Street);")) {
+            assertThrows(IllegalArgumentException.class, reader::next);
+            assertNull(reader.next());
+        }
+    }
+
+    // The dump importer only writes rows for which BatchInsertWriter builds a statement
+    @Test
+    void onlyAllowedTablesAndColumnsGetAnInsertStatement() throws IOException {
+        try (InsertStatementReader reader = reader(
+                "INSERT INTO property (project_name, agent_id) VALUES ('A', 1);\n"
+                        + "INSERT INTO transactions (project_name, agent_id) VALUES ('A', 1);\n"
+                        + "INSERT INTO users (email) VALUES ('a@example.com');")) {
+            InsertStatementReader.Row property = reader.next();
+            assertEquals("INSERT INTO property (project_name, agent_id) VALUES (?, ?)",
+                    BatchInsertWriter.insertSql(property.getTable(), property.getColumns()));
+            InsertStatementReader.Row transaction = reader.next();
+            assertTrue(BatchInsertWriter.insertSql(transaction.getTable(), transaction.getColumns()).isEmpty());
+            InsertStatementReader.Row user = reader.next();
+            assertTrue(BatchInsertWriter.insertSql(user.getTable(), user.getColumns()).isEmpty());
+        }
+    }
+}
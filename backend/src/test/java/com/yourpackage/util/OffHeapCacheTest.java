@@ -0,0 +1,115 @@
+package com.yourpackage.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapCacheTest {
+
+    // Four blocks of eight bytes
+    private final OffHeapCache<String, String> cache = new OffHeapCache<>(32, 8);
+
+    private static byte[] bytes(int length, char fill) {
+        return String.valueOf(fill).repeat(length).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] read(OffHeapCache<String, String>.Handle handle) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        handle.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private boolean put(String key, byte[] value) {
+        return cache.put(key, key + "-meta", value, cache.generation());
+    }
+
+    @Test
+    void returnsWhatWasStoredAcrossBlocks() throws IOException {
+        byte[] value = "twenty bytes of json".getBytes(StandardCharsets.US_ASCII);
+        assertTrue(put("a", value));
+
+        try (OffHeapCache<String, String>.Handle handle = cache.acquire("a")) {
+            assertNotNull(handle);
+            assertEquals("a-meta", handle.getMeta());
+            assertEquals(20, handle.getLength());
+            assertArrayEquals(value, read(handle));
+        }
+        assertEquals(3, cache.getStats().get("blocksUsed"));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntryToMakeRoom() {
+        assertTrue(put("a", bytes(8, 'a')));
+        assertTrue(put("b", bytes(16, 'b')));
+        cache.acquire("a").close();
+
+        assertTrue(put("c", bytes(16, 'c')));
+
+        assertNull(cache.acquire("b"));
+        try (OffHeapCache<String, String>.Handle a = cache.acquire("a");
+             OffHeapCache<String, String>.Handle c = cache.acquire("c")) {
+            assertNotNull(a);
+            assertNotNull(c);
+        }
+        assertEquals(1L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    void keepsTheBlocksOfAPinnedEntryUntilItIsClosed() throws IOException {
+        assertTrue(put("a", bytes(32, 'a')));
+        OffHeapCache<String, String>.Handle handle = cache.acquire("a");
+        cache.invalidate("a");
+
+        assertNull(cache.acquire("a"));
+        assertFalse(put("b", bytes(8, 'b')));
+        assertArrayEquals(bytes(32, 'a'), read(handle));
+
+        handle.close();
+        handle.close();
+        assertEquals(0, cache.getStats().get("blocksUsed"));
+        assertTrue(put("b", bytes(8, 'b')));
+    }
+
+    @Test
+    void dropsAValueLoadedBeforeAnInvalidation() {
+        long generation = cache.generation();
+        cache.invalidate("a");
+
+        assertFalse(cache.put("a", "stale", bytes(8, 'a'), generation));
+        assertNull(cache.acquire("a"));
+        assertTrue(cache.put("a", "fresh", bytes(8, 'a'), cache.generation()));
+    }
+
+    @Test
+    void rejectsAValueLargerThanTheArena() {
+        assertTrue(put("a", bytes(8, 'a')));
+
+        assertFalse(put("big", bytes(33, 'b')));
+
+        assertNull(cache.acquire("big"));
+        cache.acquire("a").close();
+        assertEquals(1L, cache.getStats().get("rejections"));
+        assertEquals(0L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    void invalidatesEntriesByMetadata() {
+        assertTrue(put("a", bytes(8, 'a')));
+        assertTrue(put("b", bytes(8, 'b')));
+
+        cache.invalidateIf(meta -> meta.startsWith("a"));
+
+        assertNull(cache.acquire("a"));
+        cache.acquire("b").close();
+        assertEquals(8L, cache.getStats().get("bytes"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.yourpackage.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class WeightedLruCacheTest {
+
+    // Each value weighs its length
+    private final WeightedLruCache<String, String> cache = new WeightedLruCache<>(10, String::length);
+
+    private void put(String key, String value) {
+        cache.put(key, value, cache.generation());
+    }
+
+    @Test
+    void returnsStoredValuesAndCountsHitsAndMisses() {
+        put("a", "one");
+
+        assertEquals("one", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1L, cache.getStats().get("hits"));
+        assertEquals(1L, cache.getStats().get("misses"));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntriesUntilTheWeightFits() {
+        put("a", "aaaa");
+        put("b", "bbbb");
+        cache.get("a");
+
+        put("c", "cccc");
+
+        assertNull(cache.get("b"));
+        assertEquals("aaaa", cache.get("a"));
+        assertEquals("cccc", cache.get("c"));
+        assertEquals(8L, cache.getStats().get("weightBytes"));
+        assertEquals(1L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    void replacingAValueReleasesItsOldWeight() {
+        put("a", "aaaaaaaa");
+        put("a", "aa");
+        put("b", "bbbbbbbb");
+
+        assertEquals("aa", cache.get("a"));
+        assertEquals(10L, cache.getStats().get("weightBytes"));
+        assertEquals(0L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    void dropsAValueLoadedBeforeAnInvalidation() {
+        long generation = cache.generation();
+        cache.invalidate("a");
+
+        cache.put("a", "stale", generation);
+
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void ignoresAValueHeavierThanTheWholeCache() {
+        put("a", "aaaa");
+
+        put("big", "bbbbbbbbbbb");
+
+        assertNull(cache.get("big"));
+        assertEquals("aaaa", cache.get("a"));
+        assertEquals(0L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    void invalidatesEntriesMatchingACondition() {
+        put("a", "keep");
+        put("b", "drop");
+
+        cache.invalidateIf(value -> value.equals("drop"));
+
+        assertNull(cache.get("b"));
+        assertEquals("keep", cache.get("a"));
+        assertEquals(4L, cache.getStats().get("weightBytes"));
+    }
+}
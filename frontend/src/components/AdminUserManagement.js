@@ -8,13 +8,16 @@ function AdminUserManagement() {
     const [newUser, setNewUser] = useState({ name: '', email: '', role: '', password: '' }); // Include password in new user data
     const [editingUser, setEditingUser] = useState(null); // Store user being edited
     const [error, setError] = useState('');
+    const [page, setPage] = useState(0);
+    const [totalPages, setTotalPages] = useState(0);
+    const [query, setQuery] = useState('');
     const navigate = useNavigate(); // Use navigate from react-router-dom
 
     useEffect(() => {
         fetchUsers();
-    }, []);
+    }, [page, query]);
 
-    // Fetch all users from the server
+    // Fetch one page of users from the server, filtered by email/name prefix
     const fetchUsers = async () => {
         const token = localStorage.getItem('token'); // Get token from local storage
         try {
@@ -22,9 +25,11 @@ function AdminUserManagement() {
                 headers: {
                     Authorization: `Bearer ${token}`, // Include token in the request
                 },
+                params: { page, size: 50, query: query || undefined },
             });
-            const filteredUsers = response.data.filter(user => user.role !== 'ADMIN');
+            const filteredUsers = response.data.items.filter(user => user.role !== 'ADMIN');
             setUsers(filteredUsers);
+            setTotalPages(response.data.totalPages);
         } catch (error) {
             console.error("Failed to fetch users", error.response?.data || error.message);
         }
@@ -159,6 +164,13 @@ function AdminUserManagement() {
                 <div style={styles.rightColumn}>
                     <h3>All Users</h3>
                     {error && <p style={{ color: 'red' }}>{error}</p>}
+                    <input
+                        type="text"
+                        placeholder="Search by email or name"
+                        value={query}
+                        onChange={(e) => { setQuery(e.target.value); setPage(0); }}
+                        style={styles.input}
+                    />
                     <ul style={styles.userList}>
                         {users.map((user) => (
                             <li key={user.id} style={styles.userItem}>
@@ -202,6 +214,11 @@ function AdminUserManagement() {
                             </li>
                         ))}
                     </ul>
+                    <div style={styles.buttonsContainer}>
+                        <button onClick={() => setPage(page - 1)} disabled={page === 0} style={styles.button}>Previous</button>
+                        <span style={{ marginTop: '20px' }}>Page {page + 1} of {Math.max(totalPages, 1)}</span>
+                        <button onClick={() => setPage(page + 1)} disabled={page + 1 >= totalPages} style={styles.button}>Next</button>
+                    </div>
                 </div>
             </div>
         </div>
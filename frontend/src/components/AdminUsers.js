@@ -14,7 +14,7 @@ const AdminUsers = () => {
     useEffect(() => {
         // Fetch all users when the component loads
         axios.get('/api/admin/users').then(response => {
-            setUsers(response.data);
+            setUsers(response.data.items);
         });
     }, []);
 
@@ -6,30 +6,39 @@ const FavoriteList = () => {
     const [favorites, setFavorites] = useState([]);
     const [error, setError] = useState('');
     const [loading, setLoading] = useState(false);
+    const [page, setPage] = useState(0);
+    const [totalPages, setTotalPages] = useState(0);
     const navigate = useNavigate();
 
-    useEffect(() => {
-        const fetchFavorites = async () => {
-            setLoading(true);
-            const token = localStorage.getItem('token');
-            try {
-                const response = await axios.get('http://localhost:8081/api/favorites', {
-                    headers: {
-                        Authorization: `Bearer ${token}`
-                    }
-                });
-                const sortedFavorites = response.data.sort((a, b) => b.id - a.id);
-                setFavorites(sortedFavorites);
-                setLoading(false);
-            } catch (error) {
-                console.error('Error fetching favorites', error);
-                setError('Failed to load favorite properties.');
-                setLoading(false);
+    // Fetch one page of favorites, most recently added first
+    const fetchFavorites = async () => {
+        setLoading(true);
+        const token = localStorage.getItem('token');
+        try {
+            const response = await axios.get('http://localhost:8081/api/favorites', {
+                headers: {
+                    Authorization: `Bearer ${token}`
+                },
+                params: { page, size: 20 }
+            });
+            // Removing the last favorite of the last page leaves it empty; show the one before
+            if (response.data.items.length === 0 && page > 0) {
+                setPage(Math.max(response.data.totalPages - 1, 0));
+                return;
             }
-        };
+            setFavorites(response.data.items);
+            setTotalPages(response.data.totalPages);
+            setLoading(false);
+        } catch (error) {
+            console.error('Error fetching favorites', error);
+            setError('Failed to load favorite properties.');
+            setLoading(false);
+        }
+    };
 
+    useEffect(() => {
         fetchFavorites();
-    }, []);
+    }, [page]);
 
     const handlePropertyClick = (propertyId) => {
         navigate(`/properties/${propertyId}`);
@@ -43,7 +52,8 @@ const FavoriteList = () => {
                     Authorization: `Bearer ${token}`
                 }
             });
-            setFavorites(favorites.filter(favorite => favorite.id !== id));
+            // Fetch the page again so the next favorite moves up into it
+            fetchFavorites();
         } catch (error) {
             console.error('Error removing favorite', error);
             setError('Failed to remove property from favorites.');
@@ -100,6 +110,14 @@ const FavoriteList = () => {
                     )}
                 </ul>
             )}
+
+            {totalPages > 1 && (
+                <div>
+                    <button onClick={() => setPage(page - 1)} disabled={page === 0} style={styles.pageButton}>Previous</button>
+                    <span style={{ margin: '0 10px' }}>Page {page + 1} of {totalPages}</span>
+                    <button onClick={() => setPage(page + 1)} disabled={page + 1 >= totalPages} style={styles.pageButton}>Next</button>
+                </div>
+            )}
         </div>
     );
 };
@@ -148,6 +166,15 @@ const styles = {
         display: 'inline-block',
         transition: 'transform 0.2s ease-in-out, box-shadow 0.2s ease-in-out',
     },
+    pageButton: {
+        padding: '10px 20px',
+        backgroundColor: '#007bff',
+        color: '#fff',
+        borderRadius: '5px',
+        border: 'none',
+        cursor: 'pointer',
+        marginTop: '10px',
+    },
     removeButton: {
         padding: '5px 10px',
         backgroundColor: 'red',
@@ -16,16 +16,33 @@ function Home() {
     const [maxPrice, setMaxPrice] = useState('');
     const [facilities, setFacilities] = useState('');
     const [year, setYear] = useState('');
-    const [properties, setProperties] = useState([]); // Store all properties
+    const [searchParams, setSearchParams] = useState({}); // Filters of the current search
+    const [pageCursors, setPageCursors] = useState([]); // Cursor used to fetch each visited page
+    const [nextCursor, setNextCursor] = useState(null); // Cursor for the page after the current one
     const [displayedProperties, setDisplayedProperties] = useState([]); // Properties to display per page
     const [error, setError] = useState('');
     const [currentPage, setCurrentPage] = useState(1); // Track the current page
+    const [favoriteStatus, setFavoriteStatus] = useState({}); // Property id -> favourited, for the shown page
     const limit = 15; // Limit to 15 properties per page
 
     useEffect(() => {
         console.log("userRole from context in Home:", userRole);
     }, [userRole]);
 
+    // Ask once per page which of the shown properties are already favourites
+    useEffect(() => {
+        const token = localStorage.getItem('token');
+        if (!token || displayedProperties.length === 0) {
+            setFavoriteStatus({});
+            return;
+        }
+        axios.get('http://localhost:8081/api/favorites/status', {
+            headers: { Authorization: `Bearer ${token}` },
+            params: { ids: displayedProperties.map(property => property.id).join(',') }
+        }).then(response => setFavoriteStatus(response.data))
+            .catch(error => console.error("Failed to fetch favorite status:", error));
+    }, [displayedProperties]);
+
     const switchToTransactionSearch = () => {
         navigate('/transaction-search');
     };
@@ -118,26 +135,33 @@ function Home() {
         setPropertyTypeSuggestions([]);
     };
 
+    // Fetch one page of results; the server returns the page plus a cursor for the next one
+    const fetchPage = async (params, cursor) => {
+        const response = await axios.get('http://localhost:8081/api/properties/search', {
+            params: { ...params, size: limit, cursor: cursor || undefined },
+        });
+        setDisplayedProperties(response.data.items);
+        setNextCursor(response.data.nextCursor);
+    };
+
     // Function to handle search and retrieve properties
     const handleSearch = async (e) => {
         e.preventDefault();
         setError('');
+        const params = {
+            projectName: searchTerm.trim() || undefined,
+            propertyType: propertyType.trim() || undefined, // Include property type in search
+            minPrice: minPrice || undefined,
+            maxPrice: maxPrice || undefined,
+            sizeSqFt: sizeSqFt || undefined,
+            facilities: facilities.trim() || undefined,
+            year: year || undefined,
+        };
         try {
-            const response = await axios.get('http://localhost:8081/api/properties/search', {
-                params: {
-                    projectName: searchTerm.trim() || undefined,
-                    propertyType: propertyType.trim() || undefined, // Include property type in search
-                    minPrice: minPrice || undefined,
-                    maxPrice: maxPrice || undefined,
-                    sizeSqFt: sizeSqFt || undefined,
-                    facilities: facilities.trim() || undefined,
-                    year: year || undefined,
-                },
-            });
-            const allProperties = response.data;
-            setProperties(allProperties);
+            await fetchPage(params, null);
+            setSearchParams(params);
+            setPageCursors([null]);
             setCurrentPage(1); // Reset to page 1 when a new search is made
-            setDisplayedProperties(allProperties.slice(0, limit)); // Show the first 15 properties
         } catch (error) {
             console.error("Search failed: ", error);
             setError('An error occurred while searching. Please try again.');
@@ -162,6 +186,7 @@ function Home() {
             await axios.post(`http://localhost:8081/api/favorites/add/${propertyId}`, {}, {
                 headers: { Authorization: `Bearer ${token}` }
             });
+            setFavoriteStatus(prev => ({ ...prev, [propertyId]: true }));
             alert("Property added to favorites!");
         } catch (error) {
             if (error.response && error.response.status === 409) {
@@ -174,23 +199,33 @@ function Home() {
     };
 
     // Function to handle pagination and move to the next page
-    const handleNextPage = () => {
-        const totalProperties = properties.length;
-        const startIndex = currentPage * limit;
-        const endIndex = startIndex + limit;
-        if (startIndex < totalProperties) {
-            setDisplayedProperties(properties.slice(startIndex, endIndex));
+    const handleNextPage = async () => {
+        if (!nextCursor) {
+            return;
+        }
+        try {
+            await fetchPage(searchParams, nextCursor);
+            setPageCursors([...pageCursors, nextCursor]);
             setCurrentPage(currentPage + 1);
+        } catch (error) {
+            console.error("Failed to load the next page: ", error);
+            setError('An error occurred while loading results. Please try again.');
         }
     };
 
     // Function to handle pagination and move to the previous page
-    const handlePreviousPage = () => {
-        if (currentPage > 1) {
-            const startIndex = (currentPage - 2) * limit;
-            const endIndex = startIndex + limit;
-            setDisplayedProperties(properties.slice(startIndex, endIndex));
+    const handlePreviousPage = async () => {
+        if (currentPage <= 1) {
+            return;
+        }
+        const cursors = pageCursors.slice(0, -1);
+        try {
+            await fetchPage(searchParams, cursors[cursors.length - 1]);
+            setPageCursors(cursors);
             setCurrentPage(currentPage - 1);
+        } catch (error) {
+            console.error("Failed to load the previous page: ", error);
+            setError('An error occurred while loading results. Please try again.');
         }
     };
 
@@ -312,7 +347,9 @@ function Home() {
                             <li key={property.id} style={styles.propertyItem}>
                                 <strong>{property.projectName}</strong> - {property.propertyType} - ${property.price}
                                 <button onClick={() => viewPropertyDetails(property.id)} style={styles.propertyButton}>View Details</button>
-                                <button onClick={() => addToFavorites(property.id)} style={styles.propertyButton}>Add to Favorites</button>
+                                <button onClick={() => addToFavorites(property.id)} style={styles.propertyButton} disabled={favoriteStatus[property.id]}>
+                                    {favoriteStatus[property.id] ? 'In Favorites' : 'Add to Favorites'}
+                                </button>
                             </li>
                         ))}
                     </ul>
@@ -326,7 +363,7 @@ function Home() {
                     Previous
                 </button>
                 <span> Page {currentPage} </span>
-                <button onClick={handleNextPage} disabled={currentPage * limit >= properties.length} style={styles.paginationButton}>
+                <button onClick={handleNextPage} disabled={!nextCursor} style={styles.paginationButton}>
                     Next
                 </button>
             </div>
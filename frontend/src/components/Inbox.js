@@ -5,36 +5,69 @@ import axios from 'axios';
 function Inbox() {
     const navigate = useNavigate();
     const [messages, setMessages] = useState([]);
+    const [nextCursor, setNextCursor] = useState(null);
+    const [unread, setUnread] = useState(0);
     const [error, setError] = useState('');
     const [loading, setLoading] = useState(false);
     const [form, setForm] = useState({ recipientEmail: '', subject: '', content: '' });
     const [showForm, setShowForm] = useState(false);  // State to toggle form visibility
 
+    // Fetch one page of received messages (newest first); without a cursor the list starts over
+    const fetchMessages = async (cursor) => {
+        const headers = { Authorization: `Bearer ${localStorage.getItem('token')}` };
+        const [response, unreadResponse] = await Promise.all([
+            axios.get('http://localhost:8081/api/messages', {
+                headers,
+                params: { size: 20, cursor: cursor || undefined }
+            }),
+            axios.get('http://localhost:8081/api/messages/unread-count', { headers })
+        ]);
+        const items = response.data.items || [];
+        setMessages(previous => (cursor ? [...previous, ...items] : items));
+        setNextCursor(response.data.nextCursor);
+        setUnread(unreadResponse.data.unread);
+        if (!cursor && items.length === 0) {
+            setError('No messages found');
+        }
+    };
+
     // Fetch received messages when the component loads
     useEffect(() => {
-        const fetchMessages = async () => {
+        const loadFirstPage = async () => {
             setLoading(true); // Start loading before fetch
             try {
-                const response = await axios.get('http://localhost:8081/api/messages', {
-                    headers: { Authorization: `Bearer ${localStorage.getItem('token')}` }
-                });
-                setLoading(false); // Stop loading after fetch
-                if (response.data && response.data.length > 0) {
-                    // Sort messages by timestamp in descending order so the latest ones are on top
-                    const sortedMessages = response.data.sort((a, b) => new Date(b.timestamp) - new Date(a.timestamp));
-                    setMessages(sortedMessages);
-                } else {
-                    setError('No messages found');
-                }
+                await fetchMessages(null);
             } catch (err) {
-                setLoading(false); // Stop loading on error
                 setError('Failed to fetch messages');
                 console.error("Failed to fetch messages:", err);
             }
+            setLoading(false);
         };
-        fetchMessages();
+        loadFirstPage();
+    }, []);
+
+    // New messages are pushed by the server while the inbox is open
+    useEffect(() => {
+        const token = encodeURIComponent(localStorage.getItem('token'));
+        const source = new EventSource(`http://localhost:8081/api/messages/stream?access_token=${token}`);
+        source.addEventListener('message', (event) => {
+            const message = JSON.parse(event.data);
+            setMessages(previous => (previous.some(m => m.id === message.id) ? previous : [message, ...previous]));
+            setUnread(previous => previous + 1);
+            setError('');
+        });
+        return () => source.close();
     }, []);
 
+    const handleLoadMore = async () => {
+        try {
+            await fetchMessages(nextCursor);
+        } catch (err) {
+            setError('Failed to fetch messages');
+            console.error("Failed to fetch messages:", err);
+        }
+    };
+
     // Handle form input changes
     const handleChange = (e) => {
         setForm({ ...form, [e.target.name]: e.target.value });
@@ -53,12 +86,8 @@ function Inbox() {
             });
             setForm({ recipientEmail: '', subject: '', content: '' });
             alert('Message sent successfully!');
-            // Fetch the messages again after sending a new one to update the list
-            const response = await axios.get('http://localhost:8081/api/messages', {
-                headers: { Authorization: `Bearer ${localStorage.getItem('token')}` }
-            });
-            const sortedMessages = response.data.sort((a, b) => new Date(b.timestamp) - new Date(a.timestamp));
-            setMessages(sortedMessages);  // Update the message list
+            // Fetch the first page again after sending a new one to update the list
+            await fetchMessages(null);
         } catch (err) {
             setError('Failed to send message');
             console.error("Failed to send message:", err);
@@ -72,7 +101,7 @@ function Inbox() {
 
     return (
         <div style={styles.container}>
-            <h2 style={styles.title}>Inbox</h2>
+            <h2 style={styles.title}>Inbox{unread > 0 ? ` (${unread} unread)` : ''}</h2>
 
             {/* Toggleable Form Section */}
             <button onClick={() => setShowForm(!showForm)} style={styles.toggleButton}>
@@ -130,8 +159,9 @@ function Inbox() {
                         <>
                             {messages.length > 0 ? (
                                 <ul style={styles.messageList}>
-                                    {messages.map((message, index) => (
-                                        <li key={index} onClick={() => navigate(`/messages/${message.id}`)} style={styles.messageItem}>
+                                    {messages.map((message) => (
+                                        <li key={message.id} onClick={() => navigate(`/messages/${message.id}`)}
+                                            style={message.read ? styles.messageItem : { ...styles.messageItem, ...styles.unreadItem }}>
                                             <p><strong>From:</strong> {message.sender}</p>
                                             <p><strong>Subject:</strong> {message.subject}</p>
                                             <p><strong>Snippet:</strong> {message.content.substring(0, 100)}...</p>
@@ -141,6 +171,9 @@ function Inbox() {
                             ) : (
                                 <p style={{ color: 'red' }}>{error}</p>
                             )}
+                            {nextCursor && (
+                                <button onClick={handleLoadMore} style={styles.button}>Load More</button>
+                            )}
                         </>
                     )}
                 </div>
@@ -235,6 +268,10 @@ const styles = {
         listStyleType: 'none',
         padding: 0,
     },
+    unreadItem: {
+        borderLeft: '4px solid #007bff',
+        fontWeight: 'bold',
+    },
     messageItem: {
         padding: '15px',
         borderBottom: '1px solid #ddd',
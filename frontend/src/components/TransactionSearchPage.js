@@ -13,7 +13,9 @@ function TransactionSearchPage() {
     const [maxPrice, setMaxPrice] = useState('');
     const [facilities, setFacilities] = useState('');
     const [year, setYear] = useState('');
-    const [transactions, setTransactions] = useState([]); // Store all transactions
+    const [searchParams, setSearchParams] = useState({}); // Filters of the current search
+    const [pageCursors, setPageCursors] = useState([]); // Cursor used to fetch each visited page
+    const [nextCursor, setNextCursor] = useState(null); // Cursor for the page after the current one
     const [displayedTransactions, setDisplayedTransactions] = useState([]); // Transactions to display per page
     const [error, setError] = useState('');
     const [currentPage, setCurrentPage] = useState(1); // Track the current page
@@ -68,25 +70,32 @@ function TransactionSearchPage() {
         setSuggestions([]); // Clear suggestions to close the dropdown
     };
 
+    // Fetch one page of results; the server returns the page plus a cursor for the next one
+    const fetchPage = async (params, cursor) => {
+        const response = await axios.get('http://localhost:8081/api/transactions/search', {
+            params: { ...params, size: limit, cursor: cursor || undefined },
+        });
+        setDisplayedTransactions(response.data.items);
+        setNextCursor(response.data.nextCursor);
+    };
+
     // Function to handle search and retrieve transactions
     const handleSearch = async (e) => {
         e.preventDefault();
         setError(''); // Clear error before search
+        const params = {
+            projectName: searchTerm.trim() || undefined,
+            minPrice: minPrice || undefined,
+            maxPrice: maxPrice || undefined,
+            sizeSqFt: sizeSqFt || undefined,
+            facilities: facilities.trim() || undefined,
+            year: year || undefined, // Include year of valuation in the search
+        };
         try {
-            const response = await axios.get('http://localhost:8081/api/transactions/search', {
-                params: {
-                    projectName: searchTerm.trim() || undefined,
-                    minPrice: minPrice || undefined,
-                    maxPrice: maxPrice || undefined,
-                    sizeSqFt: sizeSqFt || undefined,
-                    facilities: facilities.trim() || undefined,
-                    year: year || undefined, // Include year of valuation in the search
-                },
-            });
-            const allTransactions = response.data;
-            setTransactions(allTransactions); // Set all transactions
+            await fetchPage(params, null);
+            setSearchParams(params);
+            setPageCursors([null]);
             setCurrentPage(1); // Reset to page 1 after new search
-            setDisplayedTransactions(allTransactions.slice(0, limit)); // Show the first 15 transactions
         } catch (error) {
             console.error("Search failed: ", error);
             setError('An error occurred while searching. Please try again.');
@@ -97,22 +106,32 @@ function TransactionSearchPage() {
         navigate(`/transactions/${id}`); // Navigate to a TransactionDetails page
     };
 
-    const handleNextPage = () => {
-        const totalTransactions = transactions.length;
-        const startIndex = currentPage * limit;
-        const endIndex = startIndex + limit;
-        if (startIndex < totalTransactions) {
-            setDisplayedTransactions(transactions.slice(startIndex, endIndex));
+    const handleNextPage = async () => {
+        if (!nextCursor) {
+            return;
+        }
+        try {
+            await fetchPage(searchParams, nextCursor);
+            setPageCursors([...pageCursors, nextCursor]);
             setCurrentPage(currentPage + 1);
+        } catch (error) {
+            console.error("Failed to load the next page: ", error);
+            setError('An error occurred while loading results. Please try again.');
         }
     };
 
-    const handlePreviousPage = () => {
-        if (currentPage > 1) {
-            const startIndex = (currentPage - 2) * limit;
-            const endIndex = startIndex + limit;
-            setDisplayedTransactions(transactions.slice(startIndex, endIndex));
+    const handlePreviousPage = async () => {
+        if (currentPage <= 1) {
+            return;
+        }
+        const cursors = pageCursors.slice(0, -1);
+        try {
+            await fetchPage(searchParams, cursors[cursors.length - 1]);
+            setPageCursors(cursors);
             setCurrentPage(currentPage - 1);
+        } catch (error) {
+            console.error("Failed to load the previous page: ", error);
+            setError('An error occurred while loading results. Please try again.');
         }
     };
 
@@ -215,7 +234,7 @@ function TransactionSearchPage() {
                     Previous
                 </button>
                 <span> Page {currentPage} </span>
-                <button onClick={handleNextPage} disabled={currentPage * limit >= transactions.length} style={styles.paginationButton}>
+                <button onClick={handleNextPage} disabled={!nextCursor} style={styles.paginationButton}>
                     Next
                 </button>
             </div>
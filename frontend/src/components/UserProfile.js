@@ -38,7 +38,7 @@ function UserProfile() {
                 setPhoneNumber(response.data.phoneNumber);
                 setAddress(response.data.address);
                 setProfilePictureUrl(response.data.profilePicturePath
-                    ? `${process.env.REACT_APP_API_BASE_URL || 'http://localhost:8081'}/${response.data.profilePicturePath}`
+                    ? `${process.env.REACT_APP_API_BASE_URL || 'http://localhost:8081'}/${response.data.profilePicturePath}?size=128`
                     : '/path/to/default-profile-picture.png');
             } catch (error) {
                 setError(error.response?.data?.error || 'Failed to load user profile.');
@@ -79,7 +79,7 @@ function UserProfile() {
             setUser(response.data);
             setEditMode(false);
             setProfilePictureUrl(response.data.profilePicturePath
-                ? `${process.env.REACT_APP_API_BASE_URL || 'http://localhost:8081'}/${response.data.profilePicturePath}`
+                ? `${process.env.REACT_APP_API_BASE_URL || 'http://localhost:8081'}/${response.data.profilePicturePath}?size=128`
                 : '/path/to/default-profile-picture.png');
         } catch (error) {
             setError(error.response?.data?.error || 'Failed to update user profile.');